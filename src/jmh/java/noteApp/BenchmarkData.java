@@ -0,0 +1,34 @@
+package noteApp;
+
+import java.util.Random;
+
+/**
+ * Generates note content for the benchmarks.
+ */
+public final class BenchmarkData {
+
+    private static final String[] WORDS = {
+            "muistio", "note", "the", "and", "t\u00e4n\u00e4\u00e4n", "kokous", "meeting", "agenda", "\u00e4\u00e4kk\u00f6set", "project",
+            "deadline", "l\u00f6ytyy", "todo", "review", "\u0437\u0430\u043c\u0435\u0442\u043a\u0430", "idea", "draft", "list", "nota", "ma\u00f1ana"
+    };
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Builds text of the given length out of words separated by spaces and line breaks. The same length always
+     * gives the same text.
+     * @param length number of characters.
+     * @return generated text.
+     */
+    public static String text(int length) {
+        Random random = new Random(length);
+        StringBuilder sb = new StringBuilder(length + 16);
+        while (sb.length() < length) {
+            sb.append(WORDS[random.nextInt(WORDS.length)]);
+            sb.append(random.nextInt(10) == 0 ? '\n' : ' ');
+        }
+        sb.setLength(length);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,45 @@
+package noteApp.controller;
+
+import noteApp.BenchmarkData;
+import org.apache.shiro.SecurityUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the whole note content path of {@link ControllerImpl}, from the text in the editor to the string
+ * sent to the backend and back, for note sizes from 100 B to 10 MB.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ContentPipelineBenchmark {
+
+    @Param({"100", "10000", "1000000", "10000000"})
+    public int size;
+
+    private ControllerImpl controller;
+    private String text;
+    private String payload;
+
+    @Setup
+    public void setUp() {
+        controller = new ControllerImpl();
+        SecurityUtils.getSubject().getSession().setAttribute("id", "5fc0f8b2c1a5a73b2c6f4e11");
+        text = BenchmarkData.text(size);
+        payload = controller.cryptContent(text);
+    }
+
+    @Benchmark
+    public String cryptContent() {
+        return controller.cryptContent(text);
+    }
+
+    @Benchmark
+    public String decryptContent() {
+        return controller.decryptContent(payload);
+    }
+}
@@ -0,0 +1,67 @@
+package noteApp.model;
+
+import noteApp.BenchmarkData;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link Lzw} and {@link BinaryLzw} for note sizes from 100 B to 10 MB. The input of {@link Lzw} is the
+ * hex form of the text, which is what it was used on for encrypted note content. {@link BinaryLzw} gets the UTF-8
+ * bytes of the text.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LzwBenchmark {
+
+    @Param({"100", "10000", "1000000", "10000000"})
+    public int size;
+
+    private Lzw lzw;
+    private String input;
+    private String compressed;
+    private BinaryLzw binaryLzw;
+    private byte[] bytes;
+    private byte[] compressedBytes;
+
+    @Setup
+    public void setUp() {
+        lzw = new Lzw();
+        StringBuilder hex = new StringBuilder(size);
+        for (char ch : BenchmarkData.text(size / 4 + 1).toCharArray()) {
+            hex.append(String.format("%04x", (int) ch));
+        }
+        hex.setLength(size);
+        input = hex.toString();
+        compressed = lzw.lzw_compress(input);
+
+        binaryLzw = new BinaryLzw();
+        bytes = BenchmarkData.text(size).getBytes(StandardCharsets.UTF_8);
+        compressedBytes = binaryLzw.compress(bytes);
+    }
+
+    @Benchmark
+    public String lzw_compress() {
+        return lzw.lzw_compress(input);
+    }
+
+    @Benchmark
+    public String lzw_extract() {
+        return lzw.lzw_extract(compressed);
+    }
+
+    @Benchmark
+    public byte[] binary_compress() {
+        return binaryLzw.compress(bytes);
+    }
+
+    @Benchmark
+    public byte[] binary_extract() {
+        return binaryLzw.extract(compressedBytes);
+    }
+}
@@ -0,0 +1,84 @@
+package noteApp.model.backend;
+
+import noteApp.BenchmarkData;
+import noteApp.model.note.Note;
+import noteApp.utils.note.NoteUtil;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to list and save notes against the {@link StandInBackend} with and without compression of the HTTP bodies,
+ * on an unlimited link and on a link of about 1 Mbit/s. The notes hold plain text content as it is sent before
+ * encryption, which compresses like the rich text payloads of unencrypted exports.
+ * <p>
+ * Every parameter combination runs in its own fork, so the base url can be set before the connection classes are
+ * loaded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HttpCompressionBenchmark {
+
+    @Param({"true", "false"})
+    public boolean compression;
+
+    @Param({"0", "125000"})
+    public long bytesPerSecond;
+
+    @Param({"50"})
+    public int notes;
+
+    @Param({"10000"})
+    public int noteSize;
+
+    private StandInBackend backend;
+    private NoteConnection connection;
+    private String uId;
+    private String token;
+    private Note note;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        backend = new StandInBackend(0);
+        backend.start();
+        System.setProperty("noteApp.baseUrl", backend.getBaseUrl());
+        String[] login = backend.createUser("benchmark", "benchmark").split(" ");
+        uId = login[0];
+        token = login[1];
+        for (int i = 0; i < notes; i++) {
+            Note stored = new Note("note " + i, BenchmarkData.text(noteSize + i));
+            backend.putNote(uId, new JSONObject(NoteUtil.buildJsonNote(stored)));
+        }
+        note = new Note("saved", BenchmarkData.text(noteSize));
+
+        backend.setEtags(false);
+        backend.setCompressResponses(compression);
+        backend.setBytesPerSecond(bytesPerSecond);
+        BackendClient.setCompressingRequests(compression);
+        connection = NoteConnection.getInstance();
+        System.out.println("Saved note body: " + NoteUtil.buildJsonNote(note).getBytes(StandardCharsets.UTF_8).length
+                + " bytes");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        backend.stop();
+    }
+
+    @Benchmark
+    public List<Note> getUserNotes() throws Exception {
+        return connection.getUserNoteChangesAsync(uId, token, null).get().getNotes();
+    }
+
+    @Benchmark
+    public Note saveNote() throws Exception {
+        return connection.saveNoteAsync(note, uId, token).get();
+    }
+}
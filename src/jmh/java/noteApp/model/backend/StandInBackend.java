@@ -0,0 +1,385 @@
+package noteApp.model.backend;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import noteApp.model.note.Note;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * In-memory stand-in for the backend, used to benchmark and try out the HTTP layer without the real backend.
+ * <p>
+ * Implements the user and note endpoints the client uses: incremental note lists with sync tokens, ETags, paged
+ * listings without content, single notes, batched saves, gzip compressed request bodies and gzip compressed
+ * responses. A slow link can be simulated by limiting the
+ * bytes per second of the responses.
+ * <p>
+ * Run with {@code java -cp <classpath> noteApp.model.backend.StandInBackend [port]} and start the application with
+ * {@code -DnoteApp.baseUrl=http://localhost:<port>}.
+ */
+public class StandInBackend {
+
+    private final HttpServer server;
+    private final Map<String, User> users = new HashMap<>();
+    private final Map<String, User> usersById = new HashMap<>();
+    private volatile boolean compressResponses = true;
+    private volatile boolean etags = true;
+    private volatile long bytesPerSecond;
+
+    /**
+     * Creates the stand-in listening on the given port of the loopback address.
+     * @param port port to listen on, 0 for any free port.
+     * @throws IOException if the port can not be bound.
+     */
+    public StandInBackend(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        server.setExecutor(Executors.newFixedThreadPool(4, runnable -> {
+            Thread thread = new Thread(runnable, "stand-in-backend");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        server.createContext("/", this::handle);
+    }
+
+    public static void main(String[] args) throws IOException {
+        StandInBackend backend = new StandInBackend(args.length > 0 ? Integer.parseInt(args[0]) : 8090);
+        backend.start();
+        System.out.println("Stand-in backend listening on " + backend.getBaseUrl());
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    /**
+     * Returns the url to point {@code noteApp.baseUrl} to.
+     * @return base url of the stand-in.
+     */
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Sets whether responses are gzip compressed for clients that accept it.
+     * @param compress true to compress responses.
+     */
+    public void setCompressResponses(boolean compress) {
+        compressResponses = compress;
+    }
+
+    /**
+     * Sets whether note lists have ETags. Without them every list request is answered in full.
+     * @param etags true to send ETags and answer 304 to unchanged lists.
+     */
+    public void setEtags(boolean etags) {
+        this.etags = etags;
+    }
+
+    /**
+     * Limits the speed responses are written at.
+     * @param bytesPerSecond bytes per second, 0 for no limit.
+     */
+    public void setBytesPerSecond(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    /**
+     * Creates a user and returns its id and token the way the login endpoint does.
+     * @param username name of the user.
+     * @param password password of the user.
+     * @return id and token separated by a space.
+     */
+    public synchronized String createUser(String username, String password) {
+        User user = new User(username, password);
+        users.put(username, user);
+        usersById.put(user.id, user);
+        return user.id + " " + user.token;
+    }
+
+    /**
+     * Stores a note for a user as if it had been saved through the save endpoint.
+     * @param uId id of the user.
+     * @param note note in the JSON sent by the client.
+     */
+    public synchronized void putNote(String uId, JSONObject note) {
+        usersById.get(uId).save(note);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String[] path = exchange.getRequestURI().getPath().split("/");
+            String method = exchange.getRequestMethod();
+            if (path.length == 2 && path[1].equals("ping")) {
+                respond(exchange, 200, "pong");
+            } else if (path.length == 3 && path[2].equals("login") && method.equals("POST")) {
+                JSONObject body = new JSONObject(readBody(exchange));
+                respond(exchange, 200, login(body.getString("username"), body.getString("password")));
+            } else if (path.length == 3 && path[2].equals("user") && method.equals("POST")) {
+                JSONObject body = new JSONObject(readBody(exchange));
+                respond(exchange, 200, signUp(body.getString("username"), body.getString("password")));
+            } else if (path.length >= 4 && path[2].equals("notes")) {
+                handleNotes(exchange, path, method);
+            } else {
+                respond(exchange, 404, "");
+            }
+        } catch (RuntimeException e) {
+            respond(exchange, 400, String.valueOf(e.getMessage()));
+        }
+    }
+
+    private void handleNotes(HttpExchange exchange, String[] path, String method) throws IOException {
+        boolean save = path[3].equals("save");
+        boolean batch = save && path.length == 6 && path[4].equals("batch");
+        boolean delete = path[3].equals("delete");
+        String uId = batch ? path[5] : save || delete ? path[4] : path[3];
+        User user;
+        synchronized (this) {
+            user = usersById.get(uId);
+        }
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        if (user == null || !("Bearer " + user.token).equals(authorization)) {
+            respond(exchange, 401, "");
+            return;
+        }
+
+        if (batch && method.equals("POST")) {
+            JSONArray notes = new JSONArray(readBody(exchange));
+            synchronized (this) {
+                for (int i = 0; i < notes.length(); i++) {
+                    user.save(notes.getJSONObject(i));
+                }
+            }
+            respond(exchange, 200, "");
+        } else if (save && method.equals("POST")) {
+            JSONObject saved;
+            JSONObject note = new JSONObject(readBody(exchange));
+            synchronized (this) {
+                saved = user.save(note);
+            }
+            respond(exchange, 200, saved.toString());
+        } else if (delete && method.equals("DELETE") && path.length == 6) {
+            boolean deleted;
+            synchronized (this) {
+                deleted = user.delete(path[5]);
+            }
+            respond(exchange, 200, String.valueOf(deleted));
+        } else if (method.equals("GET") && path.length == 5 && path[4].equals("meta")) {
+            listMetadata(exchange, user);
+        } else if (method.equals("GET") && path.length == 5) {
+            JSONObject note;
+            synchronized (this) {
+                note = user.notes.get(path[4]);
+            }
+            if (note == null) {
+                respond(exchange, 404, "");
+            } else {
+                respond(exchange, 200, note.toString());
+            }
+        } else if (method.equals("GET")) {
+            listNotes(exchange, user);
+        } else {
+            respond(exchange, 405, "");
+        }
+    }
+
+    private void listNotes(HttpExchange exchange, User user) throws IOException {
+        String query = exchange.getRequestURI().getQuery();
+        long since = query != null && query.startsWith("since=") ? Long.parseLong(query.substring(6)) : -1;
+        String body;
+        String etag;
+        synchronized (this) {
+            etag = "\"" + user.version + "-" + since + "\"";
+            exchange.getResponseHeaders().set(NoteConnection.SYNC_TOKEN_HEADER, String.valueOf(user.version));
+            if (etags) {
+                exchange.getResponseHeaders().set("ETag", etag);
+            }
+            if (etags && etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                body = null;
+            } else if (since < 0) {
+                JSONArray notes = new JSONArray();
+                user.notes.values().forEach(notes::put);
+                body = notes.toString();
+            } else {
+                JSONArray notes = new JSONArray();
+                JSONArray deleted = new JSONArray();
+                user.notes.forEach((id, note) -> {
+                    if (user.versions.get(id) > since) {
+                        notes.put(note);
+                    }
+                });
+                user.deleted.forEach((id, version) -> {
+                    if (version > since) {
+                        deleted.put(id);
+                    }
+                });
+                body = new JSONObject().put("notes", notes).put("deleted", deleted).toString();
+            }
+        }
+        if (body == null) {
+            exchange.sendResponseHeaders(304, -1);
+        } else {
+            respond(exchange, 200, body);
+        }
+    }
+
+    /**
+     * Lists a page of notes without content, newest first.
+     */
+    private void listMetadata(HttpExchange exchange, User user) throws IOException {
+        Map<String, String> query = new HashMap<>();
+        String rawQuery = exchange.getRequestURI().getQuery();
+        if (rawQuery != null) {
+            for (String parameter : rawQuery.split("&")) {
+                String[] pair = parameter.split("=", 2);
+                query.put(pair[0], pair.length > 1 ? pair[1] : "");
+            }
+        }
+        boolean archived = Boolean.parseBoolean(query.get("archived"));
+        int offset = Integer.parseInt(query.getOrDefault("offset", "0"));
+        int limit = Integer.parseInt(query.getOrDefault("limit", "50"));
+        List<JSONObject> notes = new ArrayList<>();
+        synchronized (this) {
+            for (JSONObject note : user.notes.values()) {
+                if (note.getString("title").contains("%a") == archived) {
+                    notes.add(note);
+                }
+            }
+        }
+        notes.sort(Comparator.comparingLong(StandInBackend::date).reversed());
+        JSONArray page = new JSONArray();
+        for (JSONObject note : notes.subList(Math.min(offset, notes.size()), Math.min(offset + limit, notes.size()))) {
+            JSONObject metadata = new JSONObject(note.toString());
+            metadata.remove("content");
+            page.put(metadata);
+        }
+        respond(exchange, 200, new JSONObject().put("notes", page).put("total", notes.size()).toString());
+    }
+
+    private static long date(JSONObject note) {
+        try {
+            return Note.parseDateString(note.optString("dateString"));
+        } catch (DateTimeParseException e) {
+            return 0;
+        }
+    }
+
+    private synchronized String login(String username, String password) {
+        User user = users.get(username);
+        if (user == null || !user.password.equals(password)) {
+            return "";
+        }
+        return user.id + " " + user.token;
+    }
+
+    private synchronized String signUp(String username, String password) {
+        if (users.containsKey(username)) {
+            return "unameErr";
+        }
+        return createUser(username, password).split(" ")[0];
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        InputStream in = exchange.getRequestBody();
+        if ("gzip".equalsIgnoreCase(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+            in = new GZIPInputStream(in);
+        }
+        return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    private void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        String accepted = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (compressResponses && accepted != null && accepted.contains("gzip")
+                && bytes.length >= BackendClient.COMPRESSION_THRESHOLD) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 64);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                gzip.write(bytes);
+            }
+            bytes = out.toByteArray();
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+            throttle(bytes.length);
+        }
+    }
+
+    /**
+     * Waits for as long as the bytes would take on the simulated link.
+     */
+    private void throttle(int bytes) {
+        long rate = bytesPerSecond;
+        if (rate <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(bytes * 1000L / rate);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class User {
+        private final String id = UUID.randomUUID().toString().replace("-", "").substring(0, 24);
+        private final String token = UUID.randomUUID().toString();
+        private final String password;
+        private final Map<String, JSONObject> notes = new LinkedHashMap<>();
+        private final Map<String, Long> versions = new HashMap<>();
+        private final Map<String, Long> deleted = new HashMap<>();
+        private long version;
+
+        User(String username, String password) {
+            this.password = password;
+        }
+
+        JSONObject save(JSONObject note) {
+            String id = note.optString("id", note.optString("noteId"));
+            JSONObject stored = new JSONObject()
+                    .put("noteId", id)
+                    .put("title", note.getString("title"))
+                    .put("content", note.getString("content"))
+                    .put("label", note.optString("label"))
+                    .put("tag", note.optString("tag", "NONE"))
+                    .put("dateString", note.optString("date", note.optString("dateString")));
+            notes.put(id, stored);
+            versions.put(id, ++version);
+            deleted.remove(id);
+            return stored;
+        }
+
+        boolean delete(String id) {
+            if (notes.remove(id) == null) {
+                return false;
+            }
+            versions.remove(id);
+            deleted.put(id, ++version);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package noteApp.model.compression;
+
+import noteApp.BenchmarkData;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the {@link CompressionCodec} implementations on the UTF-8 bytes of note text from 100 B to 10 MB.
+ * Used together with the compressed sizes to pick the codec for each content size in the controller.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompressionCodecBenchmark {
+
+    @Param({"100", "10000", "1000000", "10000000"})
+    public int size;
+
+    @Param({"lzw", "deflate1", "deflate6", "deflate9", "fastlz"})
+    public String codecName;
+
+    private CompressionCodec codec;
+    private byte[] input;
+    private byte[] compressed;
+
+    @Setup
+    public void setUp() {
+        switch (codecName) {
+            case "lzw":
+                codec = new LzwCodec();
+                break;
+            case "fastlz":
+                codec = new FastLzCodec();
+                break;
+            default:
+                codec = new DeflateCodec(Integer.parseInt(codecName.substring("deflate".length())));
+        }
+        input = BenchmarkData.text(size).getBytes(StandardCharsets.UTF_8);
+        compressed = codec.compress(input);
+    }
+
+    @Benchmark
+    public byte[] compress() {
+        return codec.compress(input);
+    }
+
+    @Benchmark
+    public byte[] decompress() {
+        return codec.decompress(compressed);
+    }
+}
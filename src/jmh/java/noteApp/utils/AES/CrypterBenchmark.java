@@ -0,0 +1,73 @@
+package noteApp.utils.AES;
+
+import noteApp.BenchmarkData;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link Crypter} for note sizes from 100 B to 10 MB.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CrypterBenchmark {
+
+    @Param({"100", "10000", "1000000", "10000000"})
+    public int size;
+
+    private static final String SECRET = "reUDjgjqyQMEgevN";
+
+    private Crypter crypter;
+    private AesKey key;
+    private String text;
+    private String hexCipher;
+    private byte[] plain;
+    private byte[] cipher;
+    private byte[] ctrCipher;
+
+    @Setup
+    public void setUp() {
+        crypter = new Crypter();
+        key = crypter.deriveKey(SECRET);
+        text = BenchmarkData.text(size);
+        hexCipher = crypter.encryptAES128(text, SECRET);
+        plain = text.getBytes(StandardCharsets.UTF_8);
+        cipher = crypter.encrypt(plain, key);
+        ctrCipher = crypter.encryptCtr(plain, key);
+    }
+
+    @Benchmark
+    public String encryptAES128() {
+        return crypter.encryptAES128(text, SECRET);
+    }
+
+    @Benchmark
+    public String decryptAES128() {
+        return crypter.decryptAES128(hexCipher, SECRET);
+    }
+
+    @Benchmark
+    public byte[] encrypt() {
+        return crypter.encrypt(plain, key);
+    }
+
+    @Benchmark
+    public byte[] decrypt() {
+        return crypter.decrypt(cipher, key);
+    }
+
+    @Benchmark
+    public byte[] encryptCtr() {
+        return crypter.encryptCtr(plain, key);
+    }
+
+    @Benchmark
+    public byte[] decryptCtr() {
+        return crypter.decrypt(ctrCipher, key);
+    }
+}
@@ -0,0 +1,59 @@
+package noteApp.utils.note;
+
+import noteApp.BenchmarkData;
+import noteApp.model.note.Note;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of a note list response from a String and from a stream of its UTF-8 bytes, as it is read from the
+ * HTTP response. Run with {@code -prof gc} to compare the allocation of the two.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NoteParseBenchmark {
+
+    @Param({"100", "5000"})
+    public int notes;
+
+    @Param({"2000"})
+    public int noteSize;
+
+    private String json;
+    private byte[] bytes;
+
+    @Setup
+    public void setUp() {
+        JSONArray arr = new JSONArray();
+        for (int i = 0; i < notes; i++) {
+            JSONObject note = new JSONObject(NoteUtil.buildJsonNote(new Note("note " + i, BenchmarkData.text(noteSize))));
+            note.put("noteId", note.get("id"));
+            note.put("dateString", note.get("date"));
+            arr.put(note);
+        }
+        json = arr.toString();
+        bytes = json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public List<Note> parseString() {
+        return NoteUtil.parseList(json);
+    }
+
+    @Benchmark
+    public List<Note> parseStream() throws IOException {
+        return NoteUtil.parseList(new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8));
+    }
+}
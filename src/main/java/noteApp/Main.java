@@ -9,6 +9,7 @@ import javafx.stage.Stage;
 import noteApp.controller.Controller;
 import noteApp.controller.ControllerImpl;
 import noteApp.model.Context;
+import noteApp.model.Filehandler;
 import noteApp.view.MainLayoutController;
 import noteApp.view.RootLayoutController;
 
@@ -86,6 +87,7 @@ public class Main extends Application {
             primaryStage.setScene(scene);
 
             primaryStage.setOnCloseRequest((e) -> {
+                Filehandler.flushLocalSaves().join();
                 System.exit(0);
             });
 
@@ -2,11 +2,13 @@ package noteApp.controller;
 
 
 import noteApp.model.note.Note;
+import noteApp.model.note.NotePage;
 import noteApp.model.savestate.SaveState;
 import noteApp.view.MainLayoutController;
 import org.fxmisc.richtext.InlineCssTextArea;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Interface for the Controller portion of the MVC architecture. Methods that somehow modify the model are defined here
@@ -54,6 +56,24 @@ public interface Controller {
      */
     List<Note> getList() throws Exception;
 
+    /**
+     * Retrieves a list of notes from the database without blocking the calling thread.
+     *
+     * @return future of the list retrieved from the database, completed with null if no user is logged in.
+     */
+    CompletableFuture<List<Note>> getListAsync();
+
+    /**
+     * Retrieves a page of notes from the database without their content, newest first. The content of a note is
+     * retrieved when it is first read with {@link Note#getContentAsync()}, which must start on the JavaFX thread.
+     *
+     * @param archived true to list the archived notes, false to list the others.
+     * @param offset   position of the first note of the page.
+     * @param limit    maximum number of notes on the page.
+     * @return future of the page, completed with null if no user is logged in or the database has no paged listing.
+     */
+    CompletableFuture<NotePage> getPageAsync(boolean archived, int offset, int limit);
+
     /**
      * Creates a new note and saves it to the database.
      *
@@ -64,6 +84,15 @@ public interface Controller {
      */
     Note saveToDatabase(String title, String content) throws Exception;
 
+    /**
+     * Creates a new note and saves it to the database without blocking the calling thread.
+     *
+     * @param title   title of the note.
+     * @param content content of the note.
+     * @return future of the note which has been saved to db, completed exceptionally if saving fails.
+     */
+    CompletableFuture<Note> saveToDatabaseAsync(String title, String content);
+
     /**
      * Updates selected note in the database. New notes are created as empty notes which are then modified and
      * updated using this method.
@@ -73,6 +102,15 @@ public interface Controller {
      */
     void updateNote(Note note) throws Exception;
 
+    /**
+     * Updates selected note in the database without blocking the calling thread. Updates made close together are
+     * sent to the database in one request.
+     *
+     * @param note note to be updated.
+     * @return future completed when the note is saved, completed exceptionally if updating fails.
+     */
+    CompletableFuture<Void> updateNoteAsync(Note note);
+
     /**
      * Removes selected note from the database.
      *
@@ -81,6 +119,14 @@ public interface Controller {
      */
     void deleteFromDatabase(Note note) throws Exception;
 
+    /**
+     * Removes selected note from the database without blocking the calling thread.
+     *
+     * @param note note to be removed.
+     * @return future completed when the note is removed, completed exceptionally if deleting fails.
+     */
+    CompletableFuture<Void> deleteFromDatabaseAsync(Note note);
+
     /**
      * Returns selected Note
      * @return selected Noe
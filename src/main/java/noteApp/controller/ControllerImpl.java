@@ -2,12 +2,19 @@ package noteApp.controller;
 
 import noteApp.model.Filehandler;
 import noteApp.model.Lzw;
+import noteApp.model.compression.CompressionCodec;
+import noteApp.model.compression.CompressionCodecs;
+import noteApp.model.compression.DeflateCodec;
+import noteApp.model.compression.FastLzCodec;
+import noteApp.model.compression.LzwCodec;
 import noteApp.model.note.*;
 import noteApp.model.note.Exceptions.InvalidNoteException;
 import noteApp.model.savestate.SaveState;
 import noteApp.model.user.UserDAO;
 import noteApp.model.user.UserDAOImpl;
+import noteApp.utils.AES.AesKey;
 import noteApp.utils.AES.Crypter;
+import noteApp.utils.AES.CrypterInputStream;
 import noteApp.view.MainLayoutController;
 import noteApp.view.RootLayoutController;
 import org.apache.commons.lang.NullArgumentException;
@@ -16,10 +23,15 @@ import org.apache.shiro.SecurityUtils;
 import org.apache.shiro.session.Session;
 import org.fxmisc.richtext.InlineCssTextArea;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.security.InvalidParameterException;
-import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 
 /**
  * Represents the Controller portion of the MVC model. Used to pass data between the Model and the View.
@@ -32,11 +44,43 @@ import java.util.List;
  */
 public class ControllerImpl implements Controller {
     private static AutoSaveThread autoSaveThread;
+    /**
+     * Content length from which note content is encrypted while it is uploaded instead of up front.
+     */
+    private static final int STREAMING_THRESHOLD = 1 << 20;
+    /**
+     * Content shorter than this in UTF-8 is not compressed, the header would take most of what is saved.
+     */
+    private static final int MIN_COMPRESSED_SIZE = 256;
+    /**
+     * Content up to this size is compressed with Deflate, which gives the best ratio and is fast enough for small
+     * notes.
+     */
+    private static final int DEFLATE_LIMIT = 64 * 1024;
+    /**
+     * Content up to this size is compressed with lzw, which compresses large texts better than Deflate at the same
+     * speed. Larger content uses the fast lz codec, which is more than twice as fast.
+     */
+    private static final int LZW_LIMIT = 4 << 20;
+    /**
+     * Pool the contents of the most recent notes are decrypted in after a sync, one thread per processor. Its threads
+     * are daemons and do not keep the application running.
+     */
+    private static final ForkJoinPool DECRYPT_POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors(),
+            pool -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("note-decrypt-" + thread.getPoolIndex());
+                thread.setDaemon(true);
+                return thread;
+            }, null, false);
     /**
      * Salt used in hashing the user's password.
      */
     private final String salt = "reUDjgjqyQMEgevN6paM";
     private final Lzw compressor;
+    private final CompressionCodec deflateCodec = new DeflateCodec();
+    private final CompressionCodec lzwCodec = new LzwCodec();
+    private final CompressionCodec fastCodec = new FastLzCodec();
     private final Crypter crypter;
     private final NoteDAO noteDAO;
     private final UserDAO userDAO;
@@ -51,6 +95,14 @@ public class ControllerImpl implements Controller {
      * State that handles how and where the notes are saved. Also how new notes are displayed to the user.
      */
     private SaveState state;
+    /**
+     * Key used to encrypt and decrypt the current user's notes. Destroyed when the user logs out.
+     */
+    private AesKey sessionKey;
+    /**
+     * Decrypted notes of the current user. Emptied when the user logs in or out.
+     */
+    private final NoteStore noteStore = new NoteStore();
 
     public ControllerImpl(RootLayoutController rlc, MainLayoutController mlc) {
         this.mlc = mlc;
@@ -82,6 +134,8 @@ public class ControllerImpl implements Controller {
      */
     @Override
     public boolean logIn(String username, String password) {
+        clearKey();
+        noteStore.clear();
         Session session = SecurityUtils.getSubject().getSession();
         session.setAttribute("password", password);
         autoSaveThread.enable();
@@ -97,13 +151,16 @@ public class ControllerImpl implements Controller {
 
     /**
      * Logs current user out of the application.
-     * Also disables auto save thread and empties the saveable note.
+     * Also disables auto save thread, empties the saveable note, destroys the session key and empties the note
+     * store.
      *
      * @return true if the log out procedure is successful.
      */
     @Override
     public boolean logOut() {
         autoSaveThread.cancel();
+        clearKey();
+        noteStore.clear();
         if (mlc != null) {
             this.mlc.setSaveableNote(null);
         }
@@ -173,18 +230,110 @@ public class ControllerImpl implements Controller {
     }
 
     /**
-     * Encrypts provided string with hex value generated by user's id and salt.
+     * Encrypts provided string with the key of the current session.
+     * <p>
+     * The UTF-8 bytes of the content are compressed when that makes them smaller, encrypted in counter mode and
+     * carried in a string with one character per byte.
      * @param content String to be encrypted.
      * @return encrypted string.
      */
-    private String cryptContent(String content) {
-        String currentUserID = getUserId();
+    String cryptContent(String content) {
+        byte[] crypted = this.crypter.encryptCtr(compress(content), getKey());
+        return new String(crypted, StandardCharsets.ISO_8859_1);
+    }
 
-        String prehash = currentUserID + this.salt;
+    /**
+     * Returns the UTF-8 bytes of the content, compressed with the codec picked by {@link #selectCodec(int)} if that
+     * makes them smaller. Compressed bytes start with {@link CompressionCodec#MAGIC}, which no UTF-8 text starts
+     * with.
+     * @param content content to compress.
+     * @return bytes to encrypt.
+     */
+    private byte[] compress(String content) {
+        byte[] plain = content.getBytes(StandardCharsets.UTF_8);
+        CompressionCodec codec = selectCodec(plain.length);
+        if (codec == null) {
+            return plain;
+        }
+        byte[] compressed = codec.compress(plain);
+        return compressed.length < plain.length ? compressed : plain;
+    }
+
+    /**
+     * Picks the codec for content of the given size.
+     * @param size size of the content in bytes.
+     * @return codec to use, or null if the content is not worth compressing.
+     */
+    private CompressionCodec selectCodec(int size) {
+        if (size < MIN_COMPRESSED_SIZE) {
+            return null;
+        }
+        if (size <= DEFLATE_LIMIT) {
+            return deflateCodec;
+        }
+        return size <= LZW_LIMIT ? lzwCodec : fastCodec;
+    }
 
-        String hashHex = DigestUtils.md5Hex(prehash);
-        String crypted = this.crypter.encryptAES128(content, hexToString(hashHex));
-        return compressor.lzw_compress(crypted);
+    /**
+     * Decrypts content made with {@link #cryptContent(String)}. The decrypted bytes are decompressed with the codec
+     * named in their header if they have one and read as UTF-8 otherwise. Content saved before the binary format is a lzw
+     * compressed hex string and is decrypted with the legacy decoder.
+     * @param content String to be decrypted.
+     * @return decrypted string.
+     */
+    String decryptContent(String content) {
+        return decryptContent(content, getKey());
+    }
+
+    /**
+     * Decrypts content made with {@link #cryptContent(String)} with the given key. Used off the thread the session
+     * is bound to, where {@link #getKey()} can not look up the user.
+     * @param content String to be decrypted.
+     * @param key key of the session.
+     * @return decrypted string.
+     * @throws UncheckedIOException if the user has logged out and the key has been destroyed.
+     */
+    private String decryptContent(String content, AesKey key) {
+        try {
+            if (!content.isEmpty()
+                    && (content.charAt(0) == Crypter.VERSION_CTR || content.charAt(0) == Crypter.VERSION_ECB)) {
+                byte[] plain = this.crypter.decrypt(content.getBytes(StandardCharsets.ISO_8859_1), key);
+                if (CompressionCodecs.isCompressed(plain)) {
+                    plain = CompressionCodecs.decompress(plain);
+                }
+                return new String(plain, StandardCharsets.UTF_8);
+            }
+            return this.crypter.decryptHex(this.compressor.lzw_extract(content), key);
+        } catch (IllegalStateException e) {
+            if (key.isDestroyed()) {
+                throw new UncheckedIOException(new IOException("The session has ended.", e));
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the key of the current session. The key is generated from the user's id and salt the first time it
+     * is needed after logging in and reused until the user logs out.
+     * @return expanded key.
+     */
+    private synchronized AesKey getKey() {
+        if (sessionKey == null) {
+            String prehash = getUserId() + this.salt;
+            String secret = new String(DigestUtils.md5(prehash), StandardCharsets.ISO_8859_1);
+            sessionKey = this.crypter.deriveKey(secret);
+        }
+        return sessionKey;
+    }
+
+    /**
+     * Destroys the key of the current session.
+     */
+    private synchronized void clearKey() {
+        if (sessionKey != null) {
+            sessionKey.destroy();
+            sessionKey = null;
+        }
     }
 
     /**
@@ -203,41 +352,68 @@ public class ControllerImpl implements Controller {
             throw new Exception("UserID missing");
         }
 
-        String content = cryptContent(text);
-
-        Note note = new Note();
+        Note note = newNote(name, text, currentUserID);
         Note newNote;
 
-        note.setTitle(name);
-        note.setContent(content);
-        note.setUserId(currentUserID);
-        note.setDate(new Date());
         try {
             newNote = noteDAO.create(note);
         } catch (Exception e) {
             throw new Exception("Note saving failed");
         }
+        storeCreated(newNote, text);
         return newNote;
     }
 
     /**
-     * Converts hex string to a normal string.
-     * @param input hex value to be converted.
-     * @return String to be returned.
+     * Creates a new note and saves it to the database without blocking. Content of the note is crypted before the
+     * request is sent.
+     *
+     * @param name title of the note.
+     * @param text content of the note.
+     * @return future of the saved note, completed exceptionally if saving fails.
      */
-    private String hexToString(String input) {
-        String result = "";
-        char[] charArray = input.toCharArray();
-        for (int i = 0; i < charArray.length; i = i + 2) {
-            String st = "" + charArray[i] + "" + charArray[i + 1];
-            char ch = (char) Integer.parseInt(st, 16);
-            result = result + ch;
+    @Override
+    public CompletableFuture<Note> saveToDatabaseAsync(String name, String text) {
+        Note note;
+        try {
+            note = newNote(name, text, getUserId());
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(new Exception("UserID missing"));
         }
-        return result;
+        return noteDAO.createAsync(note).thenApply(saved -> {
+            storeCreated(saved, text);
+            return saved;
+        });
     }
 
     /**
-     * Updates provided note in the database.
+     * Adds a note created by this client to the note store.
+     * @param saved note returned by the database, content encrypted.
+     * @param text decrypted content of the note.
+     */
+    private void storeCreated(Note saved, String text) {
+        if (saved != null) {
+            Note stored = new Note(saved);
+            stored.setContent(text);
+            noteStore.put(stored, saved.getContent());
+        }
+    }
+
+    /**
+     * Builds a new note with encrypted content.
+     */
+    private Note newNote(String name, String text, String userId) {
+        Note note = new Note();
+        note.setTitle(name);
+        note.setContent(cryptContent(text));
+        note.setUserId(userId);
+        note.setDateMillis(System.currentTimeMillis());
+        return note;
+    }
+
+    /**
+     * Updates provided note in the database. The note itself is left unchanged, a copy with encrypted content is
+     * sent.
      * @param note note to be updated.
      * @throws InvalidNoteException if the note's content is empty or saving to database fails.
      */
@@ -247,17 +423,57 @@ public class ControllerImpl implements Controller {
         if (content == null) {
             throw new InvalidNoteException("Note content is empty");
         }
-        content = cryptContent(content);
-        note.setContent(content);
+        if (content.length() >= STREAMING_THRESHOLD) {
+            AesKey key = getKey();
+            byte[] plain = compress(content);
+            try {
+                noteDAO.update(note, () -> new CrypterInputStream(new ByteArrayInputStream(plain), key));
+            } catch (Exception e) {
+                throw new InvalidNoteException("Note update failed.");
+            }
+            noteStore.put(note, null);
+            return;
+        }
+        Note encrypted = new Note(note);
+        encrypted.setContent(cryptContent(content));
         try {
-            noteDAO.update(note);
+            noteDAO.update(encrypted);
         } catch (Exception e) {
             throw new InvalidNoteException("Note update failed.");
         }
+        noteStore.put(note, encrypted.getContent());
+    }
+
+    /**
+     * Updates provided note in the database without blocking. The content is encrypted before this method returns
+     * and the note itself is left unchanged.
+     * Notes below the streaming threshold are collected with other updates made close together and sent in one
+     * request, larger notes are streamed on their own.
+     * @param note note to be updated.
+     * @return future completed when the note is saved, completed exceptionally if updating fails.
+     */
+    @Override
+    public CompletableFuture<Void> updateNoteAsync(Note note) {
+        String content = note.getContent();
+        if (content == null) {
+            return CompletableFuture.failedFuture(new InvalidNoteException("Note content is empty"));
+        }
+        if (content.length() >= STREAMING_THRESHOLD) {
+            AesKey key = getKey();
+            byte[] plain = compress(content);
+            Note stored = new Note(note);
+            return noteDAO.updateAsync(note, () -> new CrypterInputStream(new ByteArrayInputStream(plain), key))
+                    .thenRun(() -> noteStore.put(stored, null));
+        }
+        Note stored = new Note(note);
+        Note encrypted = new Note(note);
+        encrypted.setContent(cryptContent(content));
+        return noteDAO.updateAsync(encrypted).thenRun(() -> noteStore.put(stored, encrypted.getContent()));
     }
 
     /**
-     * Retrieves notes from the database and adds them to a list.
+     * Retrieves notes from the database and adds them to a list. The content of a note is decrypted when it is
+     * first read, and the contents of the most recent notes are decrypted in parallel in the background.
      * @return list of notes.
      * @throws IOException if the HTTP request is invalid.
      * @throws InterruptedException if the request is interrupted.
@@ -268,9 +484,6 @@ public class ControllerImpl implements Controller {
         if (currentUserID == null) {
             return null;
         }
-        String prehash = currentUserID + this.salt;
-        String hashHex = DigestUtils.md5Hex(prehash);
-
         List<Note> notes = null;
         try {
             notes = noteDAO.getAll();
@@ -281,15 +494,108 @@ public class ControllerImpl implements Controller {
             throw new InterruptedException("Request was interrupted.");
         }
 
-        assert notes != null;
-        notes.forEach(n -> {
-            String note = n.getContent();
-            note = this.compressor.lzw_extract(note);
-            note = this.crypter.decryptAES128(note, hexToString(hashHex));
-            n.setContent(note);
+        if (notes == null) {
+            return null;
+        }
+        AesKey key = getKey();
+        List<Note> list = noteStore.apply(NoteChanges.full(notes, noteStore.getSyncToken()),
+                c -> decryptContent(c, key));
+        noteStore.prefetch(DECRYPT_POOL);
+        return list;
+    }
+
+    /**
+     * Retrieves notes from the database without blocking. Only the notes changed since the previous sync are
+     * retrieved and merged into the note store. The content of a note is not decrypted until it is read, usually
+     * when the note is opened, so the list only waits for the titles, tags and dates. Once the list is ready, the
+     * contents of the most recent notes are decrypted in parallel into the content cache, as much as it holds. The
+     * future does not wait for them.
+     * @return future of the list of notes, completed with null if no user is logged in or the request was not
+     * successful.
+     */
+    @Override
+    public CompletableFuture<List<Note>> getListAsync() {
+        if (getUserId() == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        AesKey key = getKey();
+        return noteDAO.getChangesAsync(noteStore.getSyncToken()).thenApply(changes -> {
+            if (changes == null) {
+                return null;
+            }
+            List<Note> list = noteStore.apply(changes, content -> decryptContent(content, key));
+            noteStore.prefetch(DECRYPT_POOL);
+            return list;
+        });
+    }
+
+    /**
+     * Retrieves a page of notes from the database without their content. The content of a note is retrieved from
+     * the database and decrypted the first time it is read, and kept in the content cache of the note store. The
+     * content should be read with {@link Note#getContentAsync()}, which does not block while it is retrieved. Reading
+     * it must start on the JavaFX thread where the session is bound.
+     * @param archived true to list the archived notes, false to list the others.
+     * @param offset position of the first note of the page.
+     * @param limit maximum number of notes on the page.
+     * @return future of the page, completed with null if no user is logged in or the database has no paged
+     * listing.
+     */
+    @Override
+    public CompletableFuture<NotePage> getPageAsync(boolean archived, int offset, int limit) {
+        if (getUserId() == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        AesKey key = getKey();
+        return noteDAO.getPageAsync(archived, offset, limit).thenApply(page -> {
+            if (page != null) {
+                for (Note note : page.getNotes()) {
+                    String id = note.getId().toString();
+                    long date = note.getDateMillis();
+                    note.setContentLoader(() -> noteStore.content(id, date, () -> fetchContent(id, key)),
+                            () -> noteStore.contentAsync(id, date, () -> fetchContentAsync(id, key)));
+                }
+            }
+            return page;
         });
+    }
+
+    /**
+     * Retrieves the content of a note from the database and decrypts it.
+     * @param id id of the note.
+     * @param key key of the session.
+     * @return decrypted content.
+     * @throws UncheckedIOException if the note can not be retrieved.
+     */
+    private String fetchContent(String id, AesKey key) {
+        Note note;
+        try {
+            note = noteDAO.get(id);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new IOException("Request was interrupted."));
+        }
+        if (note == null || note.getContent() == null) {
+            throw new UncheckedIOException(new IOException("Note " + id + " was not found."));
+        }
+        return decryptContent(note.getContent(), key);
+    }
 
-        return notes;
+    /**
+     * Retrieves the content of a note from the database without blocking and decrypts it.
+     * @param id id of the note.
+     * @param key key of the session.
+     * @return future of the decrypted content, completed exceptionally with an {@link UncheckedIOException} if the
+     * note can not be retrieved.
+     */
+    private CompletableFuture<String> fetchContentAsync(String id, AesKey key) {
+        return noteDAO.getAsync(id).thenApply(note -> {
+            if (note == null || note.getContent() == null) {
+                throw new UncheckedIOException(new IOException("Note " + id + " was not found."));
+            }
+            return decryptContent(note.getContent(), key);
+        });
     }
 
     /**
@@ -312,6 +618,21 @@ public class ControllerImpl implements Controller {
         catch (InterruptedException e) {
             throw new InterruptedException("Request was interrupted.");
         }
+        noteStore.remove(note.getId().toString());
+    }
+
+    /**
+     * Deletes provided note from the database without blocking.
+     * @param note note to be removed.
+     * @return future completed when the note is removed, completed exceptionally if deleting fails.
+     */
+    @Override
+    public CompletableFuture<Void> deleteFromDatabaseAsync(Note note) {
+        if (note == null) {
+            return CompletableFuture.failedFuture(new InvalidNoteException("Invalid note."));
+        }
+        String id = note.getId().toString();
+        return noteDAO.deleteAsync(note).thenRun(() -> noteStore.remove(id));
     }
 
     /**
@@ -429,6 +750,9 @@ public class ControllerImpl implements Controller {
      */
     @Override
     public void setState(SaveState state) {
+        if (this.state != null && this.state != state) {
+            this.state.leave();
+        }
         this.state = state;
     }
 
@@ -0,0 +1,241 @@
+package noteApp.model;
+
+import java.util.Arrays;
+
+/**
+ * Lzw compression of bytes with variable width codes.
+ * <p>
+ * The output starts with a two byte header: {@link #MAGIC} and the largest code width. It is followed by the codes
+ * packed least significant bit first. Codes start 9 bits wide and grow by one bit whenever the dictionary needs it,
+ * up to 16 bits. When all 65536 codes are in use the {@link #CLEAR} code is written and the dictionary starts over,
+ * so memory use stays bounded however long the input is.
+ * <p>
+ * {@link #MAGIC} can not begin valid UTF-8, so compressed text is told apart from uncompressed text by its first
+ * byte.
+ */
+public class BinaryLzw {
+    /**
+     * First byte of the compressed format.
+     */
+    public static final byte MAGIC = (byte) 0xFF;
+
+    /**
+     * Largest code width in bits.
+     */
+    static final int MAX_BITS = 16;
+
+    /**
+     * Code that resets the dictionary.
+     */
+    private static final int CLEAR = 256;
+
+    /**
+     * First code given to a dictionary entry.
+     */
+    private static final int FIRST_CODE = 257;
+
+    private static final int MIN_BITS = 9;
+    private static final int MAX_CODES = 1 << MAX_BITS;
+    private static final int HEADER_SIZE = 2;
+
+    /**
+     * Size of the encoder's hash table. Twice the number of codes, so the table is never more than half full.
+     */
+    private static final int TABLE_SIZE = 2 * MAX_CODES;
+
+    /**
+     * Creates BinaryLzw object.
+     */
+    public BinaryLzw() {
+    }
+
+    /**
+     * Returns true if the given bytes start with the header of the compressed format.
+     * @param data bytes to check.
+     * @return true if the bytes are compressed.
+     */
+    public static boolean isCompressed(byte[] data) {
+        return data.length >= HEADER_SIZE && data[0] == MAGIC;
+    }
+
+    /**
+     * Compresses the given bytes.
+     * @param input bytes to compress.
+     * @return compressed bytes.
+     */
+    public byte[] compress(byte[] input) {
+        BitWriter out = new BitWriter(input.length / 2 + 16);
+        out.bytes[0] = MAGIC;
+        out.bytes[1] = MAX_BITS;
+        out.length = HEADER_SIZE;
+        if (input.length == 0) {
+            return out.toByteArray();
+        }
+
+        // Entry (prefix code, byte) is stored at the slot of its key, a key of -1 marks an empty slot
+        int[] keys = new int[TABLE_SIZE];
+        char[] codes = new char[TABLE_SIZE];
+        Arrays.fill(keys, -1);
+        int next = FIRST_CODE;
+
+        int phrase = input[0] & 0xff;
+        for (int i = 1; i < input.length; i++) {
+            int b = input[i] & 0xff;
+            int key = phrase << 8 | b;
+            int slot = hash(key);
+            while (keys[slot] != -1 && keys[slot] != key) {
+                slot = (slot + 1) & (TABLE_SIZE - 1);
+            }
+            if (keys[slot] == key) {
+                phrase = codes[slot];
+                continue;
+            }
+            out.write(phrase, width(next));
+            if (next < MAX_CODES) {
+                keys[slot] = key;
+                codes[slot] = (char) next++;
+            } else {
+                out.write(CLEAR, MAX_BITS);
+                Arrays.fill(keys, -1);
+                next = FIRST_CODE;
+            }
+            phrase = b;
+        }
+        out.write(phrase, width(next));
+        return out.toByteArray();
+    }
+
+    /**
+     * Extracts bytes compressed with {@link #compress(byte[])}.
+     * @param input compressed bytes.
+     * @return extracted bytes.
+     * @throws IllegalArgumentException if the input is not in the compressed format.
+     */
+    public byte[] extract(byte[] input) {
+        if (!isCompressed(input) || input[1] != MAX_BITS) {
+            throw new IllegalArgumentException("Not lzw compressed data");
+        }
+        // Entry k is the string of code prefix[k] followed by suffix[k]
+        int[] prefix = new int[MAX_CODES];
+        byte[] suffix = new byte[MAX_CODES];
+        int[] entryLength = new int[MAX_CODES];
+        int next = FIRST_CODE;
+        int oldPhrase = -1;
+        int oldLength = 0;
+
+        byte[] out = new byte[Math.max(input.length * 2, 64)];
+        int outLength = 0;
+        long bits = (long) (input.length - HEADER_SIZE) * 8;
+        long bitPos = (long) HEADER_SIZE * 8;
+        long end = bitPos + bits;
+        while (true) {
+            int width = width(oldPhrase == -1 ? next : Math.min(next + 1, MAX_CODES));
+            if (end - bitPos < width) {
+                break;
+            }
+            int code = read(input, bitPos, width);
+            bitPos += width;
+            if (code == CLEAR) {
+                next = FIRST_CODE;
+                oldPhrase = -1;
+                continue;
+            }
+
+            int phraseLength;
+            if (code < CLEAR) {
+                phraseLength = 1;
+            } else if (code < next) {
+                phraseLength = entryLength[code];
+            } else if (code == next && oldPhrase != -1) {
+                phraseLength = oldLength + 1;
+            } else {
+                throw new IllegalArgumentException("Invalid lzw code " + code);
+            }
+            if (outLength + phraseLength > out.length) {
+                out = Arrays.copyOf(out, Math.max(out.length * 2, outLength + phraseLength));
+            }
+
+            if (oldPhrase != -1 && next < MAX_CODES) {
+                prefix[next] = oldPhrase;
+                entryLength[next] = oldLength + 1;
+                if (code == next) {
+                    suffix[next] = out[outLength - oldLength];
+                }
+            }
+            int node = code;
+            for (int pos = outLength + phraseLength - 1; node > CLEAR; pos--) {
+                out[pos] = suffix[node];
+                node = prefix[node];
+            }
+            out[outLength] = (byte) node;
+            if (oldPhrase != -1 && next < MAX_CODES) {
+                suffix[next++] = (byte) node;
+            }
+            outLength += phraseLength;
+            oldPhrase = code;
+            oldLength = phraseLength;
+        }
+        return Arrays.copyOf(out, outLength);
+    }
+
+    /**
+     * Returns the width of the codes written while the next free code is the given one.
+     */
+    private static int width(int next) {
+        return Math.max(MIN_BITS, 32 - Integer.numberOfLeadingZeros(next - 1));
+    }
+
+    /**
+     * Spreads the bits of a dictionary key over the hash table.
+     */
+    private static int hash(int key) {
+        return (key * 0x9E3779B9) >>> (32 - Integer.numberOfTrailingZeros(TABLE_SIZE));
+    }
+
+    /**
+     * Reads a code of the given width starting from the given bit.
+     */
+    private static int read(byte[] input, long bitPos, int width) {
+        int index = (int) (bitPos >>> 3);
+        int shift = (int) (bitPos & 7);
+        int value = 0;
+        for (int i = 0; i * 8 < shift + width; i++) {
+            value |= (input[index + i] & 0xff) << (i * 8);
+        }
+        return (value >>> shift) & ((1 << width) - 1);
+    }
+
+    /**
+     * Growing byte array that codes are packed into.
+     */
+    private static class BitWriter {
+        private byte[] bytes;
+        private int length;
+        private int buffer;
+        private int bufferBits;
+
+        BitWriter(int capacity) {
+            bytes = new byte[Math.max(capacity, HEADER_SIZE)];
+        }
+
+        void write(int code, int width) {
+            buffer |= code << bufferBits;
+            bufferBits += width;
+            while (bufferBits >= 8) {
+                if (length == bytes.length) {
+                    bytes = Arrays.copyOf(bytes, bytes.length * 2);
+                }
+                bytes[length++] = (byte) buffer;
+                buffer >>>= 8;
+                bufferBits -= 8;
+            }
+        }
+
+        byte[] toByteArray() {
+            if (bufferBits > 0) {
+                write(0, 8 - bufferBits);
+            }
+            return Arrays.copyOf(bytes, length);
+        }
+    }
+}
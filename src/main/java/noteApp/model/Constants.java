@@ -5,7 +5,8 @@ package noteApp.model;
  */
 public class Constants {
 	/**
-	 * Backend url constant
+	 * Backend url constant. Can be pointed to another backend, for example a local one, with the system property
+	 * noteApp.baseUrl
 	 */
-	public static final String BASEURL = "http://10.114.32.55:8090";
+	public static final String BASEURL = System.getProperty("noteApp.baseUrl", "http://10.114.32.55:8090");
 }
@@ -4,12 +4,37 @@ import javafx.stage.FileChooser;
 import noteApp.controller.Controller;
 import noteApp.model.note.Note;
 import noteApp.model.savestate.SaveProperties;
+import noteApp.utils.note.NoteCodec;
 import org.fxmisc.richtext.InlineCssTextArea;
 import org.fxmisc.richtext.model.StyledDocument;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.prefs.Preferences;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
 import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
 import java.util.zip.InflaterInputStream;
 
 
@@ -22,6 +47,78 @@ import java.util.zip.InflaterInputStream;
  */
 public class Filehandler {
 
+    /**
+     * Size of the buffers used when compressing and decompressing files.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Suffix of the files written by {@link #compressDirectoryAsync(Path, Path)}.
+     */
+    public static final String COMPRESSED_SUFFIX = ".deflate";
+
+    /**
+     * Copy buffer of each thread, reused for every file the thread compresses or decompresses.
+     */
+    private static final ThreadLocal<byte[]> COPY_BUFFER = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+
+    /**
+     * Executor of the asynchronous file operations. One thread per core, as compressing is bound by the cpu. The
+     * threads are daemons so unfinished work does not keep the application running.
+     */
+    private static final ExecutorService IO_EXECUTOR = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), runnable -> {
+                Thread thread = new Thread(runnable, "filehandler-io");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    /**
+     * Name of the file in the notes folder that lists the note files read into the local note store, with the size,
+     * modification time and note ids of each, so unchanged files are not decoded again when the store is opened.
+     */
+    static final String FILE_INDEX = "notes.files";
+
+    /**
+     * Time a note has to be left unchanged before {@link #saveLocalLater(Note)} saves it, the same idle time the auto
+     * save of the online state waits.
+     */
+    public static final long LOCAL_SAVE_DELAY_MILLIS = 2000;
+
+    /**
+     * Timer of the saves waiting in {@link #saveLocalLater(Note)}. The thread is a daemon, waiting saves are written
+     * by {@link #flushLocalSaves()} before the application exits.
+     */
+    private static final ScheduledExecutorService SAVE_TIMER = Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+                Thread thread = new Thread(runnable, "local-save-timer");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    /**
+     * Saves waiting in {@link #saveLocalLater(Note)} by note id. Guarded by itself.
+     */
+    private static final Map<String, DelayedSave> DELAYED_SAVES = new HashMap<>();
+
+    /**
+     * Notes folders whose local note store could not be opened, with the reason. They are not tried again while the
+     * application runs, and the note files of the folder are used instead.
+     */
+    private static final Map<Path, IOException> FAILED_STORES = new ConcurrentHashMap<>();
+
+    /**
+     * Note files last written by this process, with their size, modification time and note ids in the format of the
+     * {@link #FILE_INDEX}, or {@link #DELETED} for files this process deleted. Used to tell the
+     * {@link NoteFolderWatcher} events of the application's own writes from changes made by other programs.
+     */
+    private static final Map<Path, String> OWN_WRITES = new ConcurrentHashMap<>();
+
+    /**
+     * Entry of {@link #OWN_WRITES} for a deleted file
+     */
+    private static final String DELETED = "";
+
     /**
      * User preferences
      */
@@ -38,6 +135,10 @@ public class Filehandler {
      * Savepath for filesaving
      */
     private String path;
+    /**
+     * Files of the notes folder skipped by the last read because they are not note files
+     */
+    private List<Path> skippedFiles = Collections.emptyList();
     /**
      * Controller object to be used in saving operations
      */
@@ -99,15 +200,23 @@ public class Filehandler {
      * @throws IOException invalid path
      */
     public void compressFile(String fileToCompress, String compressFile) throws IOException {
-        try (
-                FileInputStream fin = new FileInputStream(fileToCompress);
-                FileOutputStream fout = new FileOutputStream(compressFile);
-                DeflaterOutputStream dos = new DeflaterOutputStream(fout)) {
-            int i;
-            while ((i = fin.read()) != -1) {
-                dos.write((byte) i);
-                dos.flush();
-            }
+        compressFile(Path.of(fileToCompress), Path.of(compressFile));
+    }
+
+    /**
+     * Compresses a file into a zlib stream. The file is read and deflated in blocks, so it is never held in memory.
+     *
+     * @param source file to be compressed
+     * @param target file to write the compressed data to
+     * @throws IOException if reading or writing fails
+     */
+    public void compressFile(Path source, Path target) throws IOException {
+        Deflater deflater = new Deflater();
+        try (InputStream in = Files.newInputStream(source);
+             OutputStream out = new DeflaterOutputStream(Files.newOutputStream(target), deflater, BUFFER_SIZE)) {
+            copy(in, out);
+        } finally {
+            deflater.end();
         }
     }
 
@@ -119,18 +228,92 @@ public class Filehandler {
      * @throws IOException invalid path
      */
     public void decompressFile(String fileToDeCompress, String deCompressFile) throws IOException {
-        try (
-                FileInputStream fin = new FileInputStream(fileToDeCompress);
-                InflaterInputStream in = new InflaterInputStream(fin);
-                FileOutputStream fout = new FileOutputStream(deCompressFile)) {
-            int i;
-            while ((i = in.read()) != -1) {
-                fout.write((byte) i);
-                fout.flush();
+        decompressFile(Path.of(fileToDeCompress), Path.of(deCompressFile));
+    }
+
+    /**
+     * Decompresses a file written by {@link #compressFile(Path, Path)}.
+     *
+     * @param source compressed file
+     * @param target file to write the decompressed data to
+     * @throws IOException if reading or writing fails or the file is not a zlib stream
+     */
+    public void decompressFile(Path source, Path target) throws IOException {
+        Inflater inflater = new Inflater();
+        try (InputStream in = new InflaterInputStream(Files.newInputStream(source), inflater, BUFFER_SIZE);
+             OutputStream out = Files.newOutputStream(target)) {
+            copy(in, out);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Compresses a file on a background thread.
+     *
+     * @param source file to be compressed
+     * @param target file to write the compressed data to
+     * @return future completed when the file is written, or completed exceptionally with an
+     * {@link UncheckedIOException} if compressing fails
+     */
+    public CompletableFuture<Void> compressFileAsync(Path source, Path target) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                compressFile(source, target);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
             }
+        }, IO_EXECUTOR);
+    }
 
+    /**
+     * Decompresses a file on a background thread.
+     *
+     * @param source compressed file
+     * @param target file to write the decompressed data to
+     * @return future completed when the file is written, or completed exceptionally with an
+     * {@link UncheckedIOException} if decompressing fails
+     */
+    public CompletableFuture<Void> decompressFileAsync(Path source, Path target) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                decompressFile(source, target);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, IO_EXECUTOR);
+    }
+
+    /**
+     * Compresses every file of a directory, for example the notes folder, into another directory. The files are
+     * compressed in parallel and named after the original with {@link #COMPRESSED_SUFFIX} added.
+     *
+     * @param directory       directory whose files are compressed
+     * @param targetDirectory directory to write the compressed files to, created if missing
+     * @return future completed when every file is written, or completed exceptionally if any of them fails
+     */
+    public CompletableFuture<Void> compressDirectoryAsync(Path directory, Path targetDirectory) {
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(directory)) {
+            files = stream.filter(Files::isRegularFile).collect(Collectors.toList());
+            Files.createDirectories(targetDirectory);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
         }
+        return CompletableFuture.allOf(files.stream()
+                .map(file -> compressFileAsync(file, targetDirectory.resolve(file.getFileName() + COMPRESSED_SUFFIX)))
+                .toArray(CompletableFuture[]::new));
+    }
 
+    /**
+     * Copies a stream into another through the buffer of the current thread.
+     */
+    private static void copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = COPY_BUFFER.get();
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+        }
     }
 
 
@@ -161,14 +344,19 @@ public class Filehandler {
             selectedFile = new File(note.getTitle());
         }
         if (selectedFile != null) {
-            try {
-                FileOutputStream fos = new FileOutputStream(selectedFile);
-                ObjectOutputStream oos = new ObjectOutputStream(fos);
-                oos.writeObject(note);
-                oos.close();
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(selectedFile))) {
+                NoteCodec.write(out, note);
             } catch (IOException e) {
                 e.printStackTrace();
             }
+            if (isInNotesFolder(selectedFile)) {
+                try {
+                    recordOwnWrite(selectedFile.toPath(), note.getId().toString());
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+                saveLocal(note);
+            }
         }
     }
 
@@ -196,17 +384,16 @@ public class Filehandler {
             selectedFile = new File(name);
         }
         if (selectedFile != null) {
-            try {
-                FileInputStream fis = new FileInputStream(selectedFile);
-                ObjectInputStream ois = new ObjectInputStream(fis);
-                Note note = (Note) ois.readObject();
+            try (NoteCodec.Reader reader = new NoteCodec.Reader(new FileInputStream(selectedFile))) {
+                Note note = reader.read();
+                if (note == null) {
+                    throw new EOFException("No note in " + selectedFile);
+                }
                 DocumentHandler.decode(area, note.getContent());
                 if (controller != null) {
                     controller.addToNotesList(note);
                 }
-
-                fis.close();
-            } catch (IOException | ClassNotFoundException e) {
+            } catch (IOException e) {
                 e.printStackTrace();
                 controller.getMlc().fileFormatError();
             }
@@ -224,13 +411,13 @@ public class Filehandler {
     public Note decodeFiles(File file) {
         //checks if user has set a default directory
         if (file != null) {
-            try {
-                FileInputStream fis = new FileInputStream(file);
-                ObjectInputStream ois = new ObjectInputStream(fis);
-                return (Note) ois.readObject();
-            } catch (IOException | ClassNotFoundException e) {
+            try (NoteCodec.Reader reader = new NoteCodec.Reader(new FileInputStream(file))) {
+                return reader.read();
+            } catch (IOException e) {
                 e.printStackTrace();
-                controller.getMlc().fileFormatError();
+                if (controller != null) {
+                    controller.getMlc().fileFormatError();
+                }
             }
         }
         return null;
@@ -242,6 +429,538 @@ public class Filehandler {
      */
     public void removeFile(Note note) {
         File f = new File(SaveProperties.getPath() + "/" + note.getTitle() + ".txt");
+        recordOwnDelete(f.toPath());
         f.delete();
+        deleteLocal(note.getId().toString());
+    }
+
+    /**
+     * Returns the local note store of the folder the user has set in the settings, opening it the first time. Note
+     * files of the folder that were added, changed or deleted since the store was last opened are brought into it.
+     * A folder whose store can not be opened is not tried again, see {@link #getLocalStoreError()}.
+     *
+     * @return the store, null if no folder is set or the store can not be opened
+     */
+    public LocalNoteStore getLocalStore() {
+        Path directory = notesFolder();
+        if (directory == null || FAILED_STORES.containsKey(directory)) {
+            return null;
+        }
+        try {
+            return LocalNoteStore.open(directory, store -> reconcile(store, directory));
+        } catch (IOException e) {
+            e.printStackTrace();
+            FAILED_STORES.put(directory, e);
+            return null;
+        }
+    }
+
+    /**
+     * Returns the files of the notes folder that were skipped by the last {@link #readLocalNotes()} because they are
+     * not note files, so they can be reported to the user together.
+     *
+     * @return skipped files, empty if there were none or the files were read before
+     */
+    public List<Path> getSkippedFiles() {
+        return skippedFiles;
+    }
+
+    /**
+     * Returns the reason the local note store of the notes folder could not be opened. The notes are then read from
+     * and saved to the note files of the folder.
+     *
+     * @return the error, null if the store is open or there is no folder
+     */
+    public IOException getLocalStoreError() {
+        Path directory = notesFolder();
+        return directory == null ? null : FAILED_STORES.get(directory);
+    }
+
+    /**
+     * Returns the notes saved on the user's hard drive.
+     *
+     * @return notes of the local note store, or of the note files if the store can not be opened, empty if there is
+     * no folder
+     */
+    public List<Note> readLocalNotes() {
+        skippedFiles = Collections.emptyList();
+        LocalNoteStore store = getLocalStore();
+        if (store != null) {
+            return store.getNotes();
+        }
+        Path directory = notesFolder();
+        if (directory == null) {
+            return Collections.emptyList();
+        }
+        try {
+            DecodedFiles decoded = decodeDirectoryAsync(directory).join();
+            skippedFiles = decoded.getSkipped();
+            // A note saved without the store can also have an older file named by its title, the newest one is kept
+            Map<String, Note> newest = new LinkedHashMap<>();
+            for (Note note : decoded.getNotes()) {
+                newest.merge(note.getId().toString(), note,
+                        (kept, other) -> other.getDateMillis() > kept.getDateMillis() ? other : kept);
+            }
+            return new ArrayList<>(newest.values());
+        } catch (CompletionException e) {
+            e.getCause().printStackTrace();
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Saves a note to the local note store, or to a note file named by its id if the store can not be opened. The
+     * note is written in the background.
+     *
+     * @param note note to be saved
+     * @return future completed when the note has been written or writing has failed
+     */
+    public CompletableFuture<Void> saveLocal(Note note) {
+        cancelDelayedSave(note.getId().toString());
+        LocalNoteStore store = getLocalStore();
+        if (store != null) {
+            return store.put(note).exceptionally(this::printError);
+        }
+        Path directory = notesFolder();
+        if (directory == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        Note copy = new Note(note);
+        copy.setContent(note.getContent());
+        return CompletableFuture.runAsync(() -> {
+            Path file = fallbackFile(directory, copy.getId().toString());
+            try {
+                try (OutputStream out = Files.newOutputStream(file)) {
+                    NoteCodec.write(out, copy);
+                }
+                recordOwnWrite(file, copy.getId().toString());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, IO_EXECUTOR).exceptionally(this::printError);
+    }
+
+    /**
+     * Saves a note with {@link #saveLocal(Note)} once it has been left unchanged for {@link #LOCAL_SAVE_DELAY_MILLIS},
+     * so a note that is being typed is not written on every key press. The note is copied, and a later call for the
+     * same note replaces the copy and starts the wait again.
+     *
+     * @param note note to be saved
+     */
+    public void saveLocalLater(Note note) {
+        Note copy = new Note(note);
+        copy.setContent(note.getContent());
+        String id = copy.getId().toString();
+        synchronized (DELAYED_SAVES) {
+            DelayedSave previous = DELAYED_SAVES.remove(id);
+            if (previous != null) {
+                previous.timer.cancel(false);
+            }
+            DelayedSave save = new DelayedSave(this, copy);
+            save.timer = SAVE_TIMER.schedule(() -> {
+                synchronized (DELAYED_SAVES) {
+                    if (!DELAYED_SAVES.remove(id, save)) {
+                        return;
+                    }
+                }
+                saveLocal(copy);
+            }, LOCAL_SAVE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+            DELAYED_SAVES.put(id, save);
+        }
+    }
+
+    /**
+     * Saves the notes waiting in {@link #saveLocalLater(Note)} now. Called before the application exits or leaves
+     * the offline state.
+     *
+     * @return future completed when the notes have been written or writing has failed
+     */
+    public static CompletableFuture<Void> flushLocalSaves() {
+        List<DelayedSave> saves;
+        synchronized (DELAYED_SAVES) {
+            saves = new ArrayList<>(DELAYED_SAVES.values());
+            DELAYED_SAVES.clear();
+        }
+        return CompletableFuture.allOf(saves.stream()
+                .peek(save -> save.timer.cancel(false))
+                .map(save -> save.filehandler.saveLocal(save.note))
+                .toArray(CompletableFuture<?>[]::new));
+    }
+
+    private static void cancelDelayedSave(String id) {
+        synchronized (DELAYED_SAVES) {
+            DelayedSave save = DELAYED_SAVES.remove(id);
+            if (save != null) {
+                save.timer.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Removes a note from the local note store, or its note file if the store can not be opened. The removal is
+     * written in the background. A save of the note still waiting in {@link #saveLocalLater(Note)} is dropped.
+     *
+     * @param id id of the note to be removed
+     */
+    public void deleteLocal(String id) {
+        cancelDelayedSave(id);
+        LocalNoteStore store = getLocalStore();
+        if (store != null) {
+            store.delete(id).exceptionally(this::printError);
+            return;
+        }
+        Path directory = notesFolder();
+        if (directory != null) {
+            CompletableFuture.runAsync(() -> {
+                try {
+                    Path file = fallbackFile(directory, id);
+                    recordOwnDelete(file);
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, IO_EXECUTOR).exceptionally(this::printError);
+        }
+    }
+
+    /**
+     * Returns the file a note is saved to when the local note store can not be opened. Files are named by the note
+     * id, so notes with the same title do not overwrite each other and renaming a note does not leave its old file.
+     */
+    private static Path fallbackFile(Path directory, String id) {
+        return directory.resolve(id + ".txt");
+    }
+
+    /**
+     * Remembers a note file as this process has just written it.
+     */
+    private static void recordOwnWrite(Path file, String id) throws IOException {
+        OWN_WRITES.put(file.toAbsolutePath().normalize(), fileStamp(file) + ":" + id);
+    }
+
+    /**
+     * Remembers that this process is deleting a note file.
+     */
+    private static void recordOwnDelete(Path file) {
+        OWN_WRITES.put(file.toAbsolutePath().normalize(), DELETED);
+    }
+
+    /**
+     * Returns the note ids of a note file if the file is still as this process last wrote it, or empty if this
+     * process deleted it and it has not been created again.
+     *
+     * @param file note file
+     * @return note ids of the file, null if it was not written by this process or has been changed since
+     */
+    static List<String> ownWriteIds(Path file) {
+        String entry = OWN_WRITES.get(file.toAbsolutePath().normalize());
+        if (entry == null) {
+            return null;
+        }
+        if (entry.equals(DELETED)) {
+            return Files.exists(file) ? null : Collections.emptyList();
+        }
+        try {
+            return entry.startsWith(fileStamp(file) + ":") ? fileIndexIds(entry) : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Saves the notes of note files changed by other programs to the local note store. Without a store the files
+     * already hold the notes, so nothing is written.
+     *
+     * @param changed    notes read from the changed files
+     * @param deletedIds ids of the notes whose files were deleted
+     */
+    public void saveFolderChanges(List<Note> changed, List<String> deletedIds) {
+        LocalNoteStore store = getLocalStore();
+        if (store != null) {
+            changed.forEach(note -> store.put(note).exceptionally(this::printError));
+            deletedIds.forEach(id -> store.delete(id).exceptionally(this::printError));
+        }
+    }
+
+    /**
+     * Starts watching the folder the user has set in the settings for note files changed by other programs.
+     *
+     * @param listener receives the notes read from the changed files, called on the watcher thread
+     * @return the watcher, null if no folder is set or it can not be watched
+     */
+    public NoteFolderWatcher watchNotesFolder(NoteFolderWatcher.Listener listener) {
+        String folder = SaveProperties.getPath();
+        if (folder == null || folder.equals("") || !Files.isDirectory(Path.of(folder))) {
+            return null;
+        }
+        try {
+            Path directory = Path.of(folder);
+            return NoteFolderWatcher.start(directory, () -> noteFileIds(directory), listener);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private Void printError(Throwable e) {
+        e.printStackTrace();
+        return null;
+    }
+
+    private static boolean isInNotesFolder(File file) {
+        String folder = SaveProperties.getPath();
+        File parent = file.getAbsoluteFile().getParentFile();
+        return folder != null && !folder.equals("") && parent != null
+                && parent.toPath().normalize().equals(Path.of(folder).toAbsolutePath().normalize());
+    }
+
+    /**
+     * Reads the note files of a directory, for example the notes folder when its {@link LocalNoteStore} can not be
+     * opened. The files are decoded in parallel on the file threads. Files that are not notes are skipped and
+     * returned with the notes, so they can be reported together.
+     *
+     * @param directory directory whose files are read
+     * @return future of the notes and the skipped files, or completed exceptionally if the directory can not be listed
+     */
+    public CompletableFuture<DecodedFiles> decodeDirectoryAsync(Path directory) {
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(directory)) {
+            files = stream.filter(Files::isRegularFile)
+                    .filter(file -> !isStoreFile(file))
+                    .sorted()
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return decodeFilesAsync(files).thenApply(decoded -> {
+            List<Note> notes = new ArrayList<>(files.size());
+            List<Path> skipped = new ArrayList<>();
+            decoded.forEach((file, fileNotes) -> {
+                if (fileNotes != null) {
+                    notes.addAll(fileNotes);
+                } else {
+                    skipped.add(file);
+                }
+            });
+            return new DecodedFiles(notes, skipped);
+        });
+    }
+
+    /**
+     * Decodes note files in parallel on the file threads.
+     *
+     * @return future of the notes of every file in the order of the files, null for a file that is not a note file
+     */
+    private static CompletableFuture<Map<Path, List<Note>>> decodeFilesAsync(List<Path> files) {
+        List<CompletableFuture<List<Note>>> decoded = files.stream()
+                .map(file -> CompletableFuture.supplyAsync(() -> readNoteFile(file), IO_EXECUTOR))
+                .collect(Collectors.toList());
+        return CompletableFuture.allOf(decoded.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+            Map<Path, List<Note>> notes = new LinkedHashMap<>();
+            for (int i = 0; i < files.size(); i++) {
+                notes.put(files.get(i), decoded.get(i).join());
+            }
+            return notes;
+        });
+    }
+
+    /**
+     * Brings the note files of the folder into the local note store when it is opened. Only files that are new or
+     * changed since the {@link #FILE_INDEX} was written are decoded, and their notes are saved if the store does not
+     * have them or has an older version. Notes of files that were deleted are removed from the store. Errors are
+     * printed and leave the store as it is.
+     */
+    private void reconcile(LocalNoteStore store, Path directory) {
+        try {
+            Properties index = readFileIndex(directory);
+            Properties updated = new Properties();
+            Map<Path, String> stamps = new LinkedHashMap<>();
+            try (Stream<Path> stream = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) stream.filter(Files::isRegularFile)
+                        .filter(file -> !isStoreFile(file)).sorted()::iterator) {
+                    String name = file.getFileName().toString();
+                    String stamp = fileStamp(file);
+                    String entry = index.getProperty(name);
+                    if (entry != null && entry.startsWith(stamp + ":")) {
+                        updated.setProperty(name, entry);
+                    } else {
+                        stamps.put(file, stamp);
+                    }
+                }
+            }
+            Map<String, Note> stored = new HashMap<>();
+            store.getNotes().forEach(note -> stored.put(note.getId().toString(), note));
+            Map<Path, List<Note>> decoded = decodeFilesAsync(new ArrayList<>(stamps.keySet())).join();
+            List<Path> skipped = new ArrayList<>();
+            for (Map.Entry<Path, List<Note>> file : decoded.entrySet()) {
+                if (file.getValue() == null) {
+                    skipped.add(file.getKey());
+                    continue;
+                }
+                List<String> ids = new ArrayList<>();
+                for (Note note : file.getValue()) {
+                    String id = note.getId().toString();
+                    ids.add(id);
+                    Note current = stored.get(id);
+                    if (current == null || current.getDateMillis() < note.getDateMillis()) {
+                        store.put(note).exceptionally(this::printError);
+                    }
+                }
+                String name = file.getKey().getFileName().toString();
+                updated.setProperty(name, stamps.get(file.getKey()) + ":" + String.join(",", ids));
+            }
+            for (String name : index.stringPropertyNames()) {
+                if (!updated.containsKey(name) && !Files.exists(directory.resolve(name))) {
+                    fileIndexIds(index.getProperty(name))
+                            .forEach(id -> store.delete(id).exceptionally(this::printError));
+                }
+            }
+            writeFileIndex(directory, updated);
+            skippedFiles = skipped;
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Returns the note ids of each note file of a folder. Ids of files not changed since the {@link #FILE_INDEX} was
+     * written are taken from it, and the other files are decoded in parallel.
+     */
+    private static Map<Path, List<String>> noteFileIds(Path directory) {
+        Map<Path, List<String>> ids = new HashMap<>();
+        List<Path> unknown = new ArrayList<>();
+        try {
+            Properties index = readFileIndex(directory);
+            try (Stream<Path> stream = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) stream.filter(Files::isRegularFile)
+                        .filter(file -> !isStoreFile(file))::iterator) {
+                    String stamp = fileStamp(file);
+                    String entry = index.getProperty(file.getFileName().toString());
+                    if (entry != null && entry.startsWith(stamp + ":")) {
+                        ids.put(file, fileIndexIds(entry));
+                    } else {
+                        unknown.add(file);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        decodeFilesAsync(unknown).join().forEach((file, notes) -> {
+            if (notes != null) {
+                ids.put(file, notes.stream().map(note -> note.getId().toString()).collect(Collectors.toList()));
+            }
+        });
+        return ids;
+    }
+
+    /**
+     * Reads the {@link #FILE_INDEX} of a folder, empty if it has none.
+     */
+    private static Properties readFileIndex(Path directory) throws IOException {
+        Properties index = new Properties();
+        Path file = directory.resolve(FILE_INDEX);
+        if (Files.exists(file)) {
+            try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                index.load(in);
+            }
+        }
+        return index;
+    }
+
+    private static void writeFileIndex(Path directory, Properties index) throws IOException {
+        Path temp = directory.resolve(FILE_INDEX + ".tmp");
+        try (Writer out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            index.store(out, null);
+        }
+        Files.move(temp, directory.resolve(FILE_INDEX), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Returns the size and modification time of a file as they are written to the {@link #FILE_INDEX}.
+     */
+    private static String fileStamp(Path file) throws IOException {
+        return Files.size(file) + ":" + Files.getLastModifiedTime(file).toMillis();
+    }
+
+    /**
+     * Returns the note ids of an entry of the {@link #FILE_INDEX}.
+     */
+    private static List<String> fileIndexIds(String entry) {
+        String ids = entry.substring(entry.indexOf(':', entry.indexOf(':') + 1) + 1);
+        return ids.isEmpty() ? Collections.emptyList() : Arrays.asList(ids.split(","));
+    }
+
+    /**
+     * Returns the folder the user has set in the settings, null if none is set or it is not a folder.
+     */
+    private static Path notesFolder() {
+        String folder = SaveProperties.getPath();
+        if (folder == null || folder.equals("") || !Files.isDirectory(Path.of(folder))) {
+            return null;
+        }
+        return Path.of(folder).toAbsolutePath().normalize();
+    }
+
+    /**
+     * Decodes the notes of a note file, null if the file is not a note file.
+     */
+    static List<Note> readNoteFile(Path file) {
+        try (InputStream in = Files.newInputStream(file)) {
+            return NoteCodec.readAll(in);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns true for the files of a {@link LocalNoteStore} and the {@link #FILE_INDEX}, which are not note files.
+     */
+    static boolean isStoreFile(Path file) {
+        String name = file.getFileName().toString();
+        return name.startsWith(LocalNoteStore.SNAPSHOT_FILE) || name.startsWith(LocalNoteStore.LOG_FILE)
+                || name.startsWith(FILE_INDEX);
+    }
+
+    /**
+     * Note waiting to be saved by {@link #saveLocalLater(Note)} and its timer.
+     */
+    private static class DelayedSave {
+        private final Filehandler filehandler;
+        private final Note note;
+        private ScheduledFuture<?> timer;
+
+        DelayedSave(Filehandler filehandler, Note note) {
+            this.filehandler = filehandler;
+            this.note = note;
+        }
+    }
+
+    /**
+     * Notes read by {@link #decodeDirectoryAsync(Path)} and the files that were skipped.
+     */
+    public static class DecodedFiles {
+        private final List<Note> notes;
+        private final List<Path> skipped;
+
+        DecodedFiles(List<Note> notes, List<Path> skipped) {
+            this.notes = notes;
+            this.skipped = skipped;
+        }
+
+        /**
+         * @return decoded notes in the order of their files
+         */
+        public List<Note> getNotes() {
+            return notes;
+        }
+
+        /**
+         * @return files that could not be decoded as notes
+         */
+        public List<Path> getSkipped() {
+            return skipped;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,582 @@
+package noteApp.model;
+
+import noteApp.model.note.Note;
+import noteApp.utils.note.NoteCodec;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Store of the notes kept on the user's computer.
+ * <p>
+ * Every change is appended to a log as a checksummed record, so saving a note is one sequential write. Changes made
+ * close together are written with one fsync, and the future of a change completes once it is on the disk. When the
+ * log has grown larger than the notes it describes, the notes are written to a new generation of {@link NoteSnapshot}
+ * and the log is started over. The previous snapshot is deleted once nothing reads from it, as a mapped file can not
+ * be replaced on every platform. Opening the store maps the snapshot and reads its index and
+ * metadata, then reads the log once from start to end. The contents of the notes in the snapshot are read from the
+ * mapping only when a note is opened.
+ * <p>
+ * A record that was not completely written when the program stopped fails its checksum and is dropped with anything
+ * after it, so the store opens to the state of the last completed save. A write that fails while the program runs
+ * is cut off the log, so later saves are not lost behind it. Files are never overwritten in place.
+ *
+ * @see Filehandler#getLocalStore()
+ */
+public final class LocalNoteStore implements Closeable {
+
+    /**
+     * Name of the snapshot files in the directory of the store. Each compaction writes a new generation, named with
+     * its number after this name, and the highest generation is the one in use.
+     */
+    public static final String SNAPSHOT_FILE = "notes.snapshot";
+
+    /**
+     * Name of the log file in the directory of the store.
+     */
+    public static final String LOG_FILE = "notes.log";
+
+    /**
+     * First four bytes of the log, "MNL2".
+     */
+    private static final int MAGIC = 0x4D4E4C32;
+
+    private static final int HEADER_SIZE = 4;
+
+    /**
+     * Size of the length and checksum in front of every record.
+     */
+    private static final int FRAME_SIZE = 8;
+
+    /**
+     * Records longer than this are taken to be corrupted lengths.
+     */
+    private static final int MAX_RECORD_SIZE = 1 << 30;
+
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+
+    /**
+     * The log is not compacted before it is this large, so small libraries are not rewritten on every save.
+     */
+    private static final long MIN_COMPACT_SIZE = 4 << 20;
+
+    /**
+     * Open stores by directory. A directory has only one store, so there is only one writer of its files.
+     */
+    private static final Map<Path, LocalNoteStore> OPEN_STORES = new HashMap<>();
+
+    private final Path directory;
+
+    /**
+     * Current notes by note id, in the order they were first saved.
+     */
+    private final Map<String, Note> notes = new LinkedHashMap<>();
+
+    /**
+     * Changes waiting to be written, in the order they were made. Guarded by this.
+     */
+    private List<Pending> pending = new ArrayList<>();
+    private boolean draining;
+    private boolean closed;
+
+    /**
+     * Set when a failed write could not be cut off the log. Nothing is written after it, as a later record would
+     * follow a torn one and be dropped when the store is opened. Guarded by this.
+     */
+    private IOException failure;
+
+    /**
+     * Writes the changes and compacts the log. The only thread that touches the files after opening.
+     */
+    private final ExecutorService writer;
+
+    private FileChannel log;
+    private long logSize;
+    private long snapshotSize;
+
+    /**
+     * Generation of the snapshot in use, 0 if there is none.
+     */
+    private long snapshotGeneration;
+
+    private LocalNoteStore(Path directory) {
+        this.directory = directory;
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "local-note-store");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Opens the store of a directory, creating it if the directory has none. A store already open for the directory
+     * is returned as it is.
+     *
+     * @param directory directory to keep the store in
+     * @param opened    called with the store when it is opened, before it is returned, for example to bring in notes
+     *                  saved in other files of the directory
+     * @return the store
+     * @throws IOException if the files of the store can not be read or created
+     */
+    public static synchronized LocalNoteStore open(Path directory, Consumer<LocalNoteStore> opened)
+            throws IOException {
+        Path key = directory.toAbsolutePath().normalize();
+        LocalNoteStore store = OPEN_STORES.get(key);
+        if (store != null) {
+            return store;
+        }
+        store = new LocalNoteStore(key);
+        store.load();
+        opened.accept(store);
+        OPEN_STORES.put(key, store);
+        Runtime.getRuntime().addShutdownHook(new Thread(store::close, "local-note-store-close"));
+        return store;
+    }
+
+    /**
+     * Returns copies of the notes in the store.
+     *
+     * @return notes in the order they were first saved
+     */
+    public synchronized List<Note> getNotes() {
+        List<Note> copies = new ArrayList<>(notes.size());
+        for (Note note : notes.values()) {
+            copies.add(new Note(note));
+        }
+        return copies;
+    }
+
+    /**
+     * Adds or replaces a note. The note is copied, so later changes to it are not saved.
+     *
+     * @param note note to save
+     * @return future completed when the note is on the disk, or completed exceptionally if writing fails
+     */
+    public CompletableFuture<Void> put(Note note) {
+        Note copy = new Note(note);
+        copy.setContent(note.getContent());
+        byte[] record = record(PUT, NoteCodec.encode(copy));
+        synchronized (this) {
+            notes.put(copy.getId().toString(), copy);
+            return append(record);
+        }
+    }
+
+    /**
+     * Removes a note.
+     *
+     * @param id id of the note
+     * @return future completed when the removal is on the disk, or completed exceptionally if writing fails
+     */
+    public CompletableFuture<Void> delete(String id) {
+        byte[] record = record(DELETE, id.getBytes(StandardCharsets.UTF_8));
+        synchronized (this) {
+            notes.remove(id);
+            return append(record);
+        }
+    }
+
+    /**
+     * Writes the pending changes and closes the files. Changes made after closing fail.
+     */
+    @Override
+    public void close() {
+        synchronized (LocalNoteStore.class) {
+            OPEN_STORES.remove(directory, this);
+        }
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        writer.execute(() -> {
+            try {
+                log.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+        writer.shutdown();
+        try {
+            writer.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Queues a record to be written by the writer thread. Called holding the lock, so records are written in the
+     * order the notes map was changed.
+     */
+    private CompletableFuture<Void> append(byte[] record) {
+        if (closed) {
+            return CompletableFuture.failedFuture(new IOException("The local note store is closed"));
+        }
+        if (failure != null) {
+            return CompletableFuture.failedFuture(new IOException("The local note store failed", failure));
+        }
+        Pending change = new Pending(record);
+        pending.add(change);
+        if (!draining) {
+            draining = true;
+            writer.execute(this::drain);
+        }
+        return change.future;
+    }
+
+    /**
+     * Writes everything queued with one fsync, until the queue is empty. If the thread leaves early on an error,
+     * draining is started again for the changes still queued, so they are not left waiting.
+     */
+    private void drain() {
+        boolean finished = false;
+        try {
+            while (true) {
+                List<Pending> batch;
+                synchronized (this) {
+                    if (pending.isEmpty()) {
+                        draining = false;
+                        finished = true;
+                        return;
+                    }
+                    batch = pending;
+                    pending = new ArrayList<>();
+                }
+                try {
+                    ByteBuffer[] buffers = new ByteBuffer[batch.size()];
+                    long size = 0;
+                    for (int i = 0; i < buffers.length; i++) {
+                        buffers[i] = ByteBuffer.wrap(batch.get(i).record);
+                        size += buffers[i].remaining();
+                    }
+                    long written = 0;
+                    while (written < size) {
+                        written += log.write(buffers);
+                    }
+                    log.force(false);
+                    logSize += size;
+                    batch.forEach(change -> change.future.complete(null));
+                } catch (IOException | RuntimeException e) {
+                    batch.forEach(change -> change.future.completeExceptionally(e));
+                    rollback(e);
+                }
+                try {
+                    compactIfLarge();
+                } catch (IOException | RuntimeException e) {
+                    // The log is kept as it is and compacting is tried again after the next save
+                    e.printStackTrace();
+                }
+            }
+        } finally {
+            if (!finished) {
+                synchronized (this) {
+                    draining = false;
+                    if (!pending.isEmpty() && !writer.isShutdown()) {
+                        draining = true;
+                        writer.execute(this::drain);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Cuts a partly written batch off the end of the log, so the records written after it are read when the store is
+     * opened. If that fails too, the store is put in a failed state and later changes fail.
+     *
+     * @param cause reason the batch failed
+     */
+    private void rollback(Exception cause) {
+        try {
+            log.truncate(logSize);
+            log.position(logSize);
+            log.force(false);
+        } catch (IOException | RuntimeException e) {
+            e.addSuppressed(cause);
+            e.printStackTrace();
+            List<Pending> failed;
+            synchronized (this) {
+                failure = e instanceof IOException ? (IOException) e : new IOException(e);
+                failed = pending;
+                pending = new ArrayList<>();
+            }
+            IOException error = new IOException("The local note store failed", failure);
+            failed.forEach(change -> change.future.completeExceptionally(error));
+        }
+    }
+
+    /**
+     * Compacts the log once it is larger than the snapshot would be. Only done when nothing is queued, so the
+     * snapshot holds exactly the changes written to the log.
+     */
+    private void compactIfLarge() throws IOException {
+        if (logSize < MIN_COMPACT_SIZE || logSize < snapshotSize) {
+            return;
+        }
+        List<Note> current;
+        synchronized (this) {
+            if (!pending.isEmpty() || failure != null) {
+                return;
+            }
+            current = new ArrayList<>(notes.values());
+        }
+        compact(current);
+    }
+
+    /**
+     * Writes the notes to a snapshot of the next generation, then starts a new log. The snapshot in use stays mapped
+     * while the new one is written, and is deleted once the notes have been switched to the new one. If the program
+     * stops in between, the old log is replayed over the new snapshot, which leaves every note as it was in the
+     * snapshot. Notes not changed while the snapshot was written are switched to read their content from it, so the
+     * contents read from the log are not kept in memory.
+     */
+    private void compact(List<Note> current) throws IOException {
+        long generation = snapshotGeneration + 1;
+        Path snapshot = snapshotFile(generation);
+        Path snapshotTemp = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        long size = NoteSnapshot.write(snapshotTemp, current);
+        Files.move(snapshotTemp, snapshot, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        syncDirectory();
+        snapshotGeneration = generation;
+        snapshotSize = size;
+        List<Note> mapped = NoteSnapshot.read(snapshot);
+        synchronized (this) {
+            for (int i = 0; i < current.size(); i++) {
+                String id = current.get(i).getId().toString();
+                if (notes.get(id) == current.get(i)) {
+                    notes.put(id, mapped.get(i));
+                }
+            }
+        }
+
+        Path logFile = directory.resolve(LOG_FILE);
+        Path logTemp = directory.resolve(LOG_FILE + ".tmp");
+        try (FileChannel out = FileChannel.open(logTemp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(out, header());
+            out.force(true);
+        }
+        // The log is closed before it is replaced, as an open file can not be replaced on every platform. If the
+        // new log can not be put in place the old one is opened again, so saves go on to the log as it was.
+        log.close();
+        boolean replaced = false;
+        try {
+            Files.move(logTemp, logFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            replaced = true;
+            syncDirectory();
+        } finally {
+            log = FileChannel.open(logFile, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            if (replaced) {
+                logSize = HEADER_SIZE;
+            }
+        }
+        deleteOldSnapshots();
+    }
+
+    /**
+     * Reads the snapshot and the log and opens the log for appending.
+     */
+    private void load() throws IOException {
+        snapshotGeneration = latestSnapshotGeneration();
+        Path logFile = directory.resolve(LOG_FILE);
+        if (snapshotGeneration > 0) {
+            Path snapshot = snapshotFile(snapshotGeneration);
+            for (Note note : NoteSnapshot.read(snapshot)) {
+                notes.put(note.getId().toString(), note);
+            }
+            snapshotSize = Files.size(snapshot);
+        }
+        long valid = Files.exists(logFile) ? replay(logFile) : 0;
+        log = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        if (valid < HEADER_SIZE) {
+            log.truncate(0);
+            writeFully(log, header());
+            log.force(true);
+            valid = HEADER_SIZE;
+        } else if (log.size() > valid) {
+            // The end of the log was not completely written, cut it off so new records follow the valid ones
+            log.truncate(valid);
+            log.force(true);
+        }
+        log.position(valid);
+        logSize = valid;
+        deleteOldSnapshots();
+    }
+
+    /**
+     * Returns the file of a snapshot generation.
+     */
+    private Path snapshotFile(long generation) {
+        return directory.resolve(SNAPSHOT_FILE + "." + generation);
+    }
+
+    /**
+     * Returns the generations of the snapshot files in the directory.
+     */
+    private List<Long> snapshotGenerations() throws IOException {
+        List<Long> generations = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SNAPSHOT_FILE + "*")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.matches(Pattern.quote(SNAPSHOT_FILE) + "\\.[0-9]{1,18}")) {
+                    generations.add(Long.parseLong(name.substring(SNAPSHOT_FILE.length() + 1)));
+                }
+            }
+        }
+        return generations;
+    }
+
+    private long latestSnapshotGeneration() throws IOException {
+        return snapshotGenerations().stream().mapToLong(Long::longValue).max().orElse(0);
+    }
+
+    /**
+     * Deletes the snapshots older than the one in use. A snapshot that is still mapped can not be deleted on every
+     * platform, so one that fails to be deleted is left for the next compaction or opening of the store.
+     */
+    private void deleteOldSnapshots() {
+        try {
+            for (long generation : snapshotGenerations()) {
+                if (generation < snapshotGeneration) {
+                    try {
+                        Files.deleteIfExists(snapshotFile(generation));
+                    } catch (IOException e) {
+                        // Still mapped, deleted later
+                    }
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Applies the records of the log to the notes, stopping at the first record that is incomplete or fails its
+     * checksum.
+     *
+     * @return number of bytes of the log up to the end of the last valid record, 0 if the header is not valid
+     */
+    private long replay(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file);
+             DataInputStream data = new DataInputStream(new BufferedInputStream(in, 64 * 1024))) {
+            if (data.readInt() != MAGIC) {
+                System.out.println("Not a note store log: " + file);
+                return 0;
+            }
+            long valid = HEADER_SIZE;
+            CRC32 crc = new CRC32();
+            while (true) {
+                int length;
+                int checksum;
+                byte[] payload;
+                try {
+                    length = data.readInt();
+                    checksum = data.readInt();
+                    if (length <= 0 || length > MAX_RECORD_SIZE) {
+                        break;
+                    }
+                    payload = new byte[length];
+                    data.readFully(payload);
+                } catch (EOFException e) {
+                    break;
+                }
+                crc.reset();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                apply(payload);
+                valid += FRAME_SIZE + length;
+            }
+            return valid;
+        } catch (EOFException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Applies a record to the notes. A put holds the note encoded with {@link NoteCodec}, a delete the UTF-8 id of
+     * the note.
+     */
+    private void apply(byte[] payload) throws IOException {
+        if (payload[0] == PUT) {
+            Note note = NoteCodec.decode(payload, 1, payload.length - 1);
+            notes.put(note.getId().toString(), note);
+        } else if (payload[0] == DELETE) {
+            notes.remove(new String(payload, 1, payload.length - 1, StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Frames a record with its length and checksum.
+     */
+    private static byte[] record(byte type, byte[] body) {
+        int length = body.length + 1;
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(body);
+        ByteBuffer record = ByteBuffer.allocate(FRAME_SIZE + length);
+        record.putInt(length).putInt((int) crc.getValue()).put(type).put(body);
+        return record.array();
+    }
+
+    private static ByteBuffer header() {
+        return ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).flip();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Makes a rename in the directory durable. Not supported on every platform, where the rename is left to the
+     * file system.
+     */
+    private void syncDirectory() {
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            // Directories can not be opened on Windows
+        }
+    }
+
+    /**
+     * A record waiting to be written and the future of its caller.
+     */
+    private static class Pending {
+        private final byte[] record;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        Pending(byte[] record) {
+            this.record = record;
+        }
+    }
+}
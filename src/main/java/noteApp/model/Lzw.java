@@ -1,16 +1,35 @@
 package noteApp.model;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.LinkedHashMap;
+import java.util.Arrays;
 
 /**
  *
  * Lzw compression algorithm for strings.
+ * <p>
+ * Every character of the input is a symbol and dictionary codes start from 256. Each code is written as a single
+ * {@code char}, so codes above 65535 wrap around. The dictionary is a trie keyed by (prefix, character) in an open
+ * addressing hash table, which keeps both directions linear in the length of the text.
  *
  * @author Nico Järvinen
  */
 public class Lzw {
+    /**
+     * First code given to a dictionary entry.
+     */
+    private static final int FIRST_CODE = 256;
+
+    /**
+     * Trie nodes below this value are single characters, nodes from this value on are dictionary entries.
+     */
+    private static final int ENTRY_NODE = 65536;
+
+    private static final long EMPTY = -1L;
+
+    /**
+     * Initial size of the hash table. Must be a power of two.
+     */
+    private static final int INITIAL_CAPACITY = 1024;
+
     /**
      *
      * Creates Lzw object.
@@ -27,41 +46,64 @@ public class Lzw {
      * @return String of compressed text.
      */
     public String lzw_compress(String input) {
-        HashMap<String, Integer> dictionary = new LinkedHashMap<>();
-        String[] data = (input + "").split("");
-        String out = "";
-        ArrayList<String> temp_out = new ArrayList<>();
-        String currentChar;
-        String phrase = data[0];
-        int code = 256;
-        for (int i = 1; i < data.length; i++) {
-            currentChar = data[i];
-            if (dictionary.get(phrase + currentChar) != null) {
-                phrase += currentChar;
-            } else {
-                if (phrase.length() > 1) {
-                    temp_out.add(Character.toString((char) dictionary.get(phrase).intValue()));
-                } else {
-                    temp_out.add(Character.toString((char) Character.codePointAt(phrase, 0)));
-                }
+        int length = input.length();
+        if (length < 2) {
+            return "";
+        }
+        int capacity = INITIAL_CAPACITY;
+        long[] keys = new long[capacity];
+        int[] nodes = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        int entries = 0;
+        char[] out = new char[Math.min(length, 1024)];
+        int outLength = 0;
 
-                dictionary.put(phrase + currentChar, code);
-                code++;
-                phrase = currentChar;
+        int phrase = input.charAt(0);
+        for (int i = 1; i < length; i++) {
+            char currentChar = input.charAt(i);
+            long key = (long) phrase << 16 | currentChar;
+            int mask = capacity - 1;
+            int slot = hash(key) & mask;
+            while (keys[slot] != EMPTY && keys[slot] != key) {
+                slot = (slot + 1) & mask;
             }
-        }
+            if (keys[slot] == key) {
+                phrase = nodes[slot];
+                continue;
+            }
+            if (outLength == out.length) {
+                out = Arrays.copyOf(out, out.length * 2);
+            }
+            out[outLength++] = phrase < ENTRY_NODE ? (char) phrase : (char) (phrase - ENTRY_NODE + FIRST_CODE);
 
-        if (phrase.length() > 1) {
-            temp_out.add(Character.toString((char) dictionary.get(phrase).intValue()));
-        } else {
-            if (temp_out.size() > 0)
-                temp_out.add(Character.toString((char) Character.codePointAt(phrase, 0)));
+            keys[slot] = key;
+            nodes[slot] = ENTRY_NODE + entries++;
+            if (entries * 2 > capacity) {
+                capacity *= 2;
+                long[] oldKeys = keys;
+                int[] oldNodes = nodes;
+                keys = new long[capacity];
+                nodes = new int[capacity];
+                Arrays.fill(keys, EMPTY);
+                for (int j = 0; j < oldKeys.length; j++) {
+                    if (oldKeys[j] != EMPTY) {
+                        int s = hash(oldKeys[j]) & (capacity - 1);
+                        while (keys[s] != EMPTY) {
+                            s = (s + 1) & (capacity - 1);
+                        }
+                        keys[s] = oldKeys[j];
+                        nodes[s] = oldNodes[j];
+                    }
+                }
+            }
+            phrase = currentChar;
         }
 
-        for (String outchar : temp_out) {
-            out += outchar;
+        if (outLength == out.length) {
+            out = Arrays.copyOf(out, out.length + 1);
         }
-        return out;
+        out[outLength++] = phrase < ENTRY_NODE ? (char) phrase : (char) (phrase - ENTRY_NODE + FIRST_CODE);
+        return new String(out, 0, outLength);
     }
 
     /**
@@ -71,31 +113,74 @@ public class Lzw {
      * @return String of extracted text.
      */
     public String lzw_extract(String input) {
-        HashMap<Integer, String> dictionary = new LinkedHashMap<>();
-        String[] data = (input + "").split("");
-        String currentChar = data[0];
-        String oldPhrase = currentChar;
-        String out = currentChar;
-        int code = 256;
-        String phrase = "";
-        for (int i = 1; i < data.length; i++) {
-            int currCode = Character.codePointAt(data[i], 0);
-            if (currCode < 256) {
-                phrase = data[i];
+        int length = input.length();
+        if (length == 0) {
+            return "";
+        }
+        // Entry k is the string of node prefix[k] followed by lastChar[k]
+        int[] prefix = new int[Math.min(length, 1024)];
+        char[] lastChar = new char[prefix.length];
+        int[] entryLength = new int[prefix.length];
+        int entries = 0;
+        char[] out = new char[Math.min(length * 2, 4096)];
+        int outLength = 0;
+
+        char currentChar = input.charAt(0);
+        int oldPhrase = currentChar;
+        int oldLength = 1;
+        out[outLength++] = currentChar;
+        for (int i = 1; i < length; i++) {
+            int currCode = input.charAt(i);
+            int phrase;
+            int phraseLength;
+            if (currCode < FIRST_CODE) {
+                phrase = currCode;
+                phraseLength = 1;
+            } else if (currCode - FIRST_CODE < entries) {
+                phrase = ENTRY_NODE + currCode - FIRST_CODE;
+                phraseLength = entryLength[currCode - FIRST_CODE];
             } else {
-                if (dictionary.get(currCode) != null) {
-                    phrase = dictionary.get(currCode);
-                } else {
-                    phrase = oldPhrase + currentChar;
-                }
+                // Not in the dictionary yet, the phrase is the entry added below
+                phrase = ENTRY_NODE + entries;
+                phraseLength = oldLength + 1;
+            }
+
+            if (entries == prefix.length) {
+                prefix = Arrays.copyOf(prefix, entries * 2);
+                lastChar = Arrays.copyOf(lastChar, entries * 2);
+                entryLength = Arrays.copyOf(entryLength, entries * 2);
+            }
+            prefix[entries] = oldPhrase;
+            entryLength[entries] = oldLength + 1;
+            if (phrase == ENTRY_NODE + entries) {
+                lastChar[entries] = currentChar;
             }
-            out += phrase;
-            currentChar = phrase.substring(0, 1);
-            dictionary.put(code, oldPhrase + currentChar);
-            code++;
+
+            if (outLength + phraseLength > out.length) {
+                out = Arrays.copyOf(out, Math.max(out.length * 2, outLength + phraseLength));
+            }
+            int node = phrase;
+            for (int pos = outLength + phraseLength - 1; node >= ENTRY_NODE; pos--) {
+                out[pos] = lastChar[node - ENTRY_NODE];
+                node = prefix[node - ENTRY_NODE];
+            }
+            out[outLength] = (char) node;
+            currentChar = (char) node;
+            lastChar[entries] = currentChar;
+            entries++;
+            outLength += phraseLength;
             oldPhrase = phrase;
+            oldLength = phraseLength;
         }
-        return out;
+        return new String(out, 0, outLength);
+    }
+
+    /**
+     * Spreads the bits of a trie key for the hash table.
+     */
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32);
     }
 
 }
@@ -0,0 +1,196 @@
+package noteApp.model;
+
+import noteApp.model.note.Note;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Watches the notes folder for note files created, changed or deleted by other programs, like another instance of
+ * the application or a file sync tool.
+ * <p>
+ * Events are collected until the folder has been quiet for {@link #DEBOUNCE_MILLIS}, so a file written in many steps
+ * is read once. Only the files named in the events are read. The notes held by the files of the folder are learned
+ * when watching starts, so a deleted file removes the notes it held. The files of the {@link LocalNoteStore} are not
+ * watched, and files that are still as the application itself wrote or deleted them are not reported.
+ */
+public class NoteFolderWatcher implements Closeable {
+
+    /**
+     * Time the folder has to be quiet before the collected events are handled.
+     */
+    public static final long DEBOUNCE_MILLIS = 300;
+
+    /**
+     * Receives the notes changed in the folder.
+     */
+    public interface Listener {
+        /**
+         * Called on the watcher thread after a batch of events.
+         *
+         * @param changed    notes read from the files created or changed
+         * @param deletedIds ids of the notes whose files were deleted
+         */
+        void notesChanged(List<Note> changed, List<String> deletedIds);
+    }
+
+    private final Path directory;
+    private final Listener listener;
+    private final WatchService watchService;
+    private final Thread thread;
+
+    /**
+     * Note ids of the files of the folder, to know which notes a deleted file held.
+     */
+    private final Map<Path, List<String>> noteIds = new HashMap<>();
+
+    /**
+     * Reads the note ids of the files in the folder when watching starts.
+     */
+    private final Supplier<Map<Path, List<String>>> knownFiles;
+
+    private NoteFolderWatcher(Path directory, Supplier<Map<Path, List<String>>> knownFiles, Listener listener)
+            throws IOException {
+        this.directory = directory;
+        this.knownFiles = knownFiles;
+        this.listener = listener;
+        this.watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+        this.thread = new Thread(this::run, "note-folder-watcher");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Starts watching a folder. The note ids of its files are read on the watcher thread after the folder is
+     * registered, so files changed meanwhile are not missed.
+     *
+     * @param directory  folder to watch
+     * @param knownFiles reads the note ids of each note file in the folder
+     * @param listener   receives the changed notes
+     * @return the started watcher
+     * @throws IOException if the folder can not be watched
+     */
+    public static NoteFolderWatcher start(Path directory, Supplier<Map<Path, List<String>>> knownFiles,
+                                          Listener listener) throws IOException {
+        NoteFolderWatcher watcher = new NoteFolderWatcher(directory, knownFiles, listener);
+        watcher.thread.start();
+        return watcher;
+    }
+
+    /**
+     * Stops watching. Events not handled yet are dropped.
+     */
+    @Override
+    public void close() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void run() {
+        try {
+            noteIds.putAll(knownFiles.get());
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+        try {
+            while (true) {
+                Map<Path, WatchEvent.Kind<?>> batch = new LinkedHashMap<>();
+                WatchKey key = watchService.take();
+                do {
+                    collect(key, batch);
+                    key = watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+                } while (key != null);
+                handle(batch);
+            }
+        } catch (ClosedWatchServiceException e) {
+            // Closed by close()
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Adds the events of a key to the batch, the last event of a file replacing the earlier ones.
+     */
+    private void collect(WatchKey key, Map<Path, WatchEvent.Kind<?>> batch) {
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // Events were lost, read every file of the folder instead
+                try (Stream<Path> files = Files.list(directory)) {
+                    files.forEach(file -> batch.put(file, StandardWatchEventKinds.ENTRY_MODIFY));
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+                continue;
+            }
+            Path file = directory.resolve((Path) event.context());
+            batch.remove(file);
+            batch.put(file, event.kind());
+        }
+        key.reset();
+    }
+
+    private void handle(Map<Path, WatchEvent.Kind<?>> batch) {
+        List<Note> changed = new ArrayList<>();
+        List<String> deletedIds = new ArrayList<>();
+        for (Map.Entry<Path, WatchEvent.Kind<?>> event : batch.entrySet()) {
+            Path file = event.getKey();
+            if (Filehandler.isStoreFile(file)) {
+                continue;
+            }
+            List<String> own = Filehandler.ownWriteIds(file);
+            if (own != null) {
+                // Written or deleted by this application, which has the notes already
+                if (own.isEmpty()) {
+                    noteIds.remove(file);
+                } else {
+                    noteIds.put(file, own);
+                }
+                continue;
+            }
+            if (event.getValue() == StandardWatchEventKinds.ENTRY_DELETE || !Files.isRegularFile(file)) {
+                List<String> ids = noteIds.remove(file);
+                if (ids != null) {
+                    deletedIds.addAll(ids);
+                }
+                continue;
+            }
+            List<Note> notes = Filehandler.readNoteFile(file);
+            if (notes != null) {
+                List<String> ids = new ArrayList<>();
+                notes.forEach(note -> ids.add(note.getId().toString()));
+                List<String> previous = noteIds.put(file, ids);
+                if (previous != null) {
+                    previous.stream().filter(id -> !ids.contains(id)).forEach(deletedIds::add);
+                }
+                changed.addAll(notes);
+            }
+        }
+        if (!changed.isEmpty() || !deletedIds.isEmpty()) {
+            try {
+                listener.notesChanged(changed, deletedIds);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package noteApp.model;
+
+import noteApp.model.note.Note;
+import noteApp.model.note.Tag;
+import org.bson.types.ObjectId;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Snapshot file of a {@link LocalNoteStore}, read through a memory mapping.
+ * <p>
+ * The file starts with a header and an index that gives the id of every note and the offset, length and checksum of
+ * its content. The index is followed by a metadata section holding the title, tag, label and date of the notes in
+ * the same order, and the contents of the notes come last. Reading the snapshot only reads the index and the
+ * metadata. The content of a note is read from the mapping when it is first asked, so opening a large folder does not
+ * depend on the length of the notes.
+ * <pre>
+ * header:   int magic, int note count, int metadata length, int checksum of the index and metadata
+ * index:    per note 12 byte id, long content offset, int content length, int content checksum
+ * metadata: per note user id, title, long date, tag, label
+ * contents: UTF-8 content of the notes
+ * </pre>
+ * Strings of the metadata are an int length followed by UTF-8 bytes, -1 for null.
+ */
+final class NoteSnapshot {
+
+    /**
+     * First four bytes of a snapshot, "MNS2".
+     */
+    static final int MAGIC = 0x4D4E5332;
+
+    private static final int HEADER_SIZE = 16;
+    private static final int INDEX_ENTRY_SIZE = 12 + 8 + 4 + 4;
+
+    private NoteSnapshot() {
+    }
+
+    /**
+     * Writes the notes to a snapshot file. The contents are written one at a time, so they are never all in memory.
+     * A note whose content fails its checksum is written without content. The file is forced to the disk before
+     * returning.
+     *
+     * @param file  file to write, replaced if it exists
+     * @param notes notes to write
+     * @return size of the file in bytes
+     * @throws IOException if writing fails
+     */
+    static long write(Path file, List<Note> notes) throws IOException {
+        ByteBuffer metadata = metadata(notes);
+        int count = notes.size();
+        ByteBuffer index = ByteBuffer.allocate(count * INDEX_ENTRY_SIZE);
+        long offset = HEADER_SIZE + index.capacity() + metadata.remaining();
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            out.position(offset);
+            CRC32 crc = new CRC32();
+            for (Note note : notes) {
+                String content;
+                try {
+                    content = note.getContent();
+                } catch (UncheckedIOException e) {
+                    // Content that can not be read any more is left out, the rest of the note is kept
+                    System.out.println("Snapshot leaves out the damaged content of note " + note.getId() + ": "
+                            + e.getCause().getMessage());
+                    content = null;
+                }
+                byte[] bytes = content == null ? new byte[0] : content.getBytes(StandardCharsets.UTF_8);
+                crc.reset();
+                crc.update(bytes);
+                index.put(note.getId().toByteArray())
+                        .putLong(content == null ? -1 : offset)
+                        .putInt(bytes.length)
+                        .putInt((int) crc.getValue());
+                writeFully(out, ByteBuffer.wrap(bytes));
+                offset += bytes.length;
+            }
+            index.flip();
+            crc.reset();
+            crc.update(index.duplicate());
+            crc.update(metadata.duplicate());
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                    .putInt(MAGIC).putInt(count).putInt(metadata.remaining()).putInt((int) crc.getValue());
+            out.position(0);
+            writeFully(out, header.flip());
+            writeFully(out, index);
+            writeFully(out, metadata);
+            out.force(true);
+        }
+        return offset;
+    }
+
+    /**
+     * Reads the notes of a snapshot file without their content. The returned notes read their content from the
+     * mapped file when it is asked, and throw an {@link UncheckedIOException} if it fails its checksum.
+     *
+     * @param file snapshot file
+     * @return notes in the order they were written
+     * @throws IOException if reading fails, the file is not a snapshot or the index or metadata is damaged
+     */
+    static List<Note> read(Path file) throws IOException {
+        MappedByteBuffer map;
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (in.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot too large to map: " + file);
+            }
+            map = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+        }
+        if (map.remaining() < HEADER_SIZE || map.getInt(0) != MAGIC) {
+            throw new IOException("Not a snapshot file: " + file);
+        }
+        int count = map.getInt(4);
+        int metadataLength = map.getInt(8);
+        int checksum = map.getInt(12);
+        long indexLength = (long) count * INDEX_ENTRY_SIZE;
+        if (count < 0 || metadataLength < 0 || HEADER_SIZE + indexLength + metadataLength > map.capacity()) {
+            throw new IOException("Damaged snapshot header: " + file);
+        }
+        ByteBuffer index = map.duplicate().position(HEADER_SIZE).limit(HEADER_SIZE + (int) indexLength).slice();
+        ByteBuffer metadata = map.duplicate().position(HEADER_SIZE + (int) indexLength)
+                .limit(HEADER_SIZE + (int) indexLength + metadataLength).slice();
+        CRC32 crc = new CRC32();
+        crc.update(index.duplicate());
+        crc.update(metadata.duplicate());
+        if ((int) crc.getValue() != checksum) {
+            throw new IOException("Damaged snapshot index: " + file);
+        }
+
+        List<Note> notes = new ArrayList<>(count);
+        byte[] id = new byte[12];
+        try {
+            for (int i = 0; i < count; i++) {
+                index.get(id);
+                long offset = index.getLong();
+                int length = index.getInt();
+                int contentChecksum = index.getInt();
+                if (offset >= 0 && (offset < HEADER_SIZE || offset + length > map.capacity() || length < 0)) {
+                    throw new IOException("Damaged snapshot index: " + file);
+                }
+                Note note = new Note();
+                note.setId(new ObjectId(id));
+                note.setUserId(readString(metadata));
+                note.setTitle(readString(metadata));
+                note.setDateMillis(metadata.getLong());
+                String tag = readString(metadata);
+                try {
+                    note.setTag(tag == null ? Tag.NONE : Tag.valueOf(tag));
+                } catch (IllegalArgumentException e) {
+                    note.setTag(Tag.NONE);
+                }
+                String label = readString(metadata);
+                note.setLabel(label == null ? "" : label);
+                if (offset < 0) {
+                    note.setContent(null);
+                } else {
+                    note.setContentLoader(() -> content(map, (int) offset, length, contentChecksum, file));
+                }
+                notes.add(note);
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("Damaged snapshot metadata: " + file, e);
+        }
+        return notes;
+    }
+
+    /**
+     * Reads and checks the content of a note from the mapping. Each call works on its own view of the mapping, so
+     * contents can be read from any thread.
+     */
+    private static String content(ByteBuffer map, int offset, int length, int checksum, Path file) {
+        byte[] bytes = new byte[length];
+        map.duplicate().position(offset).get(bytes);
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        if ((int) crc.getValue() != checksum) {
+            throw new UncheckedIOException(new IOException("Damaged note content in " + file));
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static ByteBuffer metadata(List<Note> notes) {
+        ExposedBuffer out = new ExposedBuffer();
+        for (Note note : notes) {
+            writeString(out, note.getUserId());
+            writeString(out, note.getTitle());
+            out.putLong(note.getDateMillis());
+            writeString(out, note.getTag() == null ? null : note.getTag().name());
+            writeString(out, note.getLabel());
+        }
+        return out.toBuffer();
+    }
+
+    private static void writeString(ExposedBuffer out, String value) {
+        if (value == null) {
+            out.putInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.putInt(bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Growing byte array that is handed out as a buffer without copying.
+     */
+    private static class ExposedBuffer extends ByteArrayOutputStream {
+        void putInt(int value) {
+            write(value >>> 24);
+            write(value >>> 16);
+            write(value >>> 8);
+            write(value);
+        }
+
+        void putLong(long value) {
+            putInt((int) (value >>> 32));
+            putInt((int) value);
+        }
+
+        ByteBuffer toBuffer() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package noteApp.model.backend;
+
+import noteApp.model.Constants;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodySubscribers;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Shared settings of the HttpClients used to communicate with the backend.
+ * <p>
+ * Asynchronous requests are completed on a dedicated executor, both when they succeed and when they fail, so the
+ * stages that depend on them never run on the JavaFX thread. Every request has a timeout, so a slow or unreachable
+ * backend fails the request instead of blocking.
+ * <p>
+ * Responses are asked for gzip or deflate compressed and decoded transparently. JSON bodies of at least
+ * {@link #COMPRESSION_THRESHOLD} bytes are sent gzip compressed. A backend that can not decode them answers 415, or
+ * 400 if it tries to parse them as they are, in which case the request is sent again uncompressed. If the plain request
+ * succeeds, later bodies are not compressed. Once the backend has accepted a compressed body, a 400 is an error of the
+ * request itself and is not retried.
+ */
+final class BackendClient {
+
+    /**
+     * Time allowed for opening a connection to the backend.
+     */
+    static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+
+    /**
+     * Time allowed for a request to receive the response headers.
+     */
+    static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    /**
+     * Number of threads handling the responses.
+     */
+    private static final int THREADS = 4;
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    /**
+     * Size in bytes from which JSON bodies are compressed. Smaller bodies fit in a packet either way.
+     */
+    static final int COMPRESSION_THRESHOLD = 1024;
+
+    /**
+     * Encodings accepted in responses.
+     */
+    static final String ACCEPT_ENCODING = "gzip, deflate";
+
+    /**
+     * Cleared once the backend has refused a compressed body.
+     */
+    private static volatile boolean compressRequests = true;
+
+    /**
+     * Set once the backend has accepted a compressed body.
+     */
+    private static volatile boolean compressionAccepted;
+
+    /**
+     * Executor of the HttpClients. The threads are daemons so pending requests do not keep the application running.
+     */
+    static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "backend-http-" + THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private BackendClient() {
+    }
+
+    /**
+     * Builds a new HttpClient using the shared executor and connect timeout.
+     * @return new HttpClient
+     */
+    static HttpClient create() {
+        return HttpClient.newBuilder()
+                .executor(EXECUTOR)
+                .connectTimeout(CONNECT_TIMEOUT)
+                .build();
+    }
+
+    /**
+     * Starts a request to the given path of the backend with the request timeout and accepted encodings set.
+     * @param path path of the request, starting with a slash
+     * @return builder of the request
+     */
+    static HttpRequest.Builder newRequest(String path) {
+        return HttpRequest.newBuilder()
+                .uri(URI.create(Constants.BASEURL + path))
+                .timeout(REQUEST_TIMEOUT)
+                .setHeader("Accept-Encoding", ACCEPT_ENCODING);
+    }
+
+    /**
+     * Returns whether JSON bodies are compressed.
+     * @return true if JSON bodies of at least {@link #COMPRESSION_THRESHOLD} bytes are compressed
+     */
+    static boolean isCompressingRequests() {
+        return compressRequests;
+    }
+
+    /**
+     * Sets whether JSON bodies are compressed.
+     * @param compress true to compress JSON bodies of at least {@link #COMPRESSION_THRESHOLD} bytes
+     */
+    static void setCompressingRequests(boolean compress) {
+        compressRequests = compress;
+    }
+
+    /**
+     * Sends a request and decodes the response body.
+     * @param client client to send the request with
+     * @param request request to send
+     * @return response with the decoded body
+     * @throws IOException if sending the request fails
+     * @throws InterruptedException if the request is interrupted
+     */
+    static HttpResponse<String> send(HttpClient client, HttpRequest request) throws IOException, InterruptedException {
+        return client.send(request, BackendClient::decodingSubscriber);
+    }
+
+    /**
+     * Sends a POST request with a JSON body, compressed if it is large enough.
+     * @param client client to send the request with
+     * @param builder request without a method or body
+     * @param json body of the request
+     * @return response with the decoded body
+     * @throws IOException if sending the request fails
+     * @throws InterruptedException if the request is interrupted
+     */
+    static HttpResponse<String> sendJson(HttpClient client, HttpRequest.Builder builder, String json)
+            throws IOException, InterruptedException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        if (!shouldCompress(body)) {
+            return send(client, jsonRequest(builder, body, false));
+        }
+        HttpResponse<String> response = send(client, jsonRequest(builder.copy(), body, true));
+        if (!isRefused(response)) {
+            return response;
+        }
+        HttpResponse<String> retry = send(client, jsonRequest(builder, body, false));
+        disableCompressionIfAccepted(retry);
+        return retry;
+    }
+
+    /**
+     * Asynchronous variant of {@link #sendJson(HttpClient, HttpRequest.Builder, String)} that parses the response
+     * on the shared executor.
+     * @param client client to send the request with
+     * @param builder request without a method or body
+     * @param json body of the request
+     * @param parser parses the response
+     * @param <T> type of the parsed response
+     * @return future of the parsed response, completed exceptionally if the request or parsing fails
+     */
+    static <T> CompletableFuture<T> sendJsonAsync(HttpClient client, HttpRequest.Builder builder, String json,
+                                                  Function<HttpResponse<String>, T> parser) {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        if (!shouldCompress(body)) {
+            return sendAsync(client, jsonRequest(builder, body, false), parser);
+        }
+        return sendAsync(client, jsonRequest(builder.copy(), body, true), response -> response)
+                .thenCompose(response -> {
+                    if (!isRefused(response)) {
+                        return CompletableFuture.completedFuture(response);
+                    }
+                    return sendAsync(client, jsonRequest(builder, body, false), retry -> {
+                        disableCompressionIfAccepted(retry);
+                        return retry;
+                    });
+                })
+                .thenApplyAsync(parser, EXECUTOR);
+    }
+
+    /**
+     * Sends a request asynchronously and parses the response on the shared executor.
+     * @param client client to send the request with
+     * @param request request to send
+     * @param parser parses the response
+     * @param <T> type of the parsed response
+     * @return future of the parsed response, completed exceptionally if the request or parsing fails
+     */
+    static <T> CompletableFuture<T> sendAsync(HttpClient client, HttpRequest request,
+                                              Function<HttpResponse<String>, T> parser) {
+        return sendAsync(client, request, BackendClient::decodingSubscriber, parser);
+    }
+
+    /**
+     * Sends a request and returns the response as soon as its headers have arrived. The body is read from the
+     * stream of the response, see {@link #decodedBody(HttpResponse)}.
+     * @param client client to send the request with
+     * @param request request to send
+     * @return response with the body as a stream
+     * @throws IOException if sending the request fails
+     * @throws InterruptedException if the request is interrupted
+     */
+    static HttpResponse<InputStream> sendStreaming(HttpClient client, HttpRequest request)
+            throws IOException, InterruptedException {
+        return client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+    }
+
+    /**
+     * Asynchronous variant of {@link #sendStreaming(HttpClient, HttpRequest)}. The parser is called on the shared
+     * executor once the headers have arrived and reads the body while it is downloaded.
+     * @param client client to send the request with
+     * @param request request to send
+     * @param parser parses the response, must close the body
+     * @param <T> type of the parsed response
+     * @return future of the parsed response, completed exceptionally if the request or parsing fails
+     */
+    static <T> CompletableFuture<T> sendStreamingAsync(HttpClient client, HttpRequest request,
+                                                       Function<HttpResponse<InputStream>, T> parser) {
+        return sendAsync(client, request, HttpResponse.BodyHandlers.ofInputStream(), parser);
+    }
+
+    /**
+     * Returns the body of a streamed response, decompressed if it is compressed.
+     * @param response streamed response
+     * @return stream of the decoded body
+     * @throws IOException if the compressed body can not be read
+     */
+    static InputStream decodedBody(HttpResponse<InputStream> response) throws IOException {
+        String encoding = encoding(response.headers());
+        InputStream body = response.body();
+        if (encoding.equals("gzip")) {
+            return new GZIPInputStream(body, 8192);
+        }
+        return encoding.equals("deflate") ? new InflaterInputStream(body) : body;
+    }
+
+    /**
+     * Returns the charset of the Content-Type header, UTF-8 if there is none.
+     * @param headers headers of the response
+     * @return charset of the body
+     */
+    static Charset charset(HttpHeaders headers) {
+        String type = headers.firstValue("Content-Type").orElse("");
+        for (String param : type.split(";")) {
+            String[] pair = param.trim().split("=", 2);
+            if (pair.length == 2 && pair[0].trim().equalsIgnoreCase("charset")) {
+                try {
+                    return Charset.forName(pair[1].trim().replace("\"", ""));
+                } catch (IllegalArgumentException e) {
+                    return StandardCharsets.UTF_8;
+                }
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    private static <B, T> CompletableFuture<T> sendAsync(HttpClient client, HttpRequest request,
+                                                        HttpResponse.BodyHandler<B> handler,
+                                                        Function<HttpResponse<B>, T> parser) {
+        return client.sendAsync(request, handler).handleAsync((response, error) -> {
+            if (error != null) {
+                throw error instanceof CompletionException
+                        ? (CompletionException) error : new CompletionException(error);
+            }
+            return parser.apply(response);
+        }, EXECUTOR);
+    }
+
+    private static boolean shouldCompress(byte[] body) {
+        return compressRequests && body.length >= COMPRESSION_THRESHOLD;
+    }
+
+    private static boolean isSuccess(HttpResponse<String> response) {
+        return response.statusCode() >= 200 && response.statusCode() < 300;
+    }
+
+    /**
+     * Returns whether the backend refused a compressed body, remembering when it accepted one.
+     */
+    private static boolean isRefused(HttpResponse<String> response) {
+        if (isSuccess(response)) {
+            compressionAccepted = true;
+            return false;
+        }
+        return response.statusCode() == 415 || response.statusCode() == 400 && !compressionAccepted;
+    }
+
+    /**
+     * Stops compressing bodies if the uncompressed retry of a refused body succeeded. Any other answer says nothing
+     * about the compression.
+     */
+    private static void disableCompressionIfAccepted(HttpResponse<String> retry) {
+        if (isSuccess(retry)) {
+            compressRequests = false;
+        }
+    }
+
+    /**
+     * Sets a JSON body as the POST body of the request.
+     */
+    private static HttpRequest jsonRequest(HttpRequest.Builder builder, byte[] body, boolean compress) {
+        builder.setHeader("Content-Type", "application/json");
+        if (compress) {
+            builder.setHeader("Content-Encoding", "gzip");
+            body = gzip(body);
+        }
+        return builder.POST(HttpRequest.BodyPublishers.ofByteArray(body)).build();
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out, 8192)) {
+            gzip.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Reads the response body as a string, decoding it first if it is compressed.
+     */
+    private static HttpResponse.BodySubscriber<String> decodingSubscriber(HttpResponse.ResponseInfo info) {
+        Charset charset = charset(info.headers());
+        String encoding = encoding(info.headers());
+        if (encoding.equals("gzip") || encoding.equals("deflate")) {
+            return BodySubscribers.mapping(BodySubscribers.ofByteArray(), bytes -> decode(bytes, encoding, charset));
+        }
+        return BodySubscribers.ofString(charset);
+    }
+
+    private static String decode(byte[] bytes, String encoding, Charset charset) {
+        if (bytes.length == 0) {
+            return "";
+        }
+        try (InputStream in = encoding.equals("gzip")
+                ? new GZIPInputStream(new ByteArrayInputStream(bytes), 8192)
+                : new InflaterInputStream(new ByteArrayInputStream(bytes))) {
+            return new String(in.readAllBytes(), charset);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not decode " + encoding + " response", e);
+        }
+    }
+
+    private static String encoding(HttpHeaders headers) {
+        return headers.firstValue("Content-Encoding").orElse("identity").trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,95 @@
+package noteApp.model.backend;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Cache of parsed GET responses validated with conditional requests.
+ * <p>
+ * The ETag and Last-Modified headers of a successful response are remembered together with the parsed response.
+ * The next request to the same URI sends them back in If-None-Match and If-Modified-Since, and when the backend
+ * answers 304 Not Modified the remembered instance is returned without parsing anything. Callers can compare the
+ * instance they get to the previous one to tell that nothing has changed, so cached values must not be modified.
+ * @param <T> type of the parsed response
+ */
+final class HttpCache<T> {
+
+    /**
+     * Number of URIs remembered. The least recently used one is forgotten first.
+     */
+    private static final int MAX_ENTRIES = 16;
+
+    private final Map<URI, CachedResponse<T>> entries = new LinkedHashMap<>(MAX_ENTRIES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<URI, CachedResponse<T>> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    /**
+     * Adds the validators of the cached response of the request's URI to the request.
+     * @param builder request to send, its URI must already be set
+     * @return request with the conditional headers
+     */
+    synchronized HttpRequest conditional(HttpRequest.Builder builder) {
+        HttpRequest request = builder.build();
+        CachedResponse<T> entry = entries.get(request.uri());
+        if (entry == null) {
+            return request;
+        }
+        if (entry.etag != null) {
+            builder.setHeader("If-None-Match", entry.etag);
+        }
+        if (entry.lastModified != null) {
+            builder.setHeader("If-Modified-Since", entry.lastModified);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Returns the cached value if the response is 304 Not Modified, otherwise parses the response and caches the
+     * result if the response can be validated later.
+     * @param response response to a request built with {@link #conditional(HttpRequest.Builder)}
+     * @param parser parses a response with a body
+     * @param <B> type of the response body
+     * @return parsed or cached response
+     */
+    <B> T resolve(HttpResponse<B> response, Function<HttpResponse<B>, T> parser) {
+        URI uri = response.request().uri();
+        if (response.statusCode() == 304) {
+            synchronized (this) {
+                CachedResponse<T> entry = entries.get(uri);
+                if (entry != null) {
+                    return entry.value;
+                }
+            }
+        }
+        T value = parser.apply(response);
+        String etag = response.headers().firstValue("ETag").orElse(null);
+        String lastModified = response.headers().firstValue("Last-Modified").orElse(null);
+        synchronized (this) {
+            if (response.statusCode() == 200 && value != null && (etag != null || lastModified != null)) {
+                entries.put(uri, new CachedResponse<>(etag, lastModified, value));
+            } else {
+                entries.remove(uri);
+            }
+        }
+        return value;
+    }
+
+    private static class CachedResponse<T> {
+        private final String etag;
+        private final String lastModified;
+        private final T value;
+
+        CachedResponse(String etag, String lastModified, T value) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.value = value;
+        }
+    }
+}
@@ -1,19 +1,31 @@
 package noteApp.model.backend;
 
-import noteApp.model.Constants;
 import noteApp.model.note.Note;
+import noteApp.model.note.NoteChanges;
+import noteApp.model.note.NotePage;
 import noteApp.utils.note.NoteUtil;
 
 import java.io.IOException;
-import java.net.URI;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
-import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Singleton class for sending handling Note http requests
+ * <p>
+ * Every request has a blocking and an asynchronous variant. The asynchronous
+ * variants return a {@link CompletableFuture} that completes on the backend
+ * executor, so they can be called from the JavaFX thread.
  * @author Jere Salmensaari
  */
 public class NoteConnection {
@@ -22,16 +34,31 @@ public class NoteConnection {
      */
     private static NoteConnection INSTANCE;
 
+    /**
+     * Response header holding the token to ask the next note changes with
+     */
+    static final String SYNC_TOKEN_HEADER = "X-Sync-Token";
+
     /**
      * HttpClient for communicating with the backend
      */
     private HttpClient client;
 
+    /**
+     * Parsed note lists validated with conditional requests
+     */
+    private final HttpCache<List<Note>> notesCache = new HttpCache<>();
+
+    /**
+     * Parsed note changes validated with conditional requests
+     */
+    private final HttpCache<NoteChanges> changesCache = new HttpCache<>();
+
     /**
      * Constructor, creates a new HttpClient
      */
     private NoteConnection() {
-        client = HttpClient.newBuilder().build();
+        client = BackendClient.create();
     }
 
     /**
@@ -50,7 +77,10 @@ public class NoteConnection {
      * Gets a list of Notes belonging to a given user
      * <p>
      * Sends a Http GET request to the backend and parses the returned
-     * JSON String into a list of Notes
+     * JSON into a list of Notes while it is downloaded, so the whole body is
+     * never held in memory. The request is conditional, and if
+     * the notes have not changed since the previous request the same list
+     * instance is returned without parsing. The list must not be modified.
      * @param uId user id
      * @param token token of the user
      * @return List of Notes
@@ -58,18 +88,208 @@ public class NoteConnection {
      * @throws InterruptedException If connection is interrupted
      */
     public List<Note> getUserNotes(String uId, String token) throws IOException, InterruptedException {
-        HttpRequest request = HttpRequest.newBuilder()
+        HttpResponse<InputStream> response = BackendClient.sendStreaming(client, getUserNotesRequest(uId, token));
+        try {
+            return resolve(notesCache, response, NoteConnection::parseNotes);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Asynchronous variant of {@link #getUserNotes(String, String)}
+     * @param uId user id
+     * @param token token of the user
+     * @return future of the list of Notes, completed exceptionally if the request fails
+     */
+    public CompletableFuture<List<Note>> getUserNotesAsync(String uId, String token) {
+        return BackendClient.sendStreamingAsync(client, getUserNotesRequest(uId, token),
+                response -> resolve(notesCache, response, NoteConnection::parseNotes));
+    }
+
+    private HttpRequest getUserNotesRequest(String uId, String token) {
+        return notesCache.conditional(BackendClient.newRequest("/api/notes/" + uId)
+                .GET()
+                .setHeader("Authorization", "Bearer " + token)
+                .setHeader("Content-Type", "application/json"));
+    }
+
+    /**
+     * Gets the Notes of a given user changed since the given sync token
+     * <p>
+     * Sends a Http GET request with the token to the backend. The backend answers
+     * with the changed and deleted notes, or with every note if it can not tell
+     * what has changed. The token to ask the next changes with is returned in the
+     * {@value #SYNC_TOKEN_HEADER} header. The request is conditional like in
+     * {@link #getUserNotes(String, String)}, so unchanged notes are answered
+     * with the same instance as before.
+     * @param uId user id
+     * @param token token of the user
+     * @param since sync token of the previous sync, null to get every note
+     * @return future of the changed notes, null if the request was not successful
+     */
+    public CompletableFuture<NoteChanges> getUserNoteChangesAsync(String uId, String token, String since) {
+        String query = since == null ? "" : "?since=" + URLEncoder.encode(since, StandardCharsets.UTF_8);
+        HttpRequest request = changesCache.conditional(BackendClient.newRequest("/api/notes/" + uId + query)
+                .GET()
+                .setHeader("Authorization", "Bearer " + token)
+                .setHeader("Content-Type", "application/json"));
+        return BackendClient.sendStreamingAsync(client, request,
+                response -> resolve(changesCache, response, NoteConnection::parseChanges));
+    }
+
+    /**
+     * Gets a page of the Notes of a given user without their content
+     * <p>
+     * Sends a Http GET request to the metadata listing of the backend. The notes
+     * are listed newest first with their id, title, tag, label and date, and the
+     * content of a note is fetched with {@link #getNote(String, String, String)}
+     * when it is needed.
+     * @param uId user id
+     * @param token token of the user
+     * @param archived true to list the archived notes, false to list the others
+     * @param offset position of the first note of the page
+     * @param limit maximum number of notes on the page
+     * @return page of Notes, null if the backend has no metadata listing or the request was not successful
+     * @throws IOException if sent request is incorrect
+     * @throws InterruptedException If connection is interrupted
+     */
+    public NotePage getUserNotePage(String uId, String token, boolean archived, int offset, int limit)
+            throws IOException, InterruptedException {
+        HttpResponse<InputStream> response = BackendClient.sendStreaming(client,
+                getUserNotePageRequest(uId, token, archived, offset, limit));
+        try {
+            return parsePage(response, offset);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            response.body().close();
+        }
+    }
+
+    /**
+     * Asynchronous variant of {@link #getUserNotePage(String, String, boolean, int, int)}
+     * @param uId user id
+     * @param token token of the user
+     * @param archived true to list the archived notes, false to list the others
+     * @param offset position of the first note of the page
+     * @param limit maximum number of notes on the page
+     * @return future of the page, null if the backend has no metadata listing or the request was not successful
+     */
+    public CompletableFuture<NotePage> getUserNotePageAsync(String uId, String token, boolean archived, int offset,
+                                                           int limit) {
+        return BackendClient.sendStreamingAsync(client, getUserNotePageRequest(uId, token, archived, offset, limit),
+                response -> {
+                    try {
+                        return parsePage(response, offset);
+                    } finally {
+                        closeBody(response);
+                    }
+                });
+    }
+
+    private HttpRequest getUserNotePageRequest(String uId, String token, boolean archived, int offset, int limit) {
+        return BackendClient.newRequest("/api/notes/" + uId + "/meta?archived=" + archived
+                        + "&offset=" + offset + "&limit=" + limit)
                 .GET()
-                .uri(URI.create(Constants.BASEURL + "/api/notes/" + uId))
                 .setHeader("Authorization", "Bearer " + token)
                 .setHeader("Content-Type", "application/json")
                 .build();
-        HttpResponse<String> response = client.send(request, BodyHandlers.ofString());
-        if (response.statusCode() != 200 || response.body().equals(""))
+    }
+
+    private static NotePage parsePage(HttpResponse<InputStream> response, int offset) {
+        if (response.statusCode() != 200)
             return null;
 
-        List<Note> notes = NoteUtil.parseList(response.body());
-        return notes;
+        try (Reader body = bodyReader(response)) {
+            return NoteUtil.parsePage(body, offset);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Gets a single Note with its content
+     * <p>
+     * Sends a Http GET request to the backend and parses the returned
+     * JSON into a Note.
+     * @param noteId id of the note
+     * @param uId user id
+     * @param token token of the user
+     * @return the Note, null if it was not found
+     * @throws IOException if sent request is incorrect
+     * @throws InterruptedException If connection is interrupted
+     */
+    public Note getNote(String noteId, String uId, String token) throws IOException, InterruptedException {
+        return parseNote(BackendClient.send(client, getNoteRequest(noteId, uId, token)));
+    }
+
+    /**
+     * Asynchronous variant of {@link #getNote(String, String, String)}
+     * @param noteId id of the note
+     * @param uId user id
+     * @param token token of the user
+     * @return future of the Note, null if it was not found, completed exceptionally if the request fails
+     */
+    public CompletableFuture<Note> getNoteAsync(String noteId, String uId, String token) {
+        return BackendClient.sendAsync(client, getNoteRequest(noteId, uId, token), NoteConnection::parseNote);
+    }
+
+    private HttpRequest getNoteRequest(String noteId, String uId, String token) {
+        return BackendClient.newRequest("/api/notes/" + uId + "/" + noteId)
+                .GET()
+                .setHeader("Authorization", "Bearer " + token)
+                .setHeader("Content-Type", "application/json")
+                .build();
+    }
+
+    /**
+     * Resolves a streamed response through a cache and closes its body
+     */
+    private static <T> T resolve(HttpCache<T> cache, HttpResponse<InputStream> response,
+                                 Function<HttpResponse<InputStream>, T> parser) {
+        try {
+            return cache.resolve(response, parser);
+        } finally {
+            closeBody(response);
+        }
+    }
+
+    /**
+     * Closes the body of a streamed response
+     */
+    private static void closeBody(HttpResponse<InputStream> response) {
+        try {
+            response.body().close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static NoteChanges parseChanges(HttpResponse<InputStream> response) {
+        if (response.statusCode() != 200)
+            return null;
+
+        try (Reader body = bodyReader(response)) {
+            return NoteUtil.parseChanges(body, response.headers().firstValue(SYNC_TOKEN_HEADER).orElse(null));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static List<Note> parseNotes(HttpResponse<InputStream> response) {
+        if (response.statusCode() != 200)
+            return null;
+
+        try (Reader body = bodyReader(response)) {
+            return NoteUtil.parseList(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Reader bodyReader(HttpResponse<InputStream> response) throws IOException {
+        return new InputStreamReader(BackendClient.decodedBody(response), BackendClient.charset(response.headers()));
     }
 
     /**
@@ -86,15 +306,109 @@ public class NoteConnection {
      */
     public Note saveNote(Note note, String uId, String token) throws IOException, InterruptedException {
         String body = NoteUtil.buildJsonNote(note);
-        HttpRequest request = HttpRequest.newBuilder()
-                .POST(HttpRequest.BodyPublishers.ofString(body))
-                .uri(URI.create(Constants.BASEURL + "/api/notes/save/" + uId))
-                .setHeader("Authorization", "Bearer " + token)
+        return parseNote(BackendClient.sendJson(client, saveNoteRequest(uId, token), body));
+    }
+
+    /**
+     * Asynchronous variant of {@link #saveNote(Note, String, String)}
+     * <p>
+     * The request body is built before this method returns, so later
+     * changes to the note are not sent.
+     * @param note Note to save
+     * @param uId user id
+     * @param token token of the user
+     * @return future of the saved Note, completed exceptionally if the request fails
+     */
+    public CompletableFuture<Note> saveNoteAsync(Note note, String uId, String token) {
+        return saveJsonAsync(NoteUtil.buildJsonNote(note), uId, token);
+    }
+
+    /**
+     * Saves a note that has already been converted to JSON
+     * @param json JSON of the note
+     * @param uId user id
+     * @param token token of the user
+     * @return future of the saved Note, completed exceptionally if the request fails
+     */
+    CompletableFuture<Note> saveJsonAsync(String json, String uId, String token) {
+        return BackendClient.sendJsonAsync(client, saveNoteRequest(uId, token), json, NoteConnection::parseNote);
+    }
+
+    /**
+     * Saves a note that has already been converted to JSON, without parsing the saved note from the response
+     * @param json JSON of the note
+     * @param uId user id
+     * @param token token of the user
+     * @return future of the status code of the response, completed exceptionally if the request fails
+     */
+    CompletableFuture<Integer> saveJsonStatusAsync(String json, String uId, String token) {
+        return BackendClient.sendJsonAsync(client, saveNoteRequest(uId, token), json, HttpResponse::statusCode);
+    }
+
+    /**
+     * Saves several notes with one request to the batch endpoint
+     * <p>
+     * The body is a JSON array of the given notes.
+     * @param jsonNotes JSON of each note
+     * @param uId user id
+     * @param token token of the user
+     * @return future of the status code of the response, completed exceptionally if the request fails
+     */
+    CompletableFuture<Integer> saveBatchAsync(List<String> jsonNotes, String uId, String token) {
+        String body = "[" + String.join(",", jsonNotes) + "]";
+        HttpRequest.Builder request = BackendClient.newRequest("/api/notes/save/batch/" + uId)
+                .setHeader("Authorization", "Bearer " + token);
+        return BackendClient.sendJsonAsync(client, request, body, HttpResponse::statusCode);
+    }
+
+    /**
+     * Saves a note to the database streaming its content
+     * <p>
+     * Same as {@link #saveNote(Note, String, String)}, but the content of the note
+     * is read from the given stream while the request body is sent. Used for large
+     * notes so that the body is never held in memory as a whole.
+     * @param note Note to save, its content is ignored
+     * @param content supplies a new stream of the encrypted content for every attempt
+     * @param uId user id
+     * @param token token of the user
+     * @return saved Note
+     * @throws IOException if sent request is incorrect
+     * @throws InterruptedException if connection is interrupted
+     */
+    public Note saveNote(Note note, Supplier<InputStream> content, String uId, String token) throws IOException, InterruptedException {
+        return parseNote(BackendClient.send(client, streamingSaveNoteRequest(note, content, uId, token)));
+    }
+
+    /**
+     * Asynchronous variant of {@link #saveNote(Note, Supplier, String, String)}
+     * @param note Note to save, its content is ignored
+     * @param content supplies a new stream of the encrypted content for every attempt
+     * @param uId user id
+     * @param token token of the user
+     * @return future of the saved Note, completed exceptionally if the request fails
+     */
+    public CompletableFuture<Note> saveNoteAsync(Note note, Supplier<InputStream> content, String uId, String token) {
+        return BackendClient.sendAsync(client, streamingSaveNoteRequest(note, content, uId, token),
+                NoteConnection::parseNote);
+    }
+
+    private HttpRequest.Builder saveNoteRequest(String uId, String token) {
+        return BackendClient.newRequest("/api/notes/save/" + uId)
+                .setHeader("Authorization", "Bearer " + token);
+    }
+
+    /**
+     * Builds a save request whose body is streamed. The body is not compressed,
+     * the encrypted content in it would not get much smaller.
+     */
+    private HttpRequest streamingSaveNoteRequest(Note note, Supplier<InputStream> content, String uId, String token) {
+        return saveNoteRequest(uId, token)
+                .POST(HttpRequest.BodyPublishers.ofInputStream(() -> NoteUtil.buildJsonNote(note, content.get())))
                 .setHeader("Content-Type", "application/json")
                 .build();
+    }
 
-        HttpResponse<String> response = client.send(request, BodyHandlers.ofString());
-
+    private static Note parseNote(HttpResponse<String> response) {
         if (response.statusCode() != 200 || response.body().equals(""))
             return null;
 
@@ -113,17 +427,32 @@ public class NoteConnection {
      * @throws InterruptedException if connection is interrupted
      */
     public Boolean deleteNote(String noteId, String uId, String token) throws IOException, InterruptedException {
-        HttpRequest request = HttpRequest.newBuilder()
+        return parseDeleted(BackendClient.send(client, deleteNoteRequest(noteId, uId, token)));
+    }
+
+    /**
+     * Asynchronous variant of {@link #deleteNote(String, String, String)}
+     * @param noteId note to delete
+     * @param uId user id
+     * @param token token of the user
+     * @return future of true if succesfully deleted, completed exceptionally if the request fails
+     */
+    public CompletableFuture<Boolean> deleteNoteAsync(String noteId, String uId, String token) {
+        return BackendClient.sendAsync(client, deleteNoteRequest(noteId, uId, token),
+                NoteConnection::parseDeleted);
+    }
+
+    private HttpRequest deleteNoteRequest(String noteId, String uId, String token) {
+        return BackendClient.newRequest("/api/notes/delete/" + uId + "/" + noteId)
                 .DELETE()
-                .uri(URI.create(Constants.BASEURL + "/api/notes/delete/" + uId + "/" + noteId))
                 .setHeader("Authorization", "Bearer " + token)
                 .build();
+    }
 
-        HttpResponse<String> response = client.send(request, BodyHandlers.ofString());
+    private static Boolean parseDeleted(HttpResponse<String> response) {
         if (response.statusCode() != 200)
             return false;
         return Boolean.valueOf(response.body());
-
     }
 
 }
@@ -0,0 +1,193 @@
+package noteApp.model.backend;
+
+import noteApp.model.note.Note;
+import noteApp.utils.note.NoteUtil;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Singleton class that collects note saves and sends them to the backend in batches
+ * <p>
+ * A saved note is converted to JSON right away and held for {@link #WINDOW_MILLIS}.
+ * Saving the same note again within the window replaces the held JSON, so only the
+ * latest version is sent. When the window ends, all held notes of a user are sent with
+ * one request to the batch endpoint. If the backend has no batch endpoint, the notes
+ * are sent one by one instead, and later batches skip the batch endpoint.
+ */
+public class NoteSaveBatcher {
+    /**
+     * Time in milliseconds that saves are collected before they are sent
+     */
+    static final long WINDOW_MILLIS = 500;
+
+    /**
+     * Number of held notes that sends the batch before the window ends
+     */
+    static final int MAX_BATCH_SIZE = 50;
+
+    /**
+     * Instance of the class
+     */
+    private static NoteSaveBatcher INSTANCE;
+
+    private final NoteConnection connection;
+
+    /**
+     * Ends the collection windows. The thread is a daemon so held saves do not keep the application running.
+     */
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "note-save-batcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Held saves by user and note id, in the order they were first saved
+     */
+    private final Map<String, PendingSave> pending = new LinkedHashMap<>();
+
+    private ScheduledFuture<?> scheduledFlush;
+
+    /**
+     * Set once the backend has answered that it has no batch endpoint
+     */
+    private volatile boolean batchUnsupported;
+
+    private NoteSaveBatcher(NoteConnection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Returns the instance of the class
+     * @return instance of the class
+     */
+    public static synchronized NoteSaveBatcher getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new NoteSaveBatcher(NoteConnection.getInstance());
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Holds a note to be saved with the next batch
+     * <p>
+     * The note is converted to JSON before this method returns, so later changes to
+     * the note are not sent.
+     * @param note Note to save
+     * @param uId user id
+     * @param token token of the user
+     * @return future completed when the note has been saved, completed exceptionally if saving fails
+     */
+    public synchronized CompletableFuture<Void> save(Note note, String uId, String token) {
+        String json = NoteUtil.buildJsonNote(note);
+        String key = uId + "/" + note.getId();
+        PendingSave save = pending.get(key);
+        if (save == null) {
+            save = new PendingSave(uId, token);
+            pending.put(key, save);
+        }
+        save.json = json;
+        save.token = token;
+
+        if (pending.size() >= MAX_BATCH_SIZE) {
+            scheduler.execute(this::flush);
+        } else if (scheduledFlush == null) {
+            scheduledFlush = scheduler.schedule(this::flush, WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        return save.future;
+    }
+
+    /**
+     * Sends all held notes now.
+     * @return future completed when every held note has been saved or failed
+     */
+    public CompletableFuture<Void> flush() {
+        List<PendingSave> saves;
+        synchronized (this) {
+            if (scheduledFlush != null) {
+                scheduledFlush.cancel(false);
+                scheduledFlush = null;
+            }
+            saves = new ArrayList<>(pending.values());
+            pending.clear();
+        }
+        Map<String, List<PendingSave>> byUser = saves.stream()
+                .collect(Collectors.groupingBy(save -> save.uId, LinkedHashMap::new, Collectors.toList()));
+        return CompletableFuture.allOf(byUser.values().stream()
+                .map(this::send)
+                .toArray(CompletableFuture[]::new));
+    }
+
+    /**
+     * Sends the held notes of one user, as a batch if possible.
+     */
+    private CompletableFuture<Void> send(List<PendingSave> saves) {
+        PendingSave last = saves.get(saves.size() - 1);
+        if (batchUnsupported || saves.size() == 1) {
+            return sendEach(saves);
+        }
+        List<String> json = saves.stream().map(save -> save.json).collect(Collectors.toList());
+        return connection.saveBatchAsync(json, last.uId, last.token)
+                .thenCompose(status -> {
+                    if (status == 404 || status == 405 || status == 501) {
+                        batchUnsupported = true;
+                        return sendEach(saves);
+                    }
+                    if (status != 200) {
+                        saves.forEach(save -> save.future.completeExceptionally(
+                                new IllegalStateException("Batch save failed with status " + status)));
+                    } else {
+                        saves.forEach(save -> save.future.complete(null));
+                    }
+                    return CompletableFuture.<Void>completedFuture(null);
+                })
+                .exceptionally(e -> {
+                    saves.forEach(save -> save.future.completeExceptionally(e));
+                    return null;
+                });
+    }
+
+    /**
+     * Sends the held notes one request per note. A note the database does not answer with 200 has failed.
+     */
+    private CompletableFuture<Void> sendEach(List<PendingSave> saves) {
+        return CompletableFuture.allOf(saves.stream()
+                .map(save -> connection.saveJsonStatusAsync(save.json, save.uId, save.token)
+                        .whenComplete((status, e) -> {
+                            if (e != null) {
+                                save.future.completeExceptionally(e);
+                            } else if (status == null || status != 200) {
+                                save.future.completeExceptionally(
+                                        new IllegalStateException("Save failed with status " + status));
+                            } else {
+                                save.future.complete(null);
+                            }
+                        })
+                        .exceptionally(e -> null))
+                .toArray(CompletableFuture[]::new));
+    }
+
+    /**
+     * Latest JSON of a held note and the future of its callers.
+     */
+    private static class PendingSave {
+        private final String uId;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private String token;
+        private String json;
+
+        PendingSave(String uId, String token) {
+            this.uId = uId;
+            this.token = token;
+        }
+    }
+}
@@ -1,18 +1,17 @@
 package noteApp.model.backend;
 
-import noteApp.model.Constants;
-
 import java.io.IOException;
-import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.net.http.HttpRequest.BodyPublishers;
-import java.net.http.HttpResponse.BodyHandlers;
+import java.util.concurrent.CompletableFuture;
 
 
 /**
  * Singleton class for handling connections to the backend of the application
+ * <p>
+ * Like {@link NoteConnection} every request has a blocking and an asynchronous variant.
  * @author Jere Salmensaari
  */
 public class UserConnection {
@@ -30,8 +29,7 @@ public class UserConnection {
 	 * Constructor, builds a new HttpClient
 	 */
 	private UserConnection() {
-		client = HttpClient.newBuilder()
-			.build();
+		client = BackendClient.create();
 	}
 
 	/**
@@ -52,16 +50,21 @@ public class UserConnection {
      * @throws InterruptedException If connection is interrupted
 	 */
 	public String ping() throws IOException, InterruptedException {
-		HttpRequest request = HttpRequest.newBuilder()
-				.GET()
-				.uri(URI.create(Constants.BASEURL+"/ping"))
-				.build();
-		HttpResponse<String> response = client.send(request, BodyHandlers.ofString());
-		if (response.statusCode() != 200)
-			return null;
+		return bodyOrNull(BackendClient.send(client, pingRequest()));
+	}
 
-		return response.body();
+	/**
+	 * Asynchronous variant of {@link #ping()}
+	 * @return future of the response from the database, completed exceptionally if the request fails
+	 */
+	public CompletableFuture<String> pingAsync() {
+		return BackendClient.sendAsync(client, pingRequest(), UserConnection::bodyOrNull);
+	}
 
+	private HttpRequest pingRequest() {
+		return BackendClient.newRequest("/ping")
+				.GET()
+				.build();
 	}
 
 	/**
@@ -76,16 +79,18 @@ public class UserConnection {
 	 * @throws InterruptedException if connection is interrupted
 	 */
 	public String login(String username, String password) throws IOException, InterruptedException {
-		String body = "{ \"username\":\""+username+"\",\"password\":\""+password+"\"}";
-		HttpRequest request = HttpRequest.newBuilder()
-				.POST(BodyPublishers.ofString(body))
-				.uri(URI.create(Constants.BASEURL+"/api/login"))
-				.setHeader("Content-Type", "application/json")
-				.build();
-		HttpResponse<String> response = client.send(request, BodyHandlers.ofString());
-		if (response.statusCode() != 200)
-			return null;
-		return response.body();
+		return bodyOrNull(BackendClient.send(client, credentialsRequest("/api/login", username, password)));
+	}
+
+	/**
+	 * Asynchronous variant of {@link #login(String, String)}
+	 * @param username username to log in with
+	 * @param password password to log in with
+	 * @return future of the user id and token, completed exceptionally if the request fails
+	 */
+	public CompletableFuture<String> loginAsync(String username, String password) {
+		return BackendClient.sendAsync(client, credentialsRequest("/api/login", username, password),
+				UserConnection::bodyOrNull);
 	}
 
 	/**
@@ -101,19 +106,18 @@ public class UserConnection {
 	 * @throws InterruptedException if connection is interrupted
 	 */
 	public String createUser(String username, String password) throws IOException, InterruptedException {
-		String body = "{ \"username\":\""+username+"\",\"password\":\""+password+"\"}";
-		
-		HttpRequest request = HttpRequest.newBuilder()
-				.POST(BodyPublishers.ofString(body))
-				.uri(URI.create(Constants.BASEURL+"/api/user"))
-				.setHeader("Content-Type", "application/json")
-				.build();
-		HttpResponse<String> response = client.send(request, BodyHandlers.ofString());
-		if (response.statusCode() != 200)
-			return null;
-
-		return response.body();
+		return bodyOrNull(BackendClient.send(client, credentialsRequest("/api/user", username, password)));
+	}
 
+	/**
+	 * Asynchronous variant of {@link #createUser(String, String)}
+	 * @param username username to create
+	 * @param password password to create
+	 * @return future of the user id, completed exceptionally if the request fails
+	 */
+	public CompletableFuture<String> createUserAsync(String username, String password) {
+		return BackendClient.sendAsync(client, credentialsRequest("/api/user", username, password),
+				UserConnection::bodyOrNull);
 	}
 
 	/**
@@ -128,14 +132,41 @@ public class UserConnection {
 	 * @throws InterruptedException if connection is interrupted
 	 */
 	public Boolean deleteUser(String uId, String token) throws IOException, InterruptedException {
+		return parseDeleted(BackendClient.send(client, deleteUserRequest(uId, token)));
+	}
+
+	/**
+	 * Asynchronous variant of {@link #deleteUser(String, String)}
+	 * @param uId id of the user to be deleted
+	 * @param token token of the user to be deleted
+	 * @return future of true if succesfull, completed exceptionally if the request fails
+	 */
+	public CompletableFuture<Boolean> deleteUserAsync(String uId, String token) {
+		return BackendClient.sendAsync(client, deleteUserRequest(uId, token), UserConnection::parseDeleted);
+	}
+
+	private HttpRequest credentialsRequest(String path, String username, String password) {
+		String body = "{ \"username\":\""+username+"\",\"password\":\""+password+"\"}";
+		return BackendClient.newRequest(path)
+				.POST(BodyPublishers.ofString(body))
+				.setHeader("Content-Type", "application/json")
+				.build();
+	}
 
-		HttpRequest request = HttpRequest.newBuilder()
+	private HttpRequest deleteUserRequest(String uId, String token) {
+		return BackendClient.newRequest("/api/user/delete/"+uId)
 				.DELETE()
-				.uri(URI.create(Constants.BASEURL+"/api/user/delete/"+uId))
 				.setHeader("Authorization", "Bearer "+token)
 				.build();
+	}
+
+	private static String bodyOrNull(HttpResponse<String> response) {
+		if (response.statusCode() != 200)
+			return null;
+		return response.body();
+	}
 
-		HttpResponse<String> response = client.send(request, BodyHandlers.ofString());
+	private static Boolean parseDeleted(HttpResponse<String> response) {
 		if (response.statusCode() != 200)
 			return false;
 		return Boolean.valueOf(response.body());
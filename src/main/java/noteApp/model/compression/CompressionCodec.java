@@ -0,0 +1,42 @@
+package noteApp.model.compression;
+
+/**
+ * Interface for compression codecs of note content.
+ * <p>
+ * Compressed data starts with a two byte header: {@link #MAGIC} followed by the {@link #getId() id} of the codec
+ * that wrote it, so {@link CompressionCodecs#decompress(byte[])} can pick the right codec when reading. No UTF-8
+ * text starts with {@link #MAGIC}, which tells compressed content apart from uncompressed content.
+ */
+public interface CompressionCodec {
+
+    /**
+     * First byte of all compressed data.
+     */
+    byte MAGIC = (byte) 0xFF;
+
+    /**
+     * Size of the header written in front of the compressed data.
+     */
+    int HEADER_SIZE = 2;
+
+    /**
+     * Returns the id written after {@link #MAGIC}.
+     * @return id of the codec.
+     */
+    byte getId();
+
+    /**
+     * Compresses the given bytes.
+     * @param input bytes to compress.
+     * @return header followed by the compressed bytes.
+     */
+    byte[] compress(byte[] input);
+
+    /**
+     * Decompresses bytes made with {@link #compress(byte[])}.
+     * @param input header followed by the compressed bytes.
+     * @return decompressed bytes.
+     * @throws IllegalArgumentException if the input was not written by this codec or is corrupted.
+     */
+    byte[] decompress(byte[] input);
+}
@@ -0,0 +1,64 @@
+package noteApp.model.compression;
+
+/**
+ * Finds the codec that compressed data was written with.
+ */
+public final class CompressionCodecs {
+
+    private static final CompressionCodec LZW = new LzwCodec();
+    private static final CompressionCodec DEFLATE = new DeflateCodec();
+    private static final CompressionCodec FAST_LZ = new FastLzCodec();
+
+    private CompressionCodecs() {
+    }
+
+    /**
+     * Returns true if the given bytes start with the header of a known codec.
+     * @param data bytes to check.
+     * @return true if the bytes are compressed.
+     */
+    public static boolean isCompressed(byte[] data) {
+        return data.length >= CompressionCodec.HEADER_SIZE && data[0] == CompressionCodec.MAGIC
+                && find(data[1]) != null;
+    }
+
+    /**
+     * Returns the codec with the given id.
+     * @param id id of the codec.
+     * @return codec with the given id.
+     * @throws IllegalArgumentException if there is no codec with the id.
+     */
+    public static CompressionCodec forId(byte id) {
+        CompressionCodec codec = find(id);
+        if (codec == null) {
+            throw new IllegalArgumentException("Unknown compression codec " + id);
+        }
+        return codec;
+    }
+
+    /**
+     * Decompresses data with the codec named in its header.
+     * @param data compressed bytes.
+     * @return decompressed bytes.
+     * @throws IllegalArgumentException if the data is not compressed with a known codec or is corrupted.
+     */
+    public static byte[] decompress(byte[] data) {
+        if (data.length < CompressionCodec.HEADER_SIZE || data[0] != CompressionCodec.MAGIC) {
+            throw new IllegalArgumentException("Data is not compressed");
+        }
+        return forId(data[1]).decompress(data);
+    }
+
+    private static CompressionCodec find(byte id) {
+        switch (id) {
+            case LzwCodec.ID:
+                return LZW;
+            case DeflateCodec.ID:
+                return DEFLATE;
+            case FastLzCodec.ID:
+                return FAST_LZ;
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package noteApp.model.compression;
+
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Codec using the Deflate implementation of {@link java.util.zip}.
+ * <p>
+ * The header is followed by the length of the uncompressed data as four big endian bytes and a zlib stream.
+ */
+public class DeflateCodec implements CompressionCodec {
+
+    /**
+     * Id of the codec.
+     */
+    public static final byte ID = 1;
+
+    private static final int LENGTH_SIZE = 4;
+
+    /**
+     * Upper bound of the uncompressed size per compressed byte. Deflate expands a byte to at most 1032 bytes, so a
+     * larger stored length means the data is corrupted.
+     */
+    private static final long MAX_RATIO = 1032L;
+
+    /**
+     * Compression level between {@link Deflater#BEST_SPEED} and {@link Deflater#BEST_COMPRESSION}.
+     */
+    private final int level;
+
+    /**
+     * Creates a codec compressing with the default level.
+     */
+    public DeflateCodec() {
+        this(Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Creates a codec compressing with the given level.
+     * @param level compression level from 0 to 9, or {@link Deflater#DEFAULT_COMPRESSION}.
+     */
+    public DeflateCodec(int level) {
+        if ((level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION)
+                && level != Deflater.DEFAULT_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid compression level " + level);
+        }
+        this.level = level;
+    }
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
+    @Override
+    public byte[] compress(byte[] input) {
+        Deflater deflater = new Deflater(level);
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            byte[] out = new byte[HEADER_SIZE + LENGTH_SIZE + input.length / 2 + 64];
+            out[0] = MAGIC;
+            out[1] = ID;
+            writeInt(out, HEADER_SIZE, input.length);
+            int length = HEADER_SIZE + LENGTH_SIZE;
+            while (!deflater.finished()) {
+                if (length == out.length) {
+                    out = Arrays.copyOf(out, out.length * 2);
+                }
+                length += deflater.deflate(out, length, out.length - length);
+            }
+            return Arrays.copyOf(out, length);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    @Override
+    public byte[] decompress(byte[] input) {
+        if (input.length < HEADER_SIZE + LENGTH_SIZE || input[0] != MAGIC || input[1] != ID) {
+            throw new IllegalArgumentException("Not deflate compressed data");
+        }
+        int length = readInt(input, HEADER_SIZE);
+        if (length < 0 || length > MAX_RATIO * input.length) {
+            throw new IllegalArgumentException("Invalid length " + length);
+        }
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(input, HEADER_SIZE + LENGTH_SIZE, input.length - HEADER_SIZE - LENGTH_SIZE);
+            byte[] out = new byte[length];
+            int off = 0;
+            while (!inflater.finished()) {
+                int n = inflater.inflate(out, off, length - off);
+                if (n == 0 && !inflater.finished()) {
+                    throw new IllegalArgumentException("Truncated or corrupted deflate data");
+                }
+                off += n;
+            }
+            if (off != length) {
+                throw new IllegalArgumentException("Invalid length " + length);
+            }
+            return out;
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Corrupted deflate data", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Writes an int as four big endian bytes.
+     */
+    static void writeInt(byte[] b, int off, int value) {
+        b[off] = (byte) (value >>> 24);
+        b[off + 1] = (byte) (value >>> 16);
+        b[off + 2] = (byte) (value >>> 8);
+        b[off + 3] = (byte) value;
+    }
+
+    /**
+     * Reads four big endian bytes as an int.
+     */
+    static int readInt(byte[] b, int off) {
+        return (b[off] & 0xff) << 24 | (b[off + 1] & 0xff) << 16 | (b[off + 2] & 0xff) << 8 | (b[off + 3] & 0xff);
+    }
+}
@@ -0,0 +1,181 @@
+package noteApp.model.compression;
+
+import java.util.Arrays;
+
+/**
+ * Fast LZ77 codec in the style of the LZ4 block format. Trades compression ratio for speed, which makes it the
+ * choice for large payloads.
+ * <p>
+ * The header is followed by the length of the uncompressed data as four big endian bytes and a list of sequences.
+ * A sequence is a token byte, whose high nibble is the number of literals and low nibble the match length minus
+ * {@link #MIN_MATCH}, followed by the literals, a two byte little endian offset and the match. A nibble of 15 is
+ * continued in the following bytes, each adding its value until one is below 255. The last sequence has literals
+ * only.
+ */
+public class FastLzCodec implements CompressionCodec {
+
+    /**
+     * Id of the codec.
+     */
+    public static final byte ID = 2;
+
+    private static final int LENGTH_SIZE = 4;
+
+    /**
+     * Upper bound of the uncompressed size per compressed byte. A continuation byte expands to at most 255 bytes,
+     * so a larger stored length means the data is corrupted.
+     */
+    private static final long MAX_RATIO = 255L;
+    private static final int MIN_MATCH = 4;
+    private static final int MAX_OFFSET = 65535;
+    private static final int HASH_BITS = 14;
+
+    /**
+     * Matches are searched less often the longer no match has been found, so incompressible data passes quickly.
+     */
+    private static final int SKIP_SHIFT = 6;
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
+    @Override
+    public byte[] compress(byte[] input) {
+        int length = input.length;
+        byte[] out = new byte[HEADER_SIZE + LENGTH_SIZE + length + length / 255 + 16];
+        out[0] = MAGIC;
+        out[1] = ID;
+        DeflateCodec.writeInt(out, HEADER_SIZE, length);
+        int pos = HEADER_SIZE + LENGTH_SIZE;
+
+        // Last position + 1 of each hashed four byte sequence, 0 if none
+        int[] table = new int[1 << HASH_BITS];
+        int anchor = 0;
+        int i = 0;
+        while (i + MIN_MATCH <= length) {
+            int sequence = readIntLE(input, i);
+            int slot = (sequence * 0x9E3779B1) >>> (32 - HASH_BITS);
+            int ref = table[slot] - 1;
+            table[slot] = i + 1;
+            if (ref < 0 || i - ref > MAX_OFFSET || readIntLE(input, ref) != sequence) {
+                i += 1 + ((i - anchor) >>> SKIP_SHIFT);
+                continue;
+            }
+            int match = MIN_MATCH;
+            while (i + match < length && input[ref + match] == input[i + match]) {
+                match++;
+            }
+
+            int literals = i - anchor;
+            int token = pos++;
+            out[token] = (byte) (Math.min(literals, 15) << 4 | Math.min(match - MIN_MATCH, 15));
+            pos = writeLength(out, pos, literals);
+            System.arraycopy(input, anchor, out, pos, literals);
+            pos += literals;
+            out[pos++] = (byte) (i - ref);
+            out[pos++] = (byte) ((i - ref) >>> 8);
+            pos = writeLength(out, pos, match - MIN_MATCH);
+            i += match;
+            anchor = i;
+        }
+
+        int literals = length - anchor;
+        out[pos++] = (byte) (Math.min(literals, 15) << 4);
+        pos = writeLength(out, pos, literals);
+        System.arraycopy(input, anchor, out, pos, literals);
+        pos += literals;
+        return Arrays.copyOf(out, pos);
+    }
+
+    @Override
+    public byte[] decompress(byte[] input) {
+        if (input.length < HEADER_SIZE + LENGTH_SIZE || input[0] != MAGIC || input[1] != ID) {
+            throw new IllegalArgumentException("Not fast lz compressed data");
+        }
+        int length = DeflateCodec.readInt(input, HEADER_SIZE);
+        if (length < 0 || length > MAX_RATIO * input.length) {
+            throw new IllegalArgumentException("Invalid length " + length);
+        }
+        byte[] out = new byte[length];
+        int op = 0;
+        int ip = HEADER_SIZE + LENGTH_SIZE;
+        int end = input.length;
+        while (ip < end) {
+            int token = input[ip++] & 0xff;
+            int literals = token >>> 4;
+            if (literals == 15) {
+                int b;
+                do {
+                    check(ip < end);
+                    b = input[ip++] & 0xff;
+                    literals += b;
+                } while (b == 255);
+            }
+            check(literals <= end - ip && literals <= length - op);
+            System.arraycopy(input, ip, out, op, literals);
+            ip += literals;
+            op += literals;
+            if (ip == end) {
+                break;
+            }
+
+            check(end - ip >= 2);
+            int offset = (input[ip] & 0xff) | (input[ip + 1] & 0xff) << 8;
+            ip += 2;
+            int match = token & 15;
+            if (match == 15) {
+                int b;
+                do {
+                    check(ip < end);
+                    b = input[ip++] & 0xff;
+                    match += b;
+                } while (b == 255);
+            }
+            match += MIN_MATCH;
+            check(offset > 0 && offset <= op && match <= length - op);
+            if (offset >= match) {
+                System.arraycopy(out, op - offset, out, op, match);
+                op += match;
+            } else {
+                for (int k = 0; k < match; k++, op++) {
+                    out[op] = out[op - offset];
+                }
+            }
+        }
+        check(op == length);
+        return out;
+    }
+
+    /**
+     * Writes the continuation bytes of a length whose nibble is 15.
+     */
+    private static int writeLength(byte[] out, int pos, int length) {
+        if (length < 15) {
+            return pos;
+        }
+        length -= 15;
+        while (length >= 255) {
+            out[pos++] = (byte) 255;
+            length -= 255;
+        }
+        out[pos++] = (byte) length;
+        return pos;
+    }
+
+    /**
+     * Reads four little endian bytes as an int.
+     */
+    private static int readIntLE(byte[] b, int off) {
+        return (b[off] & 0xff) | (b[off + 1] & 0xff) << 8 | (b[off + 2] & 0xff) << 16 | (b[off + 3] & 0xff) << 24;
+    }
+
+    /**
+     * Throws if the compressed data is corrupted.
+     */
+    private static void check(boolean valid) {
+        if (!valid) {
+            throw new IllegalArgumentException("Corrupted fast lz data");
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package noteApp.model.compression;
+
+import noteApp.model.BinaryLzw;
+
+/**
+ * Codec for the variable width lzw format of {@link BinaryLzw}.
+ * <p>
+ * Compresses text well but is slower than {@link FastLzCodec}. Its id is the largest code width that
+ * {@link BinaryLzw} writes after the magic byte, so content compressed before codecs were tagged reads as this codec.
+ */
+public class LzwCodec implements CompressionCodec {
+
+    /**
+     * Id of the codec.
+     */
+    public static final byte ID = 16;
+
+    private final BinaryLzw lzw = new BinaryLzw();
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
+    @Override
+    public byte[] compress(byte[] input) {
+        return lzw.compress(input);
+    }
+
+    @Override
+    public byte[] decompress(byte[] input) {
+        return lzw.extract(input);
+    }
+}
@@ -9,6 +9,7 @@ import javafx.scene.paint.Color;
 import javafx.application.Platform;
 
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Custom thread that handles saving feature. Contains a timer when reset uses save feature to get recent user made
@@ -91,28 +92,32 @@ public class AutoSaveThread implements Runnable {
     }
 
     /**
-     * Saves provided note to the database.
+     * Saves provided note to the database. The save is sent together with other saves made close together and the
+     * list in view is updated once it has been sent.
      *
      * @param note {Note} note to be saved.
      */
     public void save(Note note) {
         ResourceBundle bundler = ResourceBundle.getBundle("bundles.MyBundle", rlc.getLanguageLocale(rlc.getLanguage()));
         if (note != null) {
+            CompletableFuture<Void> saved;
             try {
-                controller.updateNote(note);
+                saved = controller.updateNoteAsync(note);
             } catch (Exception e) {
-                e.printStackTrace();
+                saved = CompletableFuture.failedFuture(e);
             }
-            Platform.runLater(() -> {
-                new Toast().showToast(this.mlc.getMain().getPrimaryStage(),
-                        note.getTitle() + " " + bundler.getString("saved"),
-                        Color.LIGHTGREEN, 1500, 500, 500);
+            saved.whenComplete((result, e) -> {
+                if (e != null) {
+                    e.printStackTrace();
+                }
+                // The session of the user is bound to the JavaFX thread, so the list is refreshed from there
+                Platform.runLater(() -> {
+                    new Toast().showToast(this.mlc.getMain().getPrimaryStage(),
+                            note.getTitle() + " " + bundler.getString("saved"),
+                            Color.LIGHTGREEN, 1500, 500, 500);
+                    controller.getState().noteSaved(note);
+                });
             });
-            if (mlc.getTitle().getText().equals(bundler.getString("archive"))) {
-                controller.getState().setArchiveList();
-            } else {
-                controller.getState().setList();
-            }
         }
     }
 }
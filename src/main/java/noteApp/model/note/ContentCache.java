@@ -0,0 +1,102 @@
+package noteApp.model.note;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of decrypted note content, keyed by note id and the time the note was last modified. Only the latest
+ * version of a note is kept, content cached for another modification time is a miss.
+ * <p>
+ * The size of the cache is the total number of characters of the content in it. When it grows over the limit the
+ * least recently read content is forgotten first, and is decrypted again the next time the note is opened.
+ */
+final class ContentCache {
+
+    private final long maxChars;
+    private long chars;
+
+    private final Map<String, Cached> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Creates an empty cache
+     * @param maxChars total number of characters kept in the cache
+     */
+    ContentCache(long maxChars) {
+        this.maxChars = maxChars;
+    }
+
+    /**
+     * Returns the cached content of a note
+     * @param id id of the note
+     * @param date time the note was last modified in milliseconds since the epoch
+     * @return decrypted content, null if it is not cached
+     */
+    synchronized String get(String id, long date) {
+        Cached cached = entries.get(id);
+        return cached != null && cached.date == date ? cached.content : null;
+    }
+
+    /**
+     * Caches the content of a note, replacing content cached for other versions of the note. Content longer than
+     * the whole cache is not cached.
+     * @param id id of the note
+     * @param date time the note was last modified in milliseconds since the epoch
+     * @param content decrypted content
+     */
+    synchronized void put(String id, long date, String content) {
+        remove(id);
+        if (content.length() > maxChars) {
+            return;
+        }
+        entries.put(id, new Cached(date, content));
+        chars += content.length();
+        Iterator<Cached> eldest = entries.values().iterator();
+        while (chars > maxChars) {
+            chars -= eldest.next().content.length();
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Forgets the content of a note
+     * @param id id of the note
+     */
+    synchronized void remove(String id) {
+        Cached removed = entries.remove(id);
+        if (removed != null) {
+            chars -= removed.content.length();
+        }
+    }
+
+    synchronized void clear() {
+        entries.clear();
+        chars = 0;
+    }
+
+    /**
+     * Returns the number of characters the cache can hold
+     * @return number of characters
+     */
+    long getMaxChars() {
+        return maxChars;
+    }
+
+    /**
+     * Returns the total number of characters of the cached content
+     * @return number of characters
+     */
+    synchronized long size() {
+        return chars;
+    }
+
+    private static class Cached {
+        private final long date;
+        private final String content;
+
+        Cached(long date, String content) {
+            this.date = date;
+            this.content = content;
+        }
+    }
+}
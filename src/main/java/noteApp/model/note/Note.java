@@ -2,10 +2,21 @@ package noteApp.model.note;
 
 import org.bson.types.ObjectId;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 /**
  * Note class for storing details of created notes.
@@ -13,14 +24,56 @@ import java.util.Date;
  * @author Jere Salmensaari
  */
 public class Note implements Serializable {
+    /**
+     * Version of the class before the date was stored as milliseconds, kept so saved notes can still be opened
+     */
+    private static final long serialVersionUID = 1976656838876938319L;
+
+    /**
+     * Fields of the serialized form. The date is written as a Date like before it was stored as milliseconds.
+     */
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("id", ObjectId.class),
+            new ObjectStreamField("userId", String.class),
+            new ObjectStreamField("title", String.class),
+            new ObjectStreamField("content", String.class),
+            new ObjectStreamField("date", Date.class),
+            new ObjectStreamField("tag", Tag.class),
+            new ObjectStreamField("label", String.class)
+    };
+
+    /**
+     * Format of the date in the database
+     */
+    private static final DateTimeFormatter DATE_FORMAT =
+            DateTimeFormatter.ofPattern("HH:mm dd.MM.yyyy").withZone(ZoneId.systemDefault());
+
+    /**
+     * Formats of the date shown to the user by language, the database format for other languages
+     */
+    private static final Map<String, DateTimeFormatter> LOCALIZED_DATE_FORMATS = Map.of(
+            "en", DateTimeFormatter.ofPattern("hh:mm MM/dd/yyyy").withZone(ZoneId.systemDefault()),
+            "es", DateTimeFormatter.ofPattern("HH:mm dd/MM/yyyy").withZone(ZoneId.systemDefault())
+    );
+
     private ObjectId id;
     private String userId;
     private String title;
     private String content;
-    private Date date;
+    private long date;
     private Tag tag;
     private String label;
 
+    /**
+     * Reads the content when it is asked for, null if the content is held in the note
+     */
+    private transient Supplier<String> contentLoader;
+
+    /**
+     * Reads the content without blocking, null if the content is not fetched from elsewhere
+     */
+    private transient Supplier<CompletableFuture<String>> asyncContentLoader;
+
     /**
      * Creates note with null content and title
      */
@@ -29,7 +82,7 @@ public class Note implements Serializable {
         this.title = null;
         this.userId = null;
         this.content = null;
-        this.date = new Date();
+        this.date = System.currentTimeMillis();
         this.tag = Tag.NONE;
         this.label = "";
     }
@@ -44,11 +97,27 @@ public class Note implements Serializable {
         this.title = title;
         this.userId = "";
         this.content = content;
-        this.date = new Date();
+        this.date = System.currentTimeMillis();
         this.tag = Tag.NONE;
         this.label = "";
     }
 
+    /**
+     * Creates a copy of a Note
+     * @param note Note to copy
+     */
+    public Note(Note note) {
+        this.id = note.id;
+        this.title = note.title;
+        this.userId = note.userId;
+        this.content = note.content;
+        this.date = note.date;
+        this.tag = note.tag;
+        this.label = note.label;
+        this.contentLoader = note.contentLoader;
+        this.asyncContentLoader = note.asyncContentLoader;
+    }
+
     /**
      * Returns User Id of the note
      * @return User id of the note
@@ -94,7 +163,25 @@ public class Note implements Serializable {
      * @return Content of the Note
      */
     public String getContent() {
-        return content;
+        Supplier<String> loader = contentLoader;
+        return loader != null ? loader.get() : content;
+    }
+
+    /**
+     * Returns the content of the Note without blocking the calling thread. Content fetched from elsewhere completes
+     * the future when it arrives, other content completes it right away.
+     * @return future of the content, completed exceptionally if the content can not be read
+     */
+    public CompletableFuture<String> getContentAsync() {
+        Supplier<CompletableFuture<String>> loader = asyncContentLoader;
+        if (loader != null) {
+            return loader.get();
+        }
+        try {
+            return CompletableFuture.completedFuture(getContent());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
     }
 
     /**
@@ -103,6 +190,30 @@ public class Note implements Serializable {
      */
     public void setContent(String content) {
         this.content = content;
+        this.contentLoader = null;
+        this.asyncContentLoader = null;
+    }
+
+    /**
+     * Sets the content of the note to be read from the loader every time it is asked for, so it does not have to be
+     * held in the note. Used for content that is decrypted when the note is opened.
+     * @param contentLoader reads the content of the note
+     */
+    public void setContentLoader(Supplier<String> contentLoader) {
+        setContentLoader(contentLoader, null);
+    }
+
+    /**
+     * Sets the content of the note to be read from the loaders every time it is asked for. Used for content that is
+     * fetched from elsewhere when the note is opened.
+     * @param contentLoader reads the content of the note, blocking until it has arrived
+     * @param asyncContentLoader reads the content of the note without blocking, used by {@link #getContentAsync()}
+     */
+    public void setContentLoader(Supplier<String> contentLoader,
+                                 Supplier<CompletableFuture<String>> asyncContentLoader) {
+        this.content = null;
+        this.contentLoader = contentLoader;
+        this.asyncContentLoader = asyncContentLoader;
     }
 
     /**
@@ -110,7 +221,7 @@ public class Note implements Serializable {
      * @return Date the Note was last modified on
      */
     public Date getDate() {
-        return date;
+        return new Date(date);
     }
 
     /**
@@ -118,6 +229,22 @@ public class Note implements Serializable {
      * @param date Date the Note was last modified on
      */
     public void setDate(Date date) {
+        this.date = date.getTime();
+    }
+
+    /**
+     * Returns the time the Note was last modified on
+     * @return milliseconds since the epoch
+     */
+    public long getDateMillis() {
+        return date;
+    }
+
+    /**
+     * Sets the time the Note was last modified on
+     * @param date milliseconds since the epoch
+     */
+    public void setDateMillis(long date) {
         this.date = date;
     }
 
@@ -127,8 +254,18 @@ public class Note implements Serializable {
      * @throws ParseException if Date cannot be parsed
      */
     public String getDateString() throws ParseException {
-        SimpleDateFormat sdf = new SimpleDateFormat("HH:mm dd.MM.yyyy");
-        return sdf.format(this.date);
+        return DATE_FORMAT.format(Instant.ofEpochMilli(this.date));
+    }
+
+    /**
+     * Parses a date in the format of {@link #getDateString()}
+     * @param dateString date to parse
+     * @return milliseconds since the epoch
+     * @throws DateTimeParseException if the date cannot be parsed
+     */
+    public static long parseDateString(String dateString) {
+        return LocalDateTime.parse(dateString, DATE_FORMAT)
+                .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
     }
 
     /**
@@ -138,17 +275,7 @@ public class Note implements Serializable {
      * @throws ParseException if Date cannot be parsed
      */
     public String getLocalizedDateString(String lang) throws ParseException {
-        SimpleDateFormat sdf = new SimpleDateFormat("HH:mm dd.MM.yyyy");
-        switch (lang) {
-            case "en":
-                sdf = new SimpleDateFormat("hh:mm MM/dd/yyyy");
-                break;
-            case "es":
-                sdf = new SimpleDateFormat("HH:mm dd/MM/yyyy");
-                break;
-        }
-
-        return sdf.format(this.date);
+        return LOCALIZED_DATE_FORMATS.getOrDefault(lang, DATE_FORMAT).format(Instant.ofEpochMilli(this.date));
     }
 
     /**
@@ -199,6 +326,30 @@ public class Note implements Serializable {
         this.label = label;
     }
 
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("id", id);
+        fields.put("userId", userId);
+        fields.put("title", title);
+        fields.put("content", getContent());
+        fields.put("date", new Date(date));
+        fields.put("tag", tag);
+        fields.put("label", label);
+        out.writeFields();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        id = (ObjectId) fields.get("id", null);
+        userId = (String) fields.get("userId", null);
+        title = (String) fields.get("title", null);
+        content = (String) fields.get("content", null);
+        Date saved = (Date) fields.get("date", null);
+        date = saved == null ? System.currentTimeMillis() : saved.getTime();
+        tag = (Tag) fields.get("tag", Tag.NONE);
+        label = (String) fields.get("label", "");
+    }
+
     /**
      * Returns a String representation of the Note
      */
@@ -0,0 +1,73 @@
+package noteApp.model.note;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Notes returned by a sync with the database.
+ * <p>
+ * A full sync holds every note of the user. An incremental sync holds only the notes changed and the ids of the
+ * notes deleted since the sync token it was asked with.
+ */
+public class NoteChanges {
+    private final List<Note> notes;
+    private final List<String> deletedIds;
+    private final boolean full;
+    private final String syncToken;
+
+    /**
+     * Creates the result of a sync
+     * @param notes notes in the result, content still encrypted
+     * @param deletedIds ids of the notes deleted since the previous sync, empty for a full sync
+     * @param full true if the notes are every note of the user
+     * @param syncToken token to ask the next changes with, null if the database gave none
+     */
+    public NoteChanges(List<Note> notes, List<String> deletedIds, boolean full, String syncToken) {
+        this.notes = notes;
+        this.deletedIds = deletedIds;
+        this.full = full;
+        this.syncToken = syncToken;
+    }
+
+    /**
+     * Creates the result of a full sync
+     * @param notes every note of the user, content still encrypted
+     * @param syncToken token to ask the next changes with, null if the database gave none
+     * @return result of a full sync
+     */
+    public static NoteChanges full(List<Note> notes, String syncToken) {
+        return new NoteChanges(notes, Collections.emptyList(), true, syncToken);
+    }
+
+    /**
+     * Returns the notes in the result
+     * @return notes in the result
+     */
+    public List<Note> getNotes() {
+        return notes;
+    }
+
+    /**
+     * Returns the ids of the notes deleted since the previous sync
+     * @return ids of the deleted notes
+     */
+    public List<String> getDeletedIds() {
+        return deletedIds;
+    }
+
+    /**
+     * Returns true if the notes are every note of the user
+     * @return true for a full sync
+     */
+    public boolean isFull() {
+        return full;
+    }
+
+    /**
+     * Returns the token to ask the next changes with
+     * @return sync token, null if the database gave none
+     */
+    public String getSyncToken() {
+        return syncToken;
+    }
+}
@@ -3,10 +3,14 @@ package noteApp.model.note;
 import noteApp.model.note.Exceptions.InvalidNoteException;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 /**
  * Data Access Object interface for Note objects. Defines functionality which are needed for Note CRUD operations.
+ * The asynchronous variants do not block the calling thread and are meant to be used from the JavaFX thread.
  * @author Matias Vainio
  */
 public interface NoteDAO {
@@ -19,6 +23,22 @@ public interface NoteDAO {
      */
     List<Note> getAll() throws IOException, InterruptedException;
 
+    /**
+     * Retrieves a single note of the current user with its content.
+     * @param id id of the note.
+     * @return the note, null if it was not found.
+     * @throws IOException if connection url is incorrect
+     * @throws InterruptedException if connection is stopped
+     */
+    Note get(String id) throws IOException, InterruptedException;
+
+    /**
+     * Asynchronous variant of {@link #get(String)}.
+     * @param id id of the note.
+     * @return future of the note, completed with null if it was not found.
+     */
+    CompletableFuture<Note> getAsync(String id);
+
     /**
      * Creates a Note object which is passed to the database.
      * @param note {Note} note object to be passed.
@@ -38,6 +58,16 @@ public interface NoteDAO {
      */
     void update(Note note) throws InvalidNoteException, IOException, InterruptedException;
 
+    /**
+     * Updates a Note in database streaming its content instead of reading it from the note.
+     * @param note Note object that holds new values to be updated.
+     * @param content supplies a new stream of the encrypted content for every attempt.
+     * @throws InvalidNoteException exception is thrown if the note is not valid.
+     * @throws IOException if connection url is incorrect
+     * @throws InterruptedException if connection is stopped
+     */
+    void update(Note note, Supplier<InputStream> content) throws InvalidNoteException, IOException, InterruptedException;
+
     /**
      * Removes provided note.
      * @param note {Note} note to be removed
@@ -46,4 +76,61 @@ public interface NoteDAO {
      */
     void delete(Note note) throws IOException, InterruptedException;
 
+    /**
+     * Asynchronous variant of {@link #getAll()}.
+     * @return future of the list of note objects, completed exceptionally if the request fails.
+     */
+    CompletableFuture<List<Note>> getAllAsync();
+
+    /**
+     * Retrieves the notes of the current user changed since the given sync token.
+     * @param since sync token of the previous sync, null to retrieve every note.
+     * @return future of the changed notes, null if the request was not successful, completed exceptionally if the
+     * request fails.
+     */
+    CompletableFuture<NoteChanges> getChangesAsync(String since);
+
+    /**
+     * Retrieves a page of the current user's notes without their content, newest first.
+     * @param archived true to list the archived notes, false to list the others.
+     * @param offset position of the first note of the page.
+     * @param limit maximum number of notes on the page.
+     * @return future of the page, null if the database has no paged listing or the request was not successful,
+     * completed exceptionally if the request fails.
+     */
+    CompletableFuture<NotePage> getPageAsync(boolean archived, int offset, int limit);
+
+    /**
+     * Asynchronous variant of {@link #create(Note)}.
+     * @param note {Note} note object to be passed.
+     * @return future of the created note, completed exceptionally with {@link InvalidNoteException} if the note
+     * is not valid or with the cause of the failure if the request fails.
+     */
+    CompletableFuture<Note> createAsync(Note note);
+
+    /**
+     * Asynchronous variant of {@link #update(Note)}. Saves made close together may be sent to the database with a
+     * single request.
+     * @param note Note object that holds new values to be updated.
+     * @return future completed when the note is saved, completed exceptionally with {@link InvalidNoteException}
+     * if the note is not valid or with the cause of the failure if the request fails.
+     */
+    CompletableFuture<Void> updateAsync(Note note);
+
+    /**
+     * Asynchronous variant of {@link #update(Note, Supplier)}.
+     * @param note Note object that holds new values to be updated.
+     * @param content supplies a new stream of the encrypted content for every attempt.
+     * @return future completed when the note is saved, completed exceptionally with {@link InvalidNoteException}
+     * if the note is not valid or with the cause of the failure if the request fails.
+     */
+    CompletableFuture<Void> updateAsync(Note note, Supplier<InputStream> content);
+
+    /**
+     * Asynchronous variant of {@link #delete(Note)}.
+     * @param note {Note} note to be removed
+     * @return future completed when the note is removed, completed exceptionally if the request fails.
+     */
+    CompletableFuture<Void> deleteAsync(Note note);
+
 }
@@ -1,16 +1,23 @@
 package noteApp.model.note;
 
 import noteApp.model.backend.NoteConnection;
+import noteApp.model.backend.NoteSaveBatcher;
 import noteApp.model.note.Exceptions.InvalidNoteException;
 import org.apache.shiro.SecurityUtils;
 import org.apache.shiro.session.Session;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 
 /**
  * Note Data Access Object. Used when accessing note data in database.
+ * <p>
+ * The session is bound to the calling thread, so the asynchronous methods read the user's id and token before the
+ * request leaves the thread.
  *
  * @author Matias Vainio
  */
@@ -26,6 +33,25 @@ public class NoteDAOImpl implements NoteDAO {
         );
     }
 
+    @Override
+    public Note get(String id) throws IOException, InterruptedException {
+        Session session = SecurityUtils.getSubject().getSession();
+
+        return NoteConnection.getInstance().getNote(id,
+                session.getAttribute("id").toString(),
+                session.getAttribute("token").toString()
+        );
+    }
+
+    @Override
+    public CompletableFuture<Note> getAsync(String id) {
+        Session session = SecurityUtils.getSubject().getSession();
+        return NoteConnection.getInstance().getNoteAsync(id,
+                session.getAttribute("id").toString(),
+                session.getAttribute("token").toString()
+        );
+    }
+
     /**
      * Inserts new note to the database.
      *
@@ -60,6 +86,23 @@ public class NoteDAOImpl implements NoteDAO {
         );
     }
 
+    /**
+     * Updates selected note in database streaming its content.
+     *
+     * @param note note to be updated.
+     * @param content supplies a new stream of the encrypted content for every attempt.
+     */
+    @Override
+    public void update(Note note, Supplier<InputStream> content) throws InvalidNoteException, IOException, InterruptedException {
+        if (note.getTitle() == null) {
+            throw new InvalidNoteException("Trying to modify unknown note.");
+        }
+        NoteConnection.getInstance().saveNote(note, content,
+                SecurityUtils.getSubject().getSession().getAttribute("id").toString(),
+                SecurityUtils.getSubject().getSession().getAttribute("token").toString()
+        );
+    }
+
     /**
      * Removes provided note from the database.
      *
@@ -73,4 +116,87 @@ public class NoteDAOImpl implements NoteDAO {
                 SecurityUtils.getSubject().getSession().getAttribute("token").toString()
         );
     }
+
+    @Override
+    public CompletableFuture<List<Note>> getAllAsync() {
+        Session session = SecurityUtils.getSubject().getSession();
+        return NoteConnection.getInstance().getUserNotesAsync(
+                session.getAttribute("id").toString(),
+                session.getAttribute("token").toString()
+        );
+    }
+
+    @Override
+    public CompletableFuture<NoteChanges> getChangesAsync(String since) {
+        Session session = SecurityUtils.getSubject().getSession();
+        return NoteConnection.getInstance().getUserNoteChangesAsync(
+                session.getAttribute("id").toString(),
+                session.getAttribute("token").toString(),
+                since
+        );
+    }
+
+    @Override
+    public CompletableFuture<NotePage> getPageAsync(boolean archived, int offset, int limit) {
+        Session session = SecurityUtils.getSubject().getSession();
+        return NoteConnection.getInstance().getUserNotePageAsync(
+                session.getAttribute("id").toString(),
+                session.getAttribute("token").toString(),
+                archived, offset, limit
+        );
+    }
+
+    @Override
+    public CompletableFuture<Note> createAsync(Note note) {
+        if (note == null)
+            throw new NullPointerException();
+        if (note.getTitle() == null || note.getContent() == null)
+            return CompletableFuture.failedFuture(new InvalidNoteException("Tried to create an empty note"));
+        Session session = SecurityUtils.getSubject().getSession();
+        return NoteConnection.getInstance().saveNoteAsync(note,
+                session.getAttribute("id").toString(),
+                session.getAttribute("token").toString()
+        );
+    }
+
+    /**
+     * Updates selected note in database without blocking. The save is collected with other saves made close
+     * together and sent with them in one request.
+     *
+     * @param note note to be updated.
+     */
+    @Override
+    public CompletableFuture<Void> updateAsync(Note note) {
+        if (note.getTitle() == null && note.getContent() == null) {
+            return CompletableFuture.failedFuture(new InvalidNoteException("Trying to modify unknown note."));
+        }
+        return NoteSaveBatcher.getInstance().save(note,
+                SecurityUtils.getSubject().getSession().getAttribute("id").toString(),
+                SecurityUtils.getSubject().getSession().getAttribute("token").toString()
+        );
+    }
+
+    @Override
+    public CompletableFuture<Void> updateAsync(Note note, Supplier<InputStream> content) {
+        if (note.getTitle() == null) {
+            return CompletableFuture.failedFuture(new InvalidNoteException("Trying to modify unknown note."));
+        }
+        return NoteConnection.getInstance().saveNoteAsync(note, content,
+                SecurityUtils.getSubject().getSession().getAttribute("id").toString(),
+                SecurityUtils.getSubject().getSession().getAttribute("token").toString()
+        ).thenCompose(saved -> saved == null
+                ? CompletableFuture.failedFuture(new IOException("Note was not saved."))
+                : CompletableFuture.completedFuture(null));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteAsync(Note note) {
+        return NoteConnection.getInstance().deleteNoteAsync(
+                note.getId().toString(),
+                SecurityUtils.getSubject().getSession().getAttribute("id").toString(),
+                SecurityUtils.getSubject().getSession().getAttribute("token").toString()
+        ).thenCompose(deleted -> Boolean.TRUE.equals(deleted)
+                ? CompletableFuture.completedFuture(null)
+                : CompletableFuture.failedFuture(new IOException("Note was not deleted.")));
+    }
 }
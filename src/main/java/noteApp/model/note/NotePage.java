@@ -0,0 +1,58 @@
+package noteApp.model.note;
+
+import java.util.List;
+
+/**
+ * One page of a user's notes listed without their content.
+ * <p>
+ * Pages are listed newest first. The content of a note is retrieved separately when the note is opened.
+ */
+public class NotePage {
+    private final List<Note> notes;
+    private final int offset;
+    private final int total;
+
+    /**
+     * Creates a page
+     * @param notes notes on the page, without content
+     * @param offset position of the first note of the page in the whole list
+     * @param total number of notes in the whole list
+     */
+    public NotePage(List<Note> notes, int offset, int total) {
+        this.notes = notes;
+        this.offset = offset;
+        this.total = total;
+    }
+
+    /**
+     * Returns the notes on the page
+     * @return notes on the page
+     */
+    public List<Note> getNotes() {
+        return notes;
+    }
+
+    /**
+     * Returns the position of the first note of the page in the whole list
+     * @return offset of the page
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Returns the number of notes in the whole list
+     * @return number of notes
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * Returns true if there are notes after this page
+     * @return true if there is a next page
+     */
+    public boolean hasMore() {
+        return offset + notes.size() < total;
+    }
+}
@@ -0,0 +1,295 @@
+package noteApp.model.note;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * In-memory copy of the current user's notes.
+ * <p>
+ * Syncs with the database are merged into the store, so only the notes changed since the last sync have to be
+ * downloaded. The content of the notes is kept encrypted and decrypted the first time a note is opened, so a sync
+ * only has to handle the titles, tags and dates the list shows. Decrypted content is kept in a {@link ContentCache}
+ * limited by its total length. After a sync the most recently modified notes can be decrypted into the cache in
+ * parallel with {@link #prefetch(ForkJoinPool)}, so they open without waiting. Notes saved or
+ * deleted by this client are written to the store right away.
+ * <p>
+ * The store keeps its own copies of the notes and hands out copies, so changes made to notes in the view do not
+ * reach the store before they are saved.
+ */
+public class NoteStore {
+    /**
+     * Characters of decrypted content kept in memory by default, about 16 MB
+     */
+    public static final long DEFAULT_CACHED_CHARS = 8L << 20;
+
+    /**
+     * Stored notes by note id, in the order the database lists them
+     */
+    private Map<String, Entry> entries = new LinkedHashMap<>();
+
+    /**
+     * Decrypted content of the notes opened most recently
+     */
+    private final ContentCache cache;
+
+    /**
+     * Decrypter of the last applied sync, used for the notes saved by this client after it
+     */
+    private UnaryOperator<String> decrypter;
+
+    /**
+     * Token of the last sync, null before the first sync or if the database gives no tokens
+     */
+    private String syncToken;
+
+    /**
+     * Notes of the last applied sync. A cached response hands out the same list again when nothing has changed.
+     */
+    private List<Note> appliedNotes;
+
+    /**
+     * Incremented when the store is emptied, so content decrypted for the previous user is not cached
+     */
+    private long generation;
+
+    /**
+     * Creates an empty store keeping {@link #DEFAULT_CACHED_CHARS} characters of decrypted content
+     */
+    public NoteStore() {
+        this(DEFAULT_CACHED_CHARS);
+    }
+
+    /**
+     * Creates an empty store
+     * @param cachedChars number of characters of decrypted content kept in memory
+     */
+    public NoteStore(long cachedChars) {
+        this.cache = new ContentCache(cachedChars);
+    }
+
+    /**
+     * Returns the token to ask the next changes with
+     * @return sync token, null if only a full sync can bring the store up to date
+     */
+    public synchronized String getSyncToken() {
+        return syncToken;
+    }
+
+    /**
+     * Merges the result of a sync into the store. A full sync replaces the stored notes. The notes of the result are
+     * not modified, and a result whose notes are the same list instance as the last applied one is skipped.
+     * Nothing is decrypted here, the returned notes decrypt their content when it is read.
+     * @param changes result of the sync, content of the notes encrypted
+     * @param decrypter decrypts the content of a note, called from the thread reading the content
+     * @return copies of all stored notes
+     */
+    public synchronized List<Note> apply(NoteChanges changes, UnaryOperator<String> decrypter) {
+        this.decrypter = decrypter;
+        if (changes.getNotes() == appliedNotes && changes.getDeletedIds().isEmpty()) {
+            syncToken = changes.getSyncToken();
+            return snapshot();
+        }
+        Map<String, Entry> merged = changes.isFull() ? new LinkedHashMap<>() : entries;
+        for (Note note : changes.getNotes()) {
+            String key = note.getId().toString();
+            String encrypted = note.getContent();
+            Entry entry = entries.get(key);
+            if (entry != null && entry.encrypted != null && !entry.encrypted.equals(encrypted)) {
+                cache.remove(key);
+            }
+            Note stored = new Note(note);
+            if (encrypted != null) {
+                stored.setContent(null);
+            }
+            merged.put(key, new Entry(stored, encrypted, decrypter));
+        }
+        for (String id : changes.getDeletedIds()) {
+            merged.remove(id);
+            cache.remove(id);
+        }
+        entries = merged;
+        syncToken = changes.getSyncToken();
+        appliedNotes = changes.getNotes();
+        return snapshot();
+    }
+
+    /**
+     * Adds or replaces a note saved by this client. Its content is cached as it was opened just now.
+     * @param note note with decrypted content, copied into the store
+     * @param encrypted content of the note as it was sent, null if it is not known
+     */
+    public synchronized void put(Note note, String encrypted) {
+        String key = note.getId().toString();
+        Note stored = new Note(note);
+        stored.setContent(note.getContent());
+        if (encrypted == null || decrypter == null) {
+            cache.remove(key);
+            entries.put(key, new Entry(stored, null, null));
+            return;
+        }
+        cache.put(key, stored.getDateMillis(), stored.getContent());
+        stored.setContent(null);
+        entries.put(key, new Entry(stored, encrypted, decrypter));
+    }
+
+    /**
+     * Removes a note deleted by this client
+     * @param id id of the note
+     */
+    public synchronized void remove(String id) {
+        entries.remove(id);
+        cache.remove(id);
+    }
+
+    /**
+     * Empties the store. Called when the user changes, the next sync is a full one.
+     */
+    public synchronized void clear() {
+        entries = new LinkedHashMap<>();
+        cache.clear();
+        decrypter = null;
+        syncToken = null;
+        appliedNotes = null;
+        generation++;
+    }
+
+    /**
+     * Decrypts the content of the most recently modified notes into the content cache in parallel, until the cache
+     * is full. Every decrypted note is charged with its decrypted length, and a note that does not fit in the cache
+     * any more stops the notes that have not started yet. Notes whose content is cached already are skipped, and a
+     * note that can not be decrypted is left to be decrypted when it is opened. The store is not locked while the
+     * notes are decrypted.
+     * @param pool pool to decrypt the notes in
+     * @return future completed when the notes have been decrypted
+     */
+    public CompletableFuture<Void> prefetch(ForkJoinPool pool) {
+        List<Map.Entry<String, Entry>> pending = new ArrayList<>();
+        long startGeneration;
+        synchronized (this) {
+            startGeneration = generation;
+            for (Map.Entry<String, Entry> stored : entries.entrySet()) {
+                Entry entry = stored.getValue();
+                if (entry.encrypted != null && cache.get(stored.getKey(), entry.note.getDateMillis()) == null) {
+                    pending.add(stored);
+                }
+            }
+            if (cache.size() >= cache.getMaxChars()) {
+                pending.clear();
+            }
+        }
+        if (pending.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        pending.sort(Comparator.comparingLong(
+                (Map.Entry<String, Entry> stored) -> stored.getValue().note.getDateMillis()).reversed());
+
+        AtomicBoolean full = new AtomicBoolean();
+        return CompletableFuture.runAsync(() -> pending.parallelStream().forEach(stored -> {
+            if (full.get()) {
+                return;
+            }
+            Entry entry = stored.getValue();
+            String content;
+            try {
+                content = entry.decrypter.apply(entry.encrypted);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                return;
+            }
+            synchronized (this) {
+                if (generation != startGeneration || full.get()) {
+                    return;
+                }
+                if (cache.size() + content.length() > cache.getMaxChars()) {
+                    full.set(true);
+                    return;
+                }
+                cache.put(stored.getKey(), entry.note.getDateMillis(), content);
+            }
+        }), pool);
+    }
+
+    /**
+     * Returns copies of all stored notes. The content of a note is decrypted when it is read.
+     * @return copies of all stored notes
+     */
+    public synchronized List<Note> snapshot() {
+        List<Note> notes = new ArrayList<>(entries.size());
+        for (Map.Entry<String, Entry> stored : entries.entrySet()) {
+            Entry entry = stored.getValue();
+            Note note = new Note(entry.note);
+            if (entry.encrypted != null) {
+                String key = stored.getKey();
+                note.setContentLoader(() -> content(key, entry));
+            }
+            notes.add(note);
+        }
+        return notes;
+    }
+
+    /**
+     * Returns the decrypted content of a note from the cache, decrypting and caching it if it is not there
+     */
+    private String content(String key, Entry entry) {
+        return content(key, entry.note.getDateMillis(), () -> entry.decrypter.apply(entry.encrypted));
+    }
+
+    /**
+     * Returns the decrypted content of a note from the content cache, loading and caching it if it is not there.
+     * Used for notes that are not in the store, like notes listed without their content.
+     * @param id id of the note
+     * @param date time the note was last modified in milliseconds since the epoch
+     * @param loader reads and decrypts the content of the note
+     * @return decrypted content
+     */
+    public String content(String id, long date, Supplier<String> loader) {
+        String content = cache.get(id, date);
+        if (content == null) {
+            content = loader.get();
+            cache.put(id, date, content);
+        }
+        return content;
+    }
+
+    /**
+     * Returns the decrypted content of a note from the content cache without blocking, loading and caching it if it
+     * is not there. Used for notes whose content is fetched from the database when they are opened.
+     * @param id id of the note
+     * @param date time the note was last modified in milliseconds since the epoch
+     * @param loader starts reading and decrypting the content of the note
+     * @return future of the decrypted content
+     */
+    public CompletableFuture<String> contentAsync(String id, long date, Supplier<CompletableFuture<String>> loader) {
+        String content = cache.get(id, date);
+        if (content != null) {
+            return CompletableFuture.completedFuture(content);
+        }
+        return loader.get().thenApply(loaded -> {
+            cache.put(id, date, loaded);
+            return loaded;
+        });
+    }
+
+    /**
+     * Stored note with its content encrypted, or decrypted if the encrypted content is not known.
+     */
+    private static class Entry {
+        private final Note note;
+        private final String encrypted;
+        private final UnaryOperator<String> decrypter;
+
+        Entry(Note note, String encrypted, UnaryOperator<String> decrypter) {
+            this.note = note;
+            this.encrypted = encrypted;
+            this.decrypter = decrypter;
+        }
+    }
+}
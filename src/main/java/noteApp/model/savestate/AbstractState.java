@@ -6,14 +6,18 @@ import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
 import javafx.scene.control.ButtonType;
 import javafx.scene.control.DialogPane;
+import javafx.scene.paint.Color;
 import noteApp.model.Context;
 import noteApp.model.Filehandler;
 import noteApp.model.note.Note;
 import noteApp.view.MainLayoutController;
+import noteApp.view.Toast;
 
 import java.io.File;
-import java.util.Date;
+import java.nio.file.Path;
+import java.util.List;
 import java.util.ResourceBundle;
+import java.util.stream.Collectors;
 
 import static noteApp.model.DocumentHandler.encode;
 
@@ -82,7 +86,7 @@ public abstract class AbstractState implements SaveState {
 
         mlc.getSaveableNote().setTitle(mlc.getSelectedNote().getTitle());
         mlc.getSaveableNote().setLabel(mlc.getSelectedNote().getLabel());
-        mlc.getSaveableNote().setDate(new Date());
+        mlc.getSaveableNote().setDateMillis(System.currentTimeMillis());
     }
 
     /**
@@ -109,17 +113,47 @@ public abstract class AbstractState implements SaveState {
     }
 
     /**
-     * Gets notes from folder which user has defined in settings as default save location.
+     * Shows an alert listing the files of the notes folder that were skipped because they are not note files.
+     *
+     * @param mlc     MainLayoutController used to get styling.
+     * @param skipped the skipped files.
+     */
+    private void showSkippedFiles(MainLayoutController mlc, List<Path> skipped) {
+        ResourceBundle bundler = ResourceBundle.getBundle("bundles.MyBundle", Context.getInstance().getCurrentLocale());
+        Alert a = new Alert(Alert.AlertType.WARNING);
+        DialogPane d = a.getDialogPane();
+        d.getStylesheets().add(mlc.getRootLayoutController().getMainStyle(mlc.getRootLayoutController().getThemeColor()));
+        d.getStylesheets().add(mlc.getRootLayoutController().getHighlightStyle(mlc.getRootLayoutController().getHighlightColor()));
+        ((Button) d.lookupButton(ButtonType.OK)).setText((bundler.getString("ok")));
+        a.setTitle(bundler.getString("skippedTitle"));
+        a.setHeaderText(bundler.getString("skippedFiles"));
+        a.setContentText(skipped.stream()
+                .map(file -> file.getFileName().toString())
+                .collect(Collectors.joining("\n")));
+        a.show();
+    }
+
+    /**
+     * Gets notes from folder which user has defined in settings as default save location. If the saved notes can not
+     * be opened the user is notified and the note files of the folder are shown instead. Files that are not notes
+     * are listed to the user in one alert.
      */
     @Override
     public void getNotesFromDisk(Filehandler filehandler, MainLayoutController mlc) {
         if (!SaveProperties.getPath().equals("")) {
             File folder = new File(SaveProperties.getPath());
-            if (folder.listFiles() != null) {
-                for (File file : folder.listFiles()) {
-                    Note note = filehandler.decodeFiles(file);
-                    mlc.getNoteList().add(note);
-                    setList();
+            if (folder.isDirectory()) {
+                mlc.getNoteList().addAll(filehandler.readLocalNotes());
+                setList();
+                if (filehandler.getLocalStoreError() != null) {
+                    ResourceBundle bundler = ResourceBundle.getBundle("bundles.MyBundle",
+                            Context.getInstance().getCurrentLocale());
+                    Platform.runLater(() -> new Toast().showToast(mlc.getMain().getPrimaryStage(),
+                            bundler.getString("storeError"), Color.RED, 3500, 500, 500));
+                }
+                if (!filehandler.getSkippedFiles().isEmpty()) {
+                    List<Path> skipped = filehandler.getSkippedFiles();
+                    Platform.runLater(() -> showSkippedFiles(mlc, skipped));
                 }
             } else {
                 SaveProperties.create("");
@@ -1,16 +1,21 @@
 package noteApp.model.savestate;
 
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.scene.control.Alert;
 import javafx.scene.control.ButtonType;
 import javafx.scene.paint.Color;
 import noteApp.model.Context;
 import noteApp.model.Filehandler;
+import noteApp.model.NoteFolderWatcher;
 import noteApp.model.note.Note;
 import noteApp.view.MainLayoutController;
 import noteApp.view.Toast;
 
+import java.util.HashSet;
+import java.util.List;
 import java.util.ResourceBundle;
+import java.util.Set;
 
 /**
  * A state of the program where user doesn't have to log in. Note CRUD operations happen locally.
@@ -23,11 +28,44 @@ public class OfflineState extends AbstractState {
      * Used to store notes to the user's computer.
      */
     private final Filehandler filehandler;
+    /**
+     * Watches the notes folder for notes changed by other programs, null if there is no folder.
+     */
+    private final NoteFolderWatcher watcher;
 
     public OfflineState(MainLayoutController mlc) {
         this.mlc = mlc;
         this.filehandler = new Filehandler();
         getNotesFromDisk(filehandler, mlc);
+        this.watcher = filehandler.watchNotesFolder(this::applyFolderChanges);
+    }
+
+    /**
+     * Saves the notes still waiting to be saved and stops watching the notes folder.
+     */
+    @Override
+    public void leave() {
+        Filehandler.flushLocalSaves();
+        if (watcher != null) {
+            watcher.close();
+        }
+    }
+
+    /**
+     * Saves the notes changed in the notes folder by other programs and updates them to the list in view.
+     *
+     * @param changed    notes read from the changed files.
+     * @param deletedIds ids of the notes whose files were deleted.
+     */
+    private void applyFolderChanges(List<Note> changed, List<String> deletedIds) {
+        filehandler.saveFolderChanges(changed, deletedIds);
+        Platform.runLater(() -> {
+            Set<String> replaced = new HashSet<>(deletedIds);
+            changed.forEach(note -> replaced.add(note.getId().toString()));
+            mlc.getNoteList().removeIf(note -> replaced.contains(note.getId().toString()));
+            mlc.getNoteList().addAll(changed);
+            setList();
+        });
     }
 
     /**
@@ -40,6 +78,7 @@ public class OfflineState extends AbstractState {
     public void createNote(String title, String content) {
         Note newNote = new Note(title, content);
         mlc.getNoteList().add(newNote);
+        filehandler.saveLocal(newNote);
     }
 
     /**
@@ -60,11 +99,13 @@ public class OfflineState extends AbstractState {
     }
 
     /**
-     * Updates saveableNote object when user is modifying selected note. Encodes the note to hold styling information.
+     * Updates saveableNote object when user is modifying selected note. Encodes the note to hold styling information
+     * and saves it to the user's computer once the user stops typing.
      */
     @Override
     public void handleNote() {
         super.handleNote(mlc);
+        filehandler.saveLocalLater(mlc.getSaveableNote());
         setList();
     }
 
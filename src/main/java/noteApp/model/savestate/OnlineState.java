@@ -1,22 +1,34 @@
 package noteApp.model.savestate;
 
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Orientation;
+import javafx.scene.Node;
 import javafx.scene.control.Alert;
 import javafx.scene.control.ButtonType;
+import javafx.scene.control.ScrollBar;
 import javafx.scene.paint.Color;
 import noteApp.controller.Controller;
 import noteApp.model.Context;
 import noteApp.model.note.AutoSaveThread;
 import noteApp.model.note.Note;
+import noteApp.utils.FileArrange.Sorter;
 import noteApp.view.MainLayoutController;
 import noteApp.view.Toast;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /**
  * A state in program where online functionalities are enabled. Note CRUD operations are done to the database.
+ * Requests to the database are sent asynchronously and the view is updated on the JavaFX thread once they complete,
+ * so a slow backend does not freeze the view.
  *
  * @author Matias Vainio
  */
@@ -27,6 +39,32 @@ public class OnlineState extends AbstractState {
      * ResourceBundle used to get localizations from properties file.
      */
     private final ResourceBundle bundler;
+    /**
+     * Number of notes retrieved at a time when the list is retrieved in pages.
+     */
+    private static final int PAGE_SIZE = 50;
+    /**
+     * Set when the database turns out not to list notes in pages. Every note is retrieved at once after that.
+     */
+    private boolean pagingUnsupported;
+    /**
+     * Incremented every time the list is refreshed, so responses to an earlier refresh are ignored.
+     */
+    private int listGeneration;
+    /**
+     * Whether the list in view holds the archived notes.
+     */
+    private boolean pagedArchived;
+    /**
+     * Position of the next page to retrieve.
+     */
+    private int nextOffset;
+    private boolean hasMorePages;
+    private boolean loadingPage;
+    /**
+     * Vertical scroll bar of the list in view, null until the list has been shown.
+     */
+    private ScrollBar scrollBar;
 
 
     public OnlineState(Controller controller, MainLayoutController mlc) {
@@ -43,14 +81,34 @@ public class OnlineState extends AbstractState {
      */
     @Override
     public void createNote(String title, String content) {
-        try {
-            controller.saveToDatabase(title, content);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        this.setList();
-        this.mlc.selectNote(mlc.getSavedNoteView().getItems().size());
-        this.mlc.disableProperties();
+        controller.saveToDatabaseAsync(title, content)
+                .exceptionally(e -> {
+                    e.printStackTrace();
+                    return null;
+                })
+                .thenCompose(saved -> {
+                    if (saved == null) {
+                        return refreshList(false);
+                    }
+                    Note created = new Note(saved);
+                    created.setContent(content);
+                    return onFxThread(() -> mergeNote(created));
+                })
+                .thenRun(() -> {
+                    this.mlc.selectNote(mlc.getSavedNoteView().getItems().size());
+                    this.mlc.disableProperties();
+                });
+    }
+
+    /**
+     * Updates the saved note in the list in view without retrieving the list again. A note that no longer belongs
+     * to the list, like one that was archived, is removed from it.
+     *
+     * @param note the saved note.
+     */
+    @Override
+    public void noteSaved(Note note) {
+        onFxThread(() -> mergeNote(note));
     }
 
     /**
@@ -58,24 +116,7 @@ public class OnlineState extends AbstractState {
      */
     @Override
     public void setList() {
-        if (this.mlc != null) {
-            mlc.stopListening();
-            mlc.setNotes(FXCollections.observableArrayList());
-            List<Note> notes = null;
-            try {
-                notes = controller.getList()
-                        .stream()
-                        .filter(n -> !n.getTitle().contains("%a"))
-                        .collect(Collectors.toList());
-            } catch (Exception e) {
-                new Toast().showToast(mlc.getMain().getPrimaryStage(),
-                        mlc.getSelectedNote().getTitle() + " " + bundler.getString("somWrong"),
-                        Color.RED, 2500, 500, 500
-                );
-            }
-            mlc.setNoteList(notes);
-            super.setList(mlc);
-        }
+        refreshList(false);
     }
 
     /**
@@ -83,24 +124,293 @@ public class OnlineState extends AbstractState {
      */
     @Override
     public void setArchiveList() {
-        if (this.mlc != null) {
-            mlc.stopListening();
-            mlc.setNotes(FXCollections.observableArrayList());
-            List<Note> notes = null;
+        refreshList(true);
+    }
+
+    /**
+     * Retrieves saved notes from the database without blocking and sets them in the list in view once they arrive.
+     * The list is retrieved in pages without the content of the notes, and the next page is retrieved when the list
+     * is scrolled near its end. As many notes as were shown before are retrieved again, so refreshing does not
+     * shorten the list. If the database does not list notes in pages every note is retrieved at once. Called off the
+     * JavaFX thread the refresh is started on it, as the session is bound to it.
+     *
+     * @param archived true to show the archived notes, false to show the others.
+     * @return future completed on the JavaFX thread after the view has been updated.
+     */
+    private CompletableFuture<Void> refreshList(boolean archived) {
+        Predicate<Note> filter = archived ? n -> n.getTitle().contains("%a") : n -> !n.getTitle().contains("%a");
+        if (this.mlc == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (!Platform.isFxApplicationThread()) {
+            CompletableFuture<Void> done = new CompletableFuture<>();
+            Platform.runLater(() -> refreshList(archived).whenComplete((v, e) -> done.complete(null)));
+            return done;
+        }
+        int generation = ++listGeneration;
+        loadingPage = false;
+        if (pagingUnsupported) {
+            pagedArchived = archived;
+            hasMorePages = false;
+            return refreshWholeList(filter, generation);
+        }
+        int limit = archived == pagedArchived ? Math.max(PAGE_SIZE, nextOffset) : PAGE_SIZE;
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        controller.getPageAsync(archived, 0, limit).whenComplete((page, error) -> Platform.runLater(() -> {
+            if (generation != listGeneration) {
+                done.complete(null);
+            } else if (error == null && page == null) {
+                pagingUnsupported = true;
+                pagedArchived = archived;
+                hasMorePages = false;
+                refreshWholeList(filter, generation).whenComplete((v, e) -> done.complete(null));
+            } else {
+                try {
+                    if (error != null) {
+                        showError();
+                        return;
+                    }
+                    showList(new ArrayList<>(page.getNotes()));
+                    pagedArchived = archived;
+                    nextOffset = page.getOffset() + page.getNotes().size();
+                    hasMorePages = page.hasMore() && !page.getNotes().isEmpty();
+                    Platform.runLater(this::watchScrolling);
+                } finally {
+                    done.complete(null);
+                }
+            }
+        }));
+        return done;
+    }
+
+    /**
+     * Retrieves every saved note from the database without blocking and sets the ones accepted by the filter in the
+     * list in view once they arrive. If retrieving fails the list is left as it is and the user is notified.
+     *
+     * @param filter     decides which notes are shown.
+     * @param generation number of the refresh, the list is not set if the list has been refreshed again meanwhile.
+     * @return future completed on the JavaFX thread after the view has been updated.
+     */
+    private CompletableFuture<Void> refreshWholeList(Predicate<Note> filter, int generation) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        controller.getListAsync().whenComplete((notes, error) -> Platform.runLater(() -> {
             try {
-                notes = controller.getList()
-                        .stream()
-                        .filter(n -> n.getTitle().contains("%a"))
-                        .collect(Collectors.toList());
-            } catch (Exception e) {
-                new Toast().showToast(mlc.getMain().getPrimaryStage(),
-                        mlc.getSelectedNote().getTitle() + " " + bundler.getString("somWrong"),
-                        Color.RED, 2500, 500, 500
-                );
+                if (generation != listGeneration) {
+                    return;
+                }
+                if (error != null || notes == null) {
+                    showError();
+                    return;
+                }
+                showList(notes.stream()
+                        .filter(filter)
+                        .collect(Collectors.toList()));
+            } finally {
+                done.complete(null);
             }
-            mlc.setNoteList(notes);
-            super.setList(mlc);
+        }));
+        return done;
+    }
+
+    /**
+     * Retrieves the next page of the list in view if there is one and it is not being retrieved already, and adds
+     * its notes to the list in the current sort order.
+     */
+    private void loadNextPage() {
+        if (!hasMorePages || loadingPage) {
+            return;
         }
+        loadingPage = true;
+        int generation = listGeneration;
+        controller.getPageAsync(pagedArchived, nextOffset, PAGE_SIZE).whenComplete((page, error) ->
+                Platform.runLater(() -> {
+                    if (generation != listGeneration) {
+                        return;
+                    }
+                    loadingPage = false;
+                    if (error != null || page == null) {
+                        if (error != null) {
+                            error.printStackTrace();
+                        }
+                        return;
+                    }
+                    addToList(page.getNotes());
+                    nextOffset = page.getOffset() + page.getNotes().size();
+                    hasMorePages = page.hasMore() && !page.getNotes().isEmpty();
+                    fillView();
+                }));
+    }
+
+    /**
+     * Runs an update of the list on the JavaFX thread.
+     *
+     * @param update update of the list.
+     * @return future completed on the JavaFX thread after the update has run.
+     */
+    private CompletableFuture<Void> onFxThread(Runnable update) {
+        if (Platform.isFxApplicationThread()) {
+            update.run();
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        Platform.runLater(() -> {
+            try {
+                update.run();
+            } finally {
+                done.complete(null);
+            }
+        });
+        return done;
+    }
+
+    /**
+     * Puts a created or saved note in the list in view in the current sort order, replacing the note with the same
+     * id. The note is removed from the list instead if it does not belong to it. A note added or removed moves the
+     * position of the next page by one, as the database lists the newest notes first.
+     *
+     * @param note note to put in the list.
+     */
+    private void mergeNote(Note note) {
+        boolean archived = note.getTitle().contains("%a");
+        boolean belongs = archived == pagedArchived;
+        boolean removed = removeFromList(note.getId().toString());
+        if (belongs) {
+            mlc.getNoteList().add(note);
+            mlc.getNotes().add(note);
+            if (!removed) {
+                nextOffset++;
+            }
+        } else if (removed) {
+            nextOffset = Math.max(0, nextOffset - 1);
+        }
+        showMerged(belongs ? List.of(note) : List.of());
+    }
+
+    /**
+     * Removes a deleted note from the list in view without retrieving the list again.
+     *
+     * @param id id of the deleted note.
+     */
+    private void removeNote(String id) {
+        if (removeFromList(id)) {
+            nextOffset = Math.max(0, nextOffset - 1);
+        }
+        showMerged(List.of());
+    }
+
+    /**
+     * Removes the note with an id from the lists of the view.
+     *
+     * @param id id of the note.
+     * @return true if the note was in the list.
+     */
+    private boolean removeFromList(String id) {
+        Predicate<Note> sameId = n -> n.getId().toString().equals(id);
+        boolean removed = mlc.getNoteList().removeIf(sameId);
+        mlc.getNotes().removeIf(sameId);
+        return removed;
+    }
+
+    /**
+     * Shows the list in view in the current sort order after notes have been merged into it. The selection listener
+     * is stopped meanwhile, so the selected note is not opened again.
+     *
+     * @param merged notes put in the list, whose labels are added to the labels in view.
+     */
+    private void showMerged(List<Note> merged) {
+        mlc.stopListening();
+        try {
+            ObservableList<Note> items = mlc.getNotes();
+            Comparator<Note> order = Sorter.comparator(mlc.getSortingType());
+            if (order != null) {
+                FXCollections.sort(items, order);
+            }
+            if (mlc.getSavedNoteView().getItems() != items) {
+                mlc.getSavedNoteView().setItems(items);
+            }
+            ObservableList<String> labels = mlc.getComboBoxLabel().getItems();
+            for (Note note : merged) {
+                if (!note.getLabel().strip().equals("") && !labels.contains(note.getLabel())) {
+                    labels.add(note.getLabel());
+                }
+            }
+        } finally {
+            mlc.startListening();
+        }
+    }
+
+    /**
+     * Sets the notes in the list in view.
+     *
+     * @param notes notes to show.
+     */
+    private void showList(List<Note> notes) {
+        mlc.stopListening();
+        mlc.setNotes(FXCollections.observableArrayList());
+        mlc.setNoteList(notes);
+        super.setList(mlc);
+    }
+
+    /**
+     * Adds notes to the end of the list in view, keeping the list sorted and its scroll position as they are.
+     *
+     * @param notes notes to add.
+     */
+    private void addToList(List<Note> notes) {
+        mlc.getNoteList().addAll(notes);
+        ObservableList<Note> items = mlc.getNotes();
+        items.addAll(notes);
+        Comparator<Note> order = Sorter.comparator(mlc.getSortingType());
+        if (order != null) {
+            FXCollections.sort(items, order);
+        }
+        if (mlc.getSavedNoteView().getItems() != items) {
+            mlc.getSavedNoteView().setItems(items);
+        }
+        ObservableList<String> labels = mlc.getComboBoxLabel().getItems();
+        for (Note note : notes) {
+            if (!note.getLabel().strip().equals("") && !labels.contains(note.getLabel())) {
+                labels.add(note.getLabel());
+            }
+        }
+    }
+
+    /**
+     * Starts retrieving the next page when the list in view is scrolled near its end. The scroll bar exists once
+     * the list has been shown, so this is done after the first page is in view.
+     */
+    private void watchScrolling() {
+        if (scrollBar == null) {
+            for (Node node : mlc.getSavedNoteView().lookupAll(".scroll-bar")) {
+                if (node instanceof ScrollBar && ((ScrollBar) node).getOrientation() == Orientation.VERTICAL) {
+                    ScrollBar bar = (ScrollBar) node;
+                    bar.valueProperty().addListener((observable, oldValue, newValue) -> {
+                        if (newValue.doubleValue() >= bar.getMin() + (bar.getMax() - bar.getMin()) * 0.8) {
+                            loadNextPage();
+                        }
+                    });
+                    scrollBar = bar;
+                    break;
+                }
+            }
+        }
+        fillView();
+    }
+
+    /**
+     * Retrieves the next page if the notes shown do not fill the list in view, as the list can not be scrolled then.
+     */
+    private void fillView() {
+        if (scrollBar == null || !scrollBar.isVisible()) {
+            loadNextPage();
+        }
+    }
+
+    private void showError() {
+        new Toast().showToast(mlc.getMain().getPrimaryStage(),
+                mlc.getSelectedNote().getTitle() + " " + bundler.getString("somWrong"),
+                Color.RED, 2500, 500, 500
+        );
     }
 
     /**
@@ -133,21 +443,25 @@ public class OnlineState extends AbstractState {
                     Color.LIGHTGREEN, 2500, 500, 500
             );
 
-            try {
-                controller.deleteFromDatabase(mlc.getSelectedNote());
-            } catch (Exception e) {
-                new Toast().showToast(mlc.getMain().getPrimaryStage(),
-                        mlc.getSelectedNote().getTitle() + " " + bundler.getString("errDel"),
-                        Color.RED, 2500, 500, 500
-                );
-            }
-            setList();
-            if (mlc.getNotes().size() > 0) {
-                mlc.selectNote(0);
-            } else {
-                mlc.clearNoteSelection();
-            }
-            mlc.disableProperties();
+            String title = mlc.getSelectedNote().getTitle();
+            String id = mlc.getSelectedNote().getId().toString();
+            controller.deleteFromDatabaseAsync(mlc.getSelectedNote())
+                    .thenCompose(deleted -> onFxThread(() -> removeNote(id)))
+                    .exceptionally(e -> {
+                        Platform.runLater(() -> new Toast().showToast(mlc.getMain().getPrimaryStage(),
+                                title + " " + bundler.getString("errDel"),
+                                Color.RED, 2500, 500, 500
+                        ));
+                        return null;
+                    })
+                    .thenRun(() -> {
+                        if (mlc.getNotes().size() > 0) {
+                            mlc.selectNote(0);
+                        } else {
+                            mlc.clearNoteSelection();
+                        }
+                        mlc.disableProperties();
+                    });
         }
     }
 }
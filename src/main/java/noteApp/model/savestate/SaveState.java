@@ -1,6 +1,7 @@
 package noteApp.model.savestate;
 
 import noteApp.model.Filehandler;
+import noteApp.model.note.Note;
 import noteApp.view.MainLayoutController;
 
 /**
@@ -28,6 +29,14 @@ public interface SaveState {
      */
     void setArchiveList();
 
+    /**
+     * Updates the view after a note has been saved.
+     * @param note the saved note.
+     */
+    default void noteSaved(Note note) {
+        setList();
+    }
+
     /**
      * Updates note which is then saved based on the state which is currently in use.
      */
@@ -45,4 +54,10 @@ public interface SaveState {
      * @param mlc reference to the {@link MainLayoutController}.
      */
     void getNotesFromDisk(Filehandler filehandler, MainLayoutController mlc);
+
+    /**
+     * Called when the application changes to another state. Stops the work the state does in the background.
+     */
+    default void leave() {
+    }
 }
@@ -0,0 +1,264 @@
+package noteApp.utils.AES;
+
+/**
+ * Table driven AES128 block cipher.
+ * <p>
+ * The state is kept in four 32-bit column words and every round is computed with four lookup tables that combine
+ * SubBytes, ShiftRows and MixColumns. The tables are built once when the class is loaded, so encrypting or
+ * decrypting a block does not allocate anything.
+ */
+final class AesEngine {
+
+    /**
+     * Number of rounds in AES128.
+     */
+    static final int ROUNDS = 10;
+
+    /**
+     * Size of a single block in bytes.
+     */
+    static final int BLOCK_SIZE = 16;
+
+    /**
+     * Rijndael's S-box.
+     */
+    private static final int[] SBOX = {
+            0x63, 0x7c, 0x77, 0x7b, 0xf2, 0x6b, 0x6f, 0xc5, 0x30, 0x01, 0x67, 0x2b, 0xfe, 0xd7, 0xab, 0x76,
+            0xca, 0x82, 0xc9, 0x7d, 0xfa, 0x59, 0x47, 0xf0, 0xad, 0xd4, 0xa2, 0xaf, 0x9c, 0xa4, 0x72, 0xc0,
+            0xb7, 0xfd, 0x93, 0x26, 0x36, 0x3f, 0xf7, 0xcc, 0x34, 0xa5, 0xe5, 0xf1, 0x71, 0xd8, 0x31, 0x15,
+            0x04, 0xc7, 0x23, 0xc3, 0x18, 0x96, 0x05, 0x9a, 0x07, 0x12, 0x80, 0xe2, 0xeb, 0x27, 0xb2, 0x75,
+            0x09, 0x83, 0x2c, 0x1a, 0x1b, 0x6e, 0x5a, 0xa0, 0x52, 0x3b, 0xd6, 0xb3, 0x29, 0xe3, 0x2f, 0x84,
+            0x53, 0xd1, 0x00, 0xed, 0x20, 0xfc, 0xb1, 0x5b, 0x6a, 0xcb, 0xbe, 0x39, 0x4a, 0x4c, 0x58, 0xcf,
+            0xd0, 0xef, 0xaa, 0xfb, 0x43, 0x4d, 0x33, 0x85, 0x45, 0xf9, 0x02, 0x7f, 0x50, 0x3c, 0x9f, 0xa8,
+            0x51, 0xa3, 0x40, 0x8f, 0x92, 0x9d, 0x38, 0xf5, 0xbc, 0xb6, 0xda, 0x21, 0x10, 0xff, 0xf3, 0xd2,
+            0xcd, 0x0c, 0x13, 0xec, 0x5f, 0x97, 0x44, 0x17, 0xc4, 0xa7, 0x7e, 0x3d, 0x64, 0x5d, 0x19, 0x73,
+            0x60, 0x81, 0x4f, 0xdc, 0x22, 0x2a, 0x90, 0x88, 0x46, 0xee, 0xb8, 0x14, 0xde, 0x5e, 0x0b, 0xdb,
+            0xe0, 0x32, 0x3a, 0x0a, 0x49, 0x06, 0x24, 0x5c, 0xc2, 0xd3, 0xac, 0x62, 0x91, 0x95, 0xe4, 0x79,
+            0xe7, 0xc8, 0x37, 0x6d, 0x8d, 0xd5, 0x4e, 0xa9, 0x6c, 0x56, 0xf4, 0xea, 0x65, 0x7a, 0xae, 0x08,
+            0xba, 0x78, 0x25, 0x2e, 0x1c, 0xa6, 0xb4, 0xc6, 0xe8, 0xdd, 0x74, 0x1f, 0x4b, 0xbd, 0x8b, 0x8a,
+            0x70, 0x3e, 0xb5, 0x66, 0x48, 0x03, 0xf6, 0x0e, 0x61, 0x35, 0x57, 0xb9, 0x86, 0xc1, 0x1d, 0x9e,
+            0xe1, 0xf8, 0x98, 0x11, 0x69, 0xd9, 0x8e, 0x94, 0x9b, 0x1e, 0x87, 0xe9, 0xce, 0x55, 0x28, 0xdf,
+            0x8c, 0xa1, 0x89, 0x0d, 0xbf, 0xe6, 0x42, 0x68, 0x41, 0x99, 0x2d, 0x0f, 0xb0, 0x54, 0xbb, 0x16
+    };
+
+    /**
+     * Inverted Rijndael's S-box, built from {@link #SBOX}.
+     */
+    private static final int[] INVSBOX = new int[256];
+
+    /**
+     * Round constants used by the key schedule.
+     */
+    private static final int[] RCON = {0x01, 0x02, 0x04, 0x08, 0x10, 0x20, 0x40, 0x80, 0x1b, 0x36};
+
+    /**
+     * Encryption round tables. TE0 holds SubBytes followed by MixColumns for the first row,
+     * TE1 to TE3 are the same table rotated by one byte each.
+     */
+    private static final int[] TE0 = new int[256];
+    private static final int[] TE1 = new int[256];
+    private static final int[] TE2 = new int[256];
+    private static final int[] TE3 = new int[256];
+
+    /**
+     * Decryption round tables. TD0 holds InvSubBytes followed by InvMixColumns for the first row,
+     * TD1 to TD3 are the same table rotated by one byte each.
+     */
+    private static final int[] TD0 = new int[256];
+    private static final int[] TD1 = new int[256];
+    private static final int[] TD2 = new int[256];
+    private static final int[] TD3 = new int[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            INVSBOX[SBOX[i]] = i;
+        }
+        for (int i = 0; i < 256; i++) {
+            int s = SBOX[i];
+            int te = multiply(s, 2) << 24 | s << 16 | s << 8 | multiply(s, 3);
+            TE0[i] = te;
+            TE1[i] = Integer.rotateRight(te, 8);
+            TE2[i] = Integer.rotateRight(te, 16);
+            TE3[i] = Integer.rotateRight(te, 24);
+
+            int si = INVSBOX[i];
+            int td = multiply(si, 14) << 24 | multiply(si, 9) << 16 | multiply(si, 13) << 8 | multiply(si, 11);
+            TD0[i] = td;
+            TD1[i] = Integer.rotateRight(td, 8);
+            TD2[i] = Integer.rotateRight(td, 16);
+            TD3[i] = Integer.rotateRight(td, 24);
+        }
+    }
+
+    private AesEngine() {
+    }
+
+    /**
+     * Multiplies two bytes in Rijndael's Galois field.
+     * @param a first byte.
+     * @param b second byte.
+     * @return product of the bytes.
+     */
+    private static int multiply(int a, int b) {
+        int product = 0;
+        while (b != 0) {
+            if ((b & 1) != 0) {
+                product ^= a;
+            }
+            a <<= 1;
+            if ((a & 0x100) != 0) {
+                a ^= 0x11b;
+            }
+            b >>>= 1;
+        }
+        return product;
+    }
+
+    /**
+     * Expands a 16 byte key into the 44 round key words used for encryption.
+     * @param key 16 byte key.
+     * @return encryption round keys.
+     */
+    static int[] expandEncryptionKey(byte[] key) {
+        int[] rk = new int[4 * (ROUNDS + 1)];
+        for (int i = 0; i < 4; i++) {
+            rk[i] = readInt(key, i * 4);
+        }
+        for (int i = 4; i < rk.length; i++) {
+            int temp = rk[i - 1];
+            if (i % 4 == 0) {
+                temp = subWord(Integer.rotateLeft(temp, 8)) ^ (RCON[i / 4 - 1] << 24);
+            }
+            rk[i] = rk[i - 4] ^ temp;
+        }
+        return rk;
+    }
+
+    /**
+     * Builds round keys for the equivalent inverse cipher from the encryption round keys. The rounds are
+     * reversed and InvMixColumns is applied to every round key except the first and the last.
+     * @param rk encryption round keys.
+     * @return decryption round keys.
+     */
+    static int[] expandDecryptionKey(int[] rk) {
+        int[] dk = new int[rk.length];
+        for (int round = 0; round <= ROUNDS; round++) {
+            int src = (ROUNDS - round) * 4;
+            int dst = round * 4;
+            for (int i = 0; i < 4; i++) {
+                int w = rk[src + i];
+                if (round != 0 && round != ROUNDS) {
+                    w = TD0[SBOX[w >>> 24]] ^ TD1[SBOX[(w >>> 16) & 0xff]]
+                            ^ TD2[SBOX[(w >>> 8) & 0xff]] ^ TD3[SBOX[w & 0xff]];
+                }
+                dk[dst + i] = w;
+            }
+        }
+        return dk;
+    }
+
+    /**
+     * Encrypts a single 16 byte block. Input and output may point to the same array.
+     * @param rk encryption round keys.
+     * @param in plain block.
+     * @param inOff offset of the block in the input.
+     * @param out array to write the encrypted block to.
+     * @param outOff offset of the block in the output.
+     */
+    static void encryptBlock(int[] rk, byte[] in, int inOff, byte[] out, int outOff) {
+        int s0 = readInt(in, inOff) ^ rk[0];
+        int s1 = readInt(in, inOff + 4) ^ rk[1];
+        int s2 = readInt(in, inOff + 8) ^ rk[2];
+        int s3 = readInt(in, inOff + 12) ^ rk[3];
+
+        int k = 4;
+        for (int round = 1; round < ROUNDS; round++) {
+            int t0 = TE0[s0 >>> 24] ^ TE1[(s1 >>> 16) & 0xff] ^ TE2[(s2 >>> 8) & 0xff] ^ TE3[s3 & 0xff] ^ rk[k];
+            int t1 = TE0[s1 >>> 24] ^ TE1[(s2 >>> 16) & 0xff] ^ TE2[(s3 >>> 8) & 0xff] ^ TE3[s0 & 0xff] ^ rk[k + 1];
+            int t2 = TE0[s2 >>> 24] ^ TE1[(s3 >>> 16) & 0xff] ^ TE2[(s0 >>> 8) & 0xff] ^ TE3[s1 & 0xff] ^ rk[k + 2];
+            int t3 = TE0[s3 >>> 24] ^ TE1[(s0 >>> 16) & 0xff] ^ TE2[(s1 >>> 8) & 0xff] ^ TE3[s2 & 0xff] ^ rk[k + 3];
+            s0 = t0;
+            s1 = t1;
+            s2 = t2;
+            s3 = t3;
+            k += 4;
+        }
+
+        writeInt(out, outOff, finalEncryptionWord(s0, s1, s2, s3) ^ rk[k]);
+        writeInt(out, outOff + 4, finalEncryptionWord(s1, s2, s3, s0) ^ rk[k + 1]);
+        writeInt(out, outOff + 8, finalEncryptionWord(s2, s3, s0, s1) ^ rk[k + 2]);
+        writeInt(out, outOff + 12, finalEncryptionWord(s3, s0, s1, s2) ^ rk[k + 3]);
+    }
+
+    /**
+     * Decrypts a single 16 byte block. Input and output may point to the same array.
+     * @param dk decryption round keys.
+     * @param in encrypted block.
+     * @param inOff offset of the block in the input.
+     * @param out array to write the decrypted block to.
+     * @param outOff offset of the block in the output.
+     */
+    static void decryptBlock(int[] dk, byte[] in, int inOff, byte[] out, int outOff) {
+        int s0 = readInt(in, inOff) ^ dk[0];
+        int s1 = readInt(in, inOff + 4) ^ dk[1];
+        int s2 = readInt(in, inOff + 8) ^ dk[2];
+        int s3 = readInt(in, inOff + 12) ^ dk[3];
+
+        int k = 4;
+        for (int round = 1; round < ROUNDS; round++) {
+            int t0 = TD0[s0 >>> 24] ^ TD1[(s3 >>> 16) & 0xff] ^ TD2[(s2 >>> 8) & 0xff] ^ TD3[s1 & 0xff] ^ dk[k];
+            int t1 = TD0[s1 >>> 24] ^ TD1[(s0 >>> 16) & 0xff] ^ TD2[(s3 >>> 8) & 0xff] ^ TD3[s2 & 0xff] ^ dk[k + 1];
+            int t2 = TD0[s2 >>> 24] ^ TD1[(s1 >>> 16) & 0xff] ^ TD2[(s0 >>> 8) & 0xff] ^ TD3[s3 & 0xff] ^ dk[k + 2];
+            int t3 = TD0[s3 >>> 24] ^ TD1[(s2 >>> 16) & 0xff] ^ TD2[(s1 >>> 8) & 0xff] ^ TD3[s0 & 0xff] ^ dk[k + 3];
+            s0 = t0;
+            s1 = t1;
+            s2 = t2;
+            s3 = t3;
+            k += 4;
+        }
+
+        writeInt(out, outOff, finalDecryptionWord(s0, s3, s2, s1) ^ dk[k]);
+        writeInt(out, outOff + 4, finalDecryptionWord(s1, s0, s3, s2) ^ dk[k + 1]);
+        writeInt(out, outOff + 8, finalDecryptionWord(s2, s1, s0, s3) ^ dk[k + 2]);
+        writeInt(out, outOff + 12, finalDecryptionWord(s3, s2, s1, s0) ^ dk[k + 3]);
+    }
+
+    /**
+     * SubBytes and ShiftRows of the last encryption round for one column.
+     */
+    private static int finalEncryptionWord(int a, int b, int c, int d) {
+        return SBOX[a >>> 24] << 24 | SBOX[(b >>> 16) & 0xff] << 16 | SBOX[(c >>> 8) & 0xff] << 8 | SBOX[d & 0xff];
+    }
+
+    /**
+     * InvSubBytes and InvShiftRows of the last decryption round for one column.
+     */
+    private static int finalDecryptionWord(int a, int b, int c, int d) {
+        return INVSBOX[a >>> 24] << 24 | INVSBOX[(b >>> 16) & 0xff] << 16
+                | INVSBOX[(c >>> 8) & 0xff] << 8 | INVSBOX[d & 0xff];
+    }
+
+    /**
+     * Applies the S-box to every byte of a word.
+     */
+    private static int subWord(int w) {
+        return SBOX[w >>> 24] << 24 | SBOX[(w >>> 16) & 0xff] << 16 | SBOX[(w >>> 8) & 0xff] << 8 | SBOX[w & 0xff];
+    }
+
+    /**
+     * Reads four bytes as a big endian word.
+     */
+    private static int readInt(byte[] b, int off) {
+        return (b[off] & 0xff) << 24 | (b[off + 1] & 0xff) << 16 | (b[off + 2] & 0xff) << 8 | (b[off + 3] & 0xff);
+    }
+
+    /**
+     * Writes a word as four big endian bytes.
+     */
+    private static void writeInt(byte[] b, int off, int value) {
+        b[off] = (byte) (value >>> 24);
+        b[off + 1] = (byte) (value >>> 16);
+        b[off + 2] = (byte) (value >>> 8);
+        b[off + 3] = (byte) value;
+    }
+}
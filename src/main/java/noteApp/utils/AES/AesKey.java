@@ -0,0 +1,75 @@
+package noteApp.utils.AES;
+
+import javax.security.auth.Destroyable;
+import java.util.Arrays;
+
+/**
+ * Expanded AES128 key. Holds the round keys for both encryption and decryption so that the key schedule only has
+ * to be run once per key. Once {@link #destroy() destroyed} the round keys are zeroed and the key can not be used.
+ * <p>
+ * Every use of the key gets its own copy of the round keys, so destroying the key while another thread encrypts or
+ * decrypts with it does not change the result of that operation. Operations started after it fail.
+ */
+public final class AesKey implements Destroyable {
+    private final int[] encryptionKeys;
+    private final int[] decryptionKeys;
+    private volatile boolean destroyed;
+
+    /**
+     * Expands the given 16 byte key.
+     * @param key 128bit or 16Byte key.
+     */
+    public AesKey(byte[] key) {
+        if (key.length != AesEngine.BLOCK_SIZE) {
+            throw new IllegalArgumentException("AES128 key must be 16 bytes long");
+        }
+        this.encryptionKeys = AesEngine.expandEncryptionKey(key);
+        this.decryptionKeys = AesEngine.expandDecryptionKey(encryptionKeys);
+    }
+
+    /**
+     * Returns a copy of the encryption round keys.
+     * @return encryption round keys.
+     */
+    synchronized int[] getEncryptionKeys() {
+        checkDestroyed();
+        return encryptionKeys.clone();
+    }
+
+    /**
+     * Returns a copy of the decryption round keys.
+     * @return decryption round keys.
+     */
+    synchronized int[] getDecryptionKeys() {
+        checkDestroyed();
+        return decryptionKeys.clone();
+    }
+
+    /**
+     * Zeroes the round keys. Copies already handed out are not affected.
+     */
+    @Override
+    public synchronized void destroy() {
+        destroyed = true;
+        Arrays.fill(encryptionKeys, 0);
+        Arrays.fill(decryptionKeys, 0);
+    }
+
+    /**
+     * Returns true if the key has been destroyed.
+     * @return true if the key has been destroyed.
+     */
+    @Override
+    public boolean isDestroyed() {
+        return destroyed;
+    }
+
+    /**
+     * Throws if the key has been destroyed.
+     */
+    private void checkDestroyed() {
+        if (destroyed) {
+            throw new IllegalStateException("Key has been destroyed");
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package noteApp.utils.AES;
 
-
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
 import java.util.Arrays;
 
 /**
@@ -11,202 +12,41 @@ import java.util.Arrays;
 public class Crypter {
 
     /**
-     * Rijndael's S-box in an int array.
+     * Header byte of the binary format produced by {@link #encrypt(byte[], AesKey)}. Legacy payloads are hex
+     * strings, so a payload starting with this byte can not be mistaken for one.
      */
-    private final int[] SBOX  = {
-            0x63 ,0x7c ,0x77 ,0x7b ,0xf2 ,0x6b ,0x6f ,0xc5 ,0x30 ,0x01 ,0x67 ,0x2b ,0xfe ,0xd7 ,0xab ,0x76
-            ,0xca ,0x82 ,0xc9 ,0x7d ,0xfa ,0x59 ,0x47 ,0xf0 ,0xad ,0xd4 ,0xa2 ,0xaf ,0x9c ,0xa4 ,0x72 ,0xc0
-            ,0xb7 ,0xfd ,0x93 ,0x26 ,0x36 ,0x3f ,0xf7 ,0xcc ,0x34 ,0xa5 ,0xe5 ,0xf1 ,0x71 ,0xd8 ,0x31 ,0x15
-            ,0x04 ,0xc7 ,0x23 ,0xc3 ,0x18 ,0x96 ,0x05 ,0x9a ,0x07 ,0x12 ,0x80 ,0xe2 ,0xeb ,0x27 ,0xb2 ,0x75
-            ,0x09 ,0x83 ,0x2c ,0x1a ,0x1b ,0x6e ,0x5a ,0xa0 ,0x52 ,0x3b ,0xd6 ,0xb3 ,0x29 ,0xe3 ,0x2f ,0x84
-            ,0x53 ,0xd1 ,0x00 ,0xed ,0x20 ,0xfc ,0xb1 ,0x5b ,0x6a ,0xcb ,0xbe ,0x39 ,0x4a ,0x4c ,0x58 ,0xcf
-            ,0xd0 ,0xef ,0xaa ,0xfb ,0x43 ,0x4d ,0x33 ,0x85 ,0x45 ,0xf9 ,0x02 ,0x7f ,0x50 ,0x3c ,0x9f ,0xa8
-            ,0x51 ,0xa3 ,0x40 ,0x8f ,0x92 ,0x9d ,0x38 ,0xf5 ,0xbc ,0xb6 ,0xda ,0x21 ,0x10 ,0xff ,0xf3 ,0xd2
-            ,0xcd ,0x0c ,0x13 ,0xec ,0x5f ,0x97 ,0x44 ,0x17 ,0xc4 ,0xa7 ,0x7e ,0x3d ,0x64 ,0x5d ,0x19 ,0x73
-            ,0x60 ,0x81 ,0x4f ,0xdc ,0x22 ,0x2a ,0x90 ,0x88 ,0x46 ,0xee ,0xb8 ,0x14 ,0xde ,0x5e ,0x0b ,0xdb
-            ,0xe0 ,0x32 ,0x3a ,0x0a ,0x49 ,0x06 ,0x24 ,0x5c ,0xc2 ,0xd3 ,0xac ,0x62 ,0x91 ,0x95 ,0xe4 ,0x79
-            ,0xe7 ,0xc8 ,0x37 ,0x6d ,0x8d ,0xd5 ,0x4e ,0xa9 ,0x6c ,0x56 ,0xf4 ,0xea ,0x65 ,0x7a ,0xae ,0x08
-            ,0xba ,0x78 ,0x25 ,0x2e ,0x1c ,0xa6 ,0xb4 ,0xc6 ,0xe8 ,0xdd ,0x74 ,0x1f ,0x4b ,0xbd ,0x8b ,0x8a
-            ,0x70 ,0x3e ,0xb5 ,0x66 ,0x48 ,0x03 ,0xf6 ,0x0e ,0x61 ,0x35 ,0x57 ,0xb9 ,0x86 ,0xc1 ,0x1d ,0x9e
-            ,0xe1 ,0xf8 ,0x98 ,0x11 ,0x69 ,0xd9 ,0x8e ,0x94 ,0x9b ,0x1e ,0x87 ,0xe9 ,0xce ,0x55 ,0x28 ,0xdf
-            ,0x8c ,0xa1 ,0x89 ,0x0d ,0xbf ,0xe6 ,0x42 ,0x68 ,0x41 ,0x99 ,0x2d ,0x0f ,0xb0 ,0x54 ,0xbb ,0x16
-    };
+    public static final byte VERSION_ECB = 0x01;
 
     /**
-     * Inverted Rijndael's S-box array
+     * Header byte of the counter mode format produced by {@link #encryptCtr(byte[], AesKey)}.
      */
-    private final int[] INVSBOX = {
-            0x52, 0x09, 0x6a, 0xd5, 0x30, 0x36, 0xa5, 0x38, 0xbf, 0x40, 0xa3, 0x9e, 0x81, 0xf3, 0xd7, 0xfb,
-            0x7c, 0xe3, 0x39, 0x82, 0x9b, 0x2f, 0xff, 0x87, 0x34, 0x8e, 0x43, 0x44, 0xc4, 0xde, 0xe9, 0xcb,
-            0x54, 0x7b, 0x94, 0x32, 0xa6, 0xc2, 0x23, 0x3d, 0xee, 0x4c, 0x95, 0x0b, 0x42, 0xfa, 0xc3, 0x4e,
-            0x08, 0x2e, 0xa1, 0x66, 0x28, 0xd9, 0x24, 0xb2, 0x76, 0x5b, 0xa2, 0x49, 0x6d, 0x8b, 0xd1, 0x25,
-            0x72, 0xf8, 0xf6, 0x64, 0x86, 0x68, 0x98, 0x16, 0xd4, 0xa4, 0x5c, 0xcc, 0x5d, 0x65, 0xb6, 0x92,
-            0x6c, 0x70, 0x48, 0x50, 0xfd, 0xed, 0xb9, 0xda, 0x5e, 0x15, 0x46, 0x57, 0xa7, 0x8d, 0x9d, 0x84,
-            0x90, 0xd8, 0xab, 0x00, 0x8c, 0xbc, 0xd3, 0x0a, 0xf7, 0xe4, 0x58, 0x05, 0xb8, 0xb3, 0x45, 0x06,
-            0xd0, 0x2c, 0x1e, 0x8f, 0xca, 0x3f, 0x0f, 0x02, 0xc1, 0xaf, 0xbd, 0x03, 0x01, 0x13, 0x8a, 0x6b,
-            0x3a, 0x91, 0x11, 0x41, 0x4f, 0x67, 0xdc, 0xea, 0x97, 0xf2, 0xcf, 0xce, 0xf0, 0xb4, 0xe6, 0x73,
-            0x96, 0xac, 0x74, 0x22, 0xe7, 0xad, 0x35, 0x85, 0xe2, 0xf9, 0x37, 0xe8, 0x1c, 0x75, 0xdf, 0x6e,
-            0x47, 0xf1, 0x1a, 0x71, 0x1d, 0x29, 0xc5, 0x89, 0x6f, 0xb7, 0x62, 0x0e, 0xaa, 0x18, 0xbe, 0x1b,
-            0xfc, 0x56, 0x3e, 0x4b, 0xc6, 0xd2, 0x79, 0x20, 0x9a, 0xdb, 0xc0, 0xfe, 0x78, 0xcd, 0x5a, 0xf4,
-            0x1f, 0xdd, 0xa8, 0x33, 0x88, 0x07, 0xc7, 0x31, 0xb1, 0x12, 0x10, 0x59, 0x27, 0x80, 0xec, 0x5f,
-            0x60, 0x51, 0x7f, 0xa9, 0x19, 0xb5, 0x4a, 0x0d, 0x2d, 0xe5, 0x7a, 0x9f, 0x93, 0xc9, 0x9c, 0xef,
-            0xa0, 0xe0, 0x3b, 0x4d, 0xae, 0x2a, 0xf5, 0xb0, 0xc8, 0xeb, 0xbb, 0x3c, 0x83, 0x53, 0x99, 0x61,
-            0x17, 0x2b, 0x04, 0x7e, 0xba, 0x77, 0xd6, 0x26, 0xe1, 0x69, 0x14, 0x63, 0x55, 0x21, 0x0c, 0x7d
-    };
+    public static final byte VERSION_CTR = 0x02;
 
     /**
-     * Matrix multiplication by 2 table
+     * Size of the nonce that follows the {@link #VERSION_CTR} header byte.
      */
-    private final int[] MULTI2 = {
-            0x00,0x02,0x04,0x06,0x08,0x0a,0x0c,0x0e,0x10,0x12,0x14,0x16,0x18,0x1a,0x1c,0x1e,
-            0x20,0x22,0x24,0x26,0x28,0x2a,0x2c,0x2e,0x30,0x32,0x34,0x36,0x38,0x3a,0x3c,0x3e,
-            0x40,0x42,0x44,0x46,0x48,0x4a,0x4c,0x4e,0x50,0x52,0x54,0x56,0x58,0x5a,0x5c,0x5e,
-            0x60,0x62,0x64,0x66,0x68,0x6a,0x6c,0x6e,0x70,0x72,0x74,0x76,0x78,0x7a,0x7c,0x7e,
-            0x80,0x82,0x84,0x86,0x88,0x8a,0x8c,0x8e,0x90,0x92,0x94,0x96,0x98,0x9a,0x9c,0x9e,
-            0xa0,0xa2,0xa4,0xa6,0xa8,0xaa,0xac,0xae,0xb0,0xb2,0xb4,0xb6,0xb8,0xba,0xbc,0xbe,
-            0xc0,0xc2,0xc4,0xc6,0xc8,0xca,0xcc,0xce,0xd0,0xd2,0xd4,0xd6,0xd8,0xda,0xdc,0xde,
-            0xe0,0xe2,0xe4,0xe6,0xe8,0xea,0xec,0xee,0xf0,0xf2,0xf4,0xf6,0xf8,0xfa,0xfc,0xfe,
-            0x1b,0x19,0x1f,0x1d,0x13,0x11,0x17,0x15,0x0b,0x09,0x0f,0x0d,0x03,0x01,0x07,0x05,
-            0x3b,0x39,0x3f,0x3d,0x33,0x31,0x37,0x35,0x2b,0x29,0x2f,0x2d,0x23,0x21,0x27,0x25,
-            0x5b,0x59,0x5f,0x5d,0x53,0x51,0x57,0x55,0x4b,0x49,0x4f,0x4d,0x43,0x41,0x47,0x45,
-            0x7b,0x79,0x7f,0x7d,0x73,0x71,0x77,0x75,0x6b,0x69,0x6f,0x6d,0x63,0x61,0x67,0x65,
-            0x9b,0x99,0x9f,0x9d,0x93,0x91,0x97,0x95,0x8b,0x89,0x8f,0x8d,0x83,0x81,0x87,0x85,
-            0xbb,0xb9,0xbf,0xbd,0xb3,0xb1,0xb7,0xb5,0xab,0xa9,0xaf,0xad,0xa3,0xa1,0xa7,0xa5,
-            0xdb,0xd9,0xdf,0xdd,0xd3,0xd1,0xd7,0xd5,0xcb,0xc9,0xcf,0xcd,0xc3,0xc1,0xc7,0xc5,
-            0xfb,0xf9,0xff,0xfd,0xf3,0xf1,0xf7,0xf5,0xeb,0xe9,0xef,0xed,0xe3,0xe1,0xe7,0xe5
-    };
+    static final int NONCE_SIZE = 8;
 
     /**
-     * Matrix multiplication by 3 table
+     * Source of the counter mode nonces.
      */
-    private final int[] MULTI3 = {
-            0x00,0x03,0x06,0x05,0x0c,0x0f,0x0a,0x09,0x18,0x1b,0x1e,0x1d,0x14,0x17,0x12,0x11,
-            0x30,0x33,0x36,0x35,0x3c,0x3f,0x3a,0x39,0x28,0x2b,0x2e,0x2d,0x24,0x27,0x22,0x21,
-            0x60,0x63,0x66,0x65,0x6c,0x6f,0x6a,0x69,0x78,0x7b,0x7e,0x7d,0x74,0x77,0x72,0x71,
-            0x50,0x53,0x56,0x55,0x5c,0x5f,0x5a,0x59,0x48,0x4b,0x4e,0x4d,0x44,0x47,0x42,0x41,
-            0xc0,0xc3,0xc6,0xc5,0xcc,0xcf,0xca,0xc9,0xd8,0xdb,0xde,0xdd,0xd4,0xd7,0xd2,0xd1,
-            0xf0,0xf3,0xf6,0xf5,0xfc,0xff,0xfa,0xf9,0xe8,0xeb,0xee,0xed,0xe4,0xe7,0xe2,0xe1,
-            0xa0,0xa3,0xa6,0xa5,0xac,0xaf,0xaa,0xa9,0xb8,0xbb,0xbe,0xbd,0xb4,0xb7,0xb2,0xb1,
-            0x90,0x93,0x96,0x95,0x9c,0x9f,0x9a,0x99,0x88,0x8b,0x8e,0x8d,0x84,0x87,0x82,0x81,
-            0x9b,0x98,0x9d,0x9e,0x97,0x94,0x91,0x92,0x83,0x80,0x85,0x86,0x8f,0x8c,0x89,0x8a,
-            0xab,0xa8,0xad,0xae,0xa7,0xa4,0xa1,0xa2,0xb3,0xb0,0xb5,0xb6,0xbf,0xbc,0xb9,0xba,
-            0xfb,0xf8,0xfd,0xfe,0xf7,0xf4,0xf1,0xf2,0xe3,0xe0,0xe5,0xe6,0xef,0xec,0xe9,0xea,
-            0xcb,0xc8,0xcd,0xce,0xc7,0xc4,0xc1,0xc2,0xd3,0xd0,0xd5,0xd6,0xdf,0xdc,0xd9,0xda,
-            0x5b,0x58,0x5d,0x5e,0x57,0x54,0x51,0x52,0x43,0x40,0x45,0x46,0x4f,0x4c,0x49,0x4a,
-            0x6b,0x68,0x6d,0x6e,0x67,0x64,0x61,0x62,0x73,0x70,0x75,0x76,0x7f,0x7c,0x79,0x7a,
-            0x3b,0x38,0x3d,0x3e,0x37,0x34,0x31,0x32,0x23,0x20,0x25,0x26,0x2f,0x2c,0x29,0x2a,
-            0x0b,0x08,0x0d,0x0e,0x07,0x04,0x01,0x02,0x13,0x10,0x15,0x16,0x1f,0x1c,0x19,0x1a
-    };
+    private static final SecureRandom RANDOM = new SecureRandom();
 
     /**
-     * Matrix multiplication by 9 table
+     * Digits used when converting bytes to hex.
      */
-    private final int[] MULTI9 = {
-            0x00,0x09,0x12,0x1b,0x24,0x2d,0x36,0x3f,0x48,0x41,0x5a,0x53,0x6c,0x65,0x7e,0x77,
-            0x90,0x99,0x82,0x8b,0xb4,0xbd,0xa6,0xaf,0xd8,0xd1,0xca,0xc3,0xfc,0xf5,0xee,0xe7,
-            0x3b,0x32,0x29,0x20,0x1f,0x16,0x0d,0x04,0x73,0x7a,0x61,0x68,0x57,0x5e,0x45,0x4c,
-            0xab,0xa2,0xb9,0xb0,0x8f,0x86,0x9d,0x94,0xe3,0xea,0xf1,0xf8,0xc7,0xce,0xd5,0xdc,
-            0x76,0x7f,0x64,0x6d,0x52,0x5b,0x40,0x49,0x3e,0x37,0x2c,0x25,0x1a,0x13,0x08,0x01,
-            0xe6,0xef,0xf4,0xfd,0xc2,0xcb,0xd0,0xd9,0xae,0xa7,0xbc,0xb5,0x8a,0x83,0x98,0x91,
-            0x4d,0x44,0x5f,0x56,0x69,0x60,0x7b,0x72,0x05,0x0c,0x17,0x1e,0x21,0x28,0x33,0x3a,
-            0xdd,0xd4,0xcf,0xc6,0xf9,0xf0,0xeb,0xe2,0x95,0x9c,0x87,0x8e,0xb1,0xb8,0xa3,0xaa,
-            0xec,0xe5,0xfe,0xf7,0xc8,0xc1,0xda,0xd3,0xa4,0xad,0xb6,0xbf,0x80,0x89,0x92,0x9b,
-            0x7c,0x75,0x6e,0x67,0x58,0x51,0x4a,0x43,0x34,0x3d,0x26,0x2f,0x10,0x19,0x02,0x0b,
-            0xd7,0xde,0xc5,0xcc,0xf3,0xfa,0xe1,0xe8,0x9f,0x96,0x8d,0x84,0xbb,0xb2,0xa9,0xa0,
-            0x47,0x4e,0x55,0x5c,0x63,0x6a,0x71,0x78,0x0f,0x06,0x1d,0x14,0x2b,0x22,0x39,0x30,
-            0x9a,0x93,0x88,0x81,0xbe,0xb7,0xac,0xa5,0xd2,0xdb,0xc0,0xc9,0xf6,0xff,0xe4,0xed,
-            0x0a,0x03,0x18,0x11,0x2e,0x27,0x3c,0x35,0x42,0x4b,0x50,0x59,0x66,0x6f,0x74,0x7d,
-            0xa1,0xa8,0xb3,0xba,0x85,0x8c,0x97,0x9e,0xe9,0xe0,0xfb,0xf2,0xcd,0xc4,0xdf,0xd6,
-            0x31,0x38,0x23,0x2a,0x15,0x1c,0x07,0x0e,0x79,0x70,0x6b,0x62,0x5d,0x54,0x4f,0x46
-    };
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
 
     /**
-     * Matrix multiplication by 11 table
+     * Secret of the most recently expanded key.
      */
-    private final int[] MULTI11 = {
-            0x00,0x0b,0x16,0x1d,0x2c,0x27,0x3a,0x31,0x58,0x53,0x4e,0x45,0x74,0x7f,0x62,0x69,
-            0xb0,0xbb,0xa6,0xad,0x9c,0x97,0x8a,0x81,0xe8,0xe3,0xfe,0xf5,0xc4,0xcf,0xd2,0xd9,
-            0x7b,0x70,0x6d,0x66,0x57,0x5c,0x41,0x4a,0x23,0x28,0x35,0x3e,0x0f,0x04,0x19,0x12,
-            0xcb,0xc0,0xdd,0xd6,0xe7,0xec,0xf1,0xfa,0x93,0x98,0x85,0x8e,0xbf,0xb4,0xa9,0xa2,
-            0xf6,0xfd,0xe0,0xeb,0xda,0xd1,0xcc,0xc7,0xae,0xa5,0xb8,0xb3,0x82,0x89,0x94,0x9f,
-            0x46,0x4d,0x50,0x5b,0x6a,0x61,0x7c,0x77,0x1e,0x15,0x08,0x03,0x32,0x39,0x24,0x2f,
-            0x8d,0x86,0x9b,0x90,0xa1,0xaa,0xb7,0xbc,0xd5,0xde,0xc3,0xc8,0xf9,0xf2,0xef,0xe4,
-            0x3d,0x36,0x2b,0x20,0x11,0x1a,0x07,0x0c,0x65,0x6e,0x73,0x78,0x49,0x42,0x5f,0x54,
-            0xf7,0xfc,0xe1,0xea,0xdb,0xd0,0xcd,0xc6,0xaf,0xa4,0xb9,0xb2,0x83,0x88,0x95,0x9e,
-            0x47,0x4c,0x51,0x5a,0x6b,0x60,0x7d,0x76,0x1f,0x14,0x09,0x02,0x33,0x38,0x25,0x2e,
-            0x8c,0x87,0x9a,0x91,0xa0,0xab,0xb6,0xbd,0xd4,0xdf,0xc2,0xc9,0xf8,0xf3,0xee,0xe5,
-            0x3c,0x37,0x2a,0x21,0x10,0x1b,0x06,0x0d,0x64,0x6f,0x72,0x79,0x48,0x43,0x5e,0x55,
-            0x01,0x0a,0x17,0x1c,0x2d,0x26,0x3b,0x30,0x59,0x52,0x4f,0x44,0x75,0x7e,0x63,0x68,
-            0xb1,0xba,0xa7,0xac,0x9d,0x96,0x8b,0x80,0xe9,0xe2,0xff,0xf4,0xc5,0xce,0xd3,0xd8,
-            0x7a,0x71,0x6c,0x67,0x56,0x5d,0x40,0x4b,0x22,0x29,0x34,0x3f,0x0e,0x05,0x18,0x13,
-            0xca,0xc1,0xdc,0xd7,0xe6,0xed,0xf0,0xfb,0x92,0x99,0x84,0x8f,0xbe,0xb5,0xa8,0xa3
-    };
+    private String cachedSecret;
 
     /**
-     * Matrix multiplication by 13 table
+     * Most recently expanded key of the String based methods. They are nearly always called with the same secret,
+     * so this saves running the key schedule for every call.
      */
-    private final int[] MULTI13 = {
-            0x00,0x0d,0x1a,0x17,0x34,0x39,0x2e,0x23,0x68,0x65,0x72,0x7f,0x5c,0x51,0x46,0x4b,
-            0xd0,0xdd,0xca,0xc7,0xe4,0xe9,0xfe,0xf3,0xb8,0xb5,0xa2,0xaf,0x8c,0x81,0x96,0x9b,
-            0xbb,0xb6,0xa1,0xac,0x8f,0x82,0x95,0x98,0xd3,0xde,0xc9,0xc4,0xe7,0xea,0xfd,0xf0,
-            0x6b,0x66,0x71,0x7c,0x5f,0x52,0x45,0x48,0x03,0x0e,0x19,0x14,0x37,0x3a,0x2d,0x20,
-            0x6d,0x60,0x77,0x7a,0x59,0x54,0x43,0x4e,0x05,0x08,0x1f,0x12,0x31,0x3c,0x2b,0x26,
-            0xbd,0xb0,0xa7,0xaa,0x89,0x84,0x93,0x9e,0xd5,0xd8,0xcf,0xc2,0xe1,0xec,0xfb,0xf6,
-            0xd6,0xdb,0xcc,0xc1,0xe2,0xef,0xf8,0xf5,0xbe,0xb3,0xa4,0xa9,0x8a,0x87,0x90,0x9d,
-            0x06,0x0b,0x1c,0x11,0x32,0x3f,0x28,0x25,0x6e,0x63,0x74,0x79,0x5a,0x57,0x40,0x4d,
-            0xda,0xd7,0xc0,0xcd,0xee,0xe3,0xf4,0xf9,0xb2,0xbf,0xa8,0xa5,0x86,0x8b,0x9c,0x91,
-            0x0a,0x07,0x10,0x1d,0x3e,0x33,0x24,0x29,0x62,0x6f,0x78,0x75,0x56,0x5b,0x4c,0x41,
-            0x61,0x6c,0x7b,0x76,0x55,0x58,0x4f,0x42,0x09,0x04,0x13,0x1e,0x3d,0x30,0x27,0x2a,
-            0xb1,0xbc,0xab,0xa6,0x85,0x88,0x9f,0x92,0xd9,0xd4,0xc3,0xce,0xed,0xe0,0xf7,0xfa,
-            0xb7,0xba,0xad,0xa0,0x83,0x8e,0x99,0x94,0xdf,0xd2,0xc5,0xc8,0xeb,0xe6,0xf1,0xfc,
-            0x67,0x6a,0x7d,0x70,0x53,0x5e,0x49,0x44,0x0f,0x02,0x15,0x18,0x3b,0x36,0x21,0x2c,
-            0x0c,0x01,0x16,0x1b,0x38,0x35,0x22,0x2f,0x64,0x69,0x7e,0x73,0x50,0x5d,0x4a,0x47,
-            0xdc,0xd1,0xc6,0xcb,0xe8,0xe5,0xf2,0xff,0xb4,0xb9,0xae,0xa3,0x80,0x8d,0x9a,0x97
-    };
-
-    /**
-     * Matrix multiplication by 14 table
-     */
-    private final int[] MULTI14 = {
-            0x00,0x0e,0x1c,0x12,0x38,0x36,0x24,0x2a,0x70,0x7e,0x6c,0x62,0x48,0x46,0x54,0x5a,
-            0xe0,0xee,0xfc,0xf2,0xd8,0xd6,0xc4,0xca,0x90,0x9e,0x8c,0x82,0xa8,0xa6,0xb4,0xba,
-            0xdb,0xd5,0xc7,0xc9,0xe3,0xed,0xff,0xf1,0xab,0xa5,0xb7,0xb9,0x93,0x9d,0x8f,0x81,
-            0x3b,0x35,0x27,0x29,0x03,0x0d,0x1f,0x11,0x4b,0x45,0x57,0x59,0x73,0x7d,0x6f,0x61,
-            0xad,0xa3,0xb1,0xbf,0x95,0x9b,0x89,0x87,0xdd,0xd3,0xc1,0xcf,0xe5,0xeb,0xf9,0xf7,
-            0x4d,0x43,0x51,0x5f,0x75,0x7b,0x69,0x67,0x3d,0x33,0x21,0x2f,0x05,0x0b,0x19,0x17,
-            0x76,0x78,0x6a,0x64,0x4e,0x40,0x52,0x5c,0x06,0x08,0x1a,0x14,0x3e,0x30,0x22,0x2c,
-            0x96,0x98,0x8a,0x84,0xae,0xa0,0xb2,0xbc,0xe6,0xe8,0xfa,0xf4,0xde,0xd0,0xc2,0xcc,
-            0x41,0x4f,0x5d,0x53,0x79,0x77,0x65,0x6b,0x31,0x3f,0x2d,0x23,0x09,0x07,0x15,0x1b,
-            0xa1,0xaf,0xbd,0xb3,0x99,0x97,0x85,0x8b,0xd1,0xdf,0xcd,0xc3,0xe9,0xe7,0xf5,0xfb,
-            0x9a,0x94,0x86,0x88,0xa2,0xac,0xbe,0xb0,0xea,0xe4,0xf6,0xf8,0xd2,0xdc,0xce,0xc0,
-            0x7a,0x74,0x66,0x68,0x42,0x4c,0x5e,0x50,0x0a,0x04,0x16,0x18,0x32,0x3c,0x2e,0x20,
-            0xec,0xe2,0xf0,0xfe,0xd4,0xda,0xc8,0xc6,0x9c,0x92,0x80,0x8e,0xa4,0xaa,0xb8,0xb6,
-            0x0c,0x02,0x10,0x1e,0x34,0x3a,0x28,0x26,0x7c,0x72,0x60,0x6e,0x44,0x4a,0x58,0x56,
-            0x37,0x39,0x2b,0x25,0x0f,0x01,0x13,0x1d,0x47,0x49,0x5b,0x55,0x7f,0x71,0x63,0x6d,
-            0xd7,0xd9,0xcb,0xc5,0xef,0xe1,0xf3,0xfd,0xa7,0xa9,0xbb,0xb5,0x9f,0x91,0x83,0x8d
-    };
-
-    /**
-     * Round constatnt array
-     */
-    private final int[] RCON256 = {
-            0x8d, 0x01, 0x02, 0x04, 0x08, 0x10, 0x20, 0x40, 0x80, 0x1b, 0x36, 0x6c, 0xd8, 0xab, 0x4d, 0x9a,
-            0x2f, 0x5e, 0xbc, 0x63, 0xc6, 0x97, 0x35, 0x6a, 0xd4, 0xb3, 0x7d, 0xfa, 0xef, 0xc5, 0x91, 0x39,
-            0x72, 0xe4, 0xd3, 0xbd, 0x61, 0xc2, 0x9f, 0x25, 0x4a, 0x94, 0x33, 0x66, 0xcc, 0x83, 0x1d, 0x3a,
-            0x74, 0xe8, 0xcb, 0x8d, 0x01, 0x02, 0x04, 0x08, 0x10, 0x20, 0x40, 0x80, 0x1b, 0x36, 0x6c, 0xd8,
-            0xab, 0x4d, 0x9a, 0x2f, 0x5e, 0xbc, 0x63, 0xc6, 0x97, 0x35, 0x6a, 0xd4, 0xb3, 0x7d, 0xfa, 0xef,
-            0xc5, 0x91, 0x39, 0x72, 0xe4, 0xd3, 0xbd, 0x61, 0xc2, 0x9f, 0x25, 0x4a, 0x94, 0x33, 0x66, 0xcc,
-            0x83, 0x1d, 0x3a, 0x74, 0xe8, 0xcb, 0x8d, 0x01, 0x02, 0x04, 0x08, 0x10, 0x20, 0x40, 0x80, 0x1b,
-            0x36, 0x6c, 0xd8, 0xab, 0x4d, 0x9a, 0x2f, 0x5e, 0xbc, 0x63, 0xc6, 0x97, 0x35, 0x6a, 0xd4, 0xb3,
-            0x7d, 0xfa, 0xef, 0xc5, 0x91, 0x39, 0x72, 0xe4, 0xd3, 0xbd, 0x61, 0xc2, 0x9f, 0x25, 0x4a, 0x94,
-            0x33, 0x66, 0xcc, 0x83, 0x1d, 0x3a, 0x74, 0xe8, 0xcb, 0x8d, 0x01, 0x02, 0x04, 0x08, 0x10, 0x20,
-            0x40, 0x80, 0x1b, 0x36, 0x6c, 0xd8, 0xab, 0x4d, 0x9a, 0x2f, 0x5e, 0xbc, 0x63, 0xc6, 0x97, 0x35,
-            0x6a, 0xd4, 0xb3, 0x7d, 0xfa, 0xef, 0xc5, 0x91, 0x39, 0x72, 0xe4, 0xd3, 0xbd, 0x61, 0xc2, 0x9f,
-            0x25, 0x4a, 0x94, 0x33, 0x66, 0xcc, 0x83, 0x1d, 0x3a, 0x74, 0xe8, 0xcb, 0x8d, 0x01, 0x02, 0x04,
-            0x08, 0x10, 0x20, 0x40, 0x80, 0x1b, 0x36, 0x6c, 0xd8, 0xab, 0x4d, 0x9a, 0x2f, 0x5e, 0xbc, 0x63,
-            0xc6, 0x97, 0x35, 0x6a, 0xd4, 0xb3, 0x7d, 0xfa, 0xef, 0xc5, 0x91, 0x39, 0x72, 0xe4, 0xd3, 0xbd,
-            0x61, 0xc2, 0x9f, 0x25, 0x4a, 0x94, 0x33, 0x66, 0xcc, 0x83, 0x1d, 0x3a, 0x74, 0xe8, 0xcb, 0x8d
-    };
+    private AesKey cachedKey;
 
     public Crypter() { };
 
@@ -217,353 +57,283 @@ public class Crypter {
      * @return encrypted string.
      */
     public String encryptAES128(String note, String secret) {
-        String hexNote = stringToHex(note);
-        int loopLength = hexNote.length()%32 == 0 ? hexNote.length()/32 : hexNote.length()/32 +1;
-
-        String hexKey = stringToHex(secret);
-        int[] initialKey = new int[16];
-        if (32 > hexKey.length()) {
-            initialKey = splitInto16Bytes(hexKey);
-        } else {
-            initialKey = splitInto16Bytes(hexKey.substring(0, 32));
-        }
-
-        int[] state;
-        int[] expandedKey = keySchedule(initialKey);
-        String cryptedString = "";
-        for (int i = 0; i < loopLength; i++) {
-            if ((i+1)*32 >= hexNote.length()) {
-                state = splitUtf16Into16Bytes(hexNote.substring(i*32));
-
-            } else {
-                state = splitUtf16Into16Bytes(hexNote.substring(i*32, (i+1)*32));
-            }
-            encrypt(state, expandedKey);
-            cryptedString += toHexString(state);
-        }
-
-        return cryptedString;
+        return encryptHex(note, keyFor(secret));
     }
 
     /**
-     * Encrypting main loop in AES128.
-     * @param state current part of data to encrypt.
-     * @param key expanded key.
+     * Decrypts given cipherText
+     * @param hexCipher cipher to decrypt
+     * @param secret secret to use to decrypt
+     * @return decrypted Text
      */
-    private void encrypt(int[] state, int[] key) {
-        addRoundKey(state, Arrays.copyOfRange(key, 0, 16));
-
-        for (int i = 1; i < 10; i++) {
-            subBytes(state);
-            shiftRows(state);
-            mixColumns(state);
-            addRoundKey(state, Arrays.copyOfRange(key, i*16, (i+1)*16));
-
-        }
-
-        subBytes(state);
-        shiftRows(state);
-        addRoundKey(state, Arrays.copyOfRange(key, key.length-16, key.length));
-
+    public String decryptAES128(String hexCipher, String secret) {
+        return decryptHex(hexCipher, keyFor(secret));
     }
 
-
     /**
-     * SubBytes step of AES encryption. Changes all bytes in the array to ones corresponding in s-box.
-     * @param input array of 16 bytes.
+     * Encrypts a string into the legacy hex format. Every character is encrypted as two UTF-16 bytes and the last
+     * block is only padded if it is not full.
+     * @param note text to encrypt.
+     * @param key expanded key.
+     * @return encrypted text as a hex string.
      */
-    private void subBytes(int[] input) {
-        for (int i = 0; i < 16; i++) {
-            input[i] = SBOX[input[i]];
+    public String encryptHex(String note, AesKey key) {
+        int byteLength = note.length() * 2;
+        int blocks = (byteLength + AesEngine.BLOCK_SIZE - 1) / AesEngine.BLOCK_SIZE;
+        byte[] data = new byte[blocks * AesEngine.BLOCK_SIZE];
+        for (int i = 0; i < note.length(); i++) {
+            char ch = note.charAt(i);
+            data[i * 2] = (byte) (ch >>> 8);
+            data[i * 2 + 1] = (byte) ch;
         }
+        int difference = data.length - byteLength;
+        for (int i = byteLength; i < data.length; i++) {
+            data[i] = (byte) difference;
+        }
+
+        int[] roundKeys = key.getEncryptionKeys();
+        for (int off = 0; off < data.length; off += AesEngine.BLOCK_SIZE) {
+            AesEngine.encryptBlock(roundKeys, data, off, data, off);
+        }
+        return toHexString(data, data.length);
     }
 
     /**
-     * Shifts rows from original position to
-     * [00, 04, 08, 12]
-     * [05, 09, 13, 01]
-     * [10, 14, 02, 06]
-     * [15, 03, 07, 11]
-     * @param input Array to shift.
+     * Decrypts a hex string made with {@link #encryptHex(String, AesKey)} or {@link #encryptAES128(String, String)}.
+     * Used to read payloads that were saved before the binary format.
+     * @param hexCipher cipher to decrypt.
+     * @param key expanded key.
+     * @return decrypted text.
      */
-    private void shiftRows(int[] input) {
-        int[] temp = new int[16];
-
-        temp[0] = input[0];
-        temp[1] = input[5];
-        temp[2] = input[10];
-        temp[3] = input[15];
-
-        temp[4] = input[4];
-        temp[5] = input[9];
-        temp[6] = input[14];
-        temp[7] = input[3];
-
-        temp[8] = input[8];
-        temp[9] = input[13];
-        temp[10] = input[2];
-        temp[11] = input[7];
+    public String decryptHex(String hexCipher, AesKey key) {
+        int blocks = (hexCipher.length() + 31) / 32;
+        byte[] data = new byte[blocks * AesEngine.BLOCK_SIZE];
+        int byteLength = hexCipher.length() / 2;
+        for (int i = 0; i < byteLength; i++) {
+            data[i] = (byte) (Character.digit(hexCipher.charAt(i * 2), 16) << 4
+                    | Character.digit(hexCipher.charAt(i * 2 + 1), 16));
+        }
+        int difference = data.length - byteLength;
+        for (int i = byteLength; i < data.length; i++) {
+            data[i] = (byte) difference;
+        }
 
-        temp[12] = input[12];
-        temp[13] = input[1];
-        temp[14] = input[6];
-        temp[15] = input[11];
+        int[] roundKeys = key.getDecryptionKeys();
+        for (int off = 0; off < data.length; off += AesEngine.BLOCK_SIZE) {
+            AesEngine.decryptBlock(roundKeys, data, off, data, off);
+        }
 
-        for (int i = 0; i < 16; i++) {
-            input[i] = temp[i];
+        int length = data.length;
+        if (blocks > 0) {
+            length = data.length - AesEngine.BLOCK_SIZE + removePadding(data, data.length - AesEngine.BLOCK_SIZE);
         }
+        char[] chars = new char[length / 2];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) ((data[i * 2] & 0xff) << 8 | (data[i * 2 + 1] & 0xff));
+        }
+        return new String(chars);
     }
 
-    /**
-     * Performs a Galoir field matrix multiplication on input
-     * @param input array of 16 bytes
-     */
-    private void mixColumns(int[] input) {
-        int i = 0;
-        do {
-            int[] temp = new int[4];
-            temp[0] = (MULTI2[input[i+0]] ^ MULTI3[input[i+1]] ^ input[i+2] ^ input[i+3]);
-            temp[1] = (input[i+0] ^ MULTI2[input[i+1]] ^ MULTI3[input[i+2]] ^ input[i+3]);
-            temp[2]= (input[i+0] ^ input[i+1] ^ MULTI2[input[i+2]] ^ MULTI3[input[i+3]]);
-            temp[3] = (MULTI3[input[i+0]] ^ input[i+1] ^ input[i+2] ^ MULTI2[input[i+3]]);
-
-            for (int j = i; j < i+4; j++) {
-                input[j] = temp[j%4];
-            }
-            i += 4;
-        } while(i < 16);
-
-    }
+    /* BINARY */
 
     /**
-     * AddRoundKey step of AES. Performs XOR addition of key into state.
-     * @param input Current state.
-     * @param key Key.
+     * Encrypts bytes into the binary format. The result starts with a {@link #VERSION_ECB} header byte followed by
+     * the encrypted blocks. The last block is always padded with PKCS#7 padding.
+     * @param plain bytes to encrypt, usually UTF-8 text.
+     * @param key expanded key.
+     * @return encrypted bytes.
      */
-    private void addRoundKey(int[] input, int[] key) {
-        for (int i = 0; i < 16; i++) {
-            input[i] = input[i] ^ key[i];
-        }
+    public byte[] encrypt(byte[] plain, AesKey key) {
+        return encrypt(plain, 0, plain.length, key);
     }
 
-
-    /* DECRYPT */
-
-
     /**
-     * Decrypts given cipherText
-     * @param hexCipher cipher to decrypt
-     * @param secret secret to use to decrypt
-     * @return decrypted Text
+     * Encrypts a range of bytes into the binary format.
+     * @param plain array holding the bytes to encrypt.
+     * @param off offset of the first byte.
+     * @param len number of bytes to encrypt.
+     * @param key expanded key.
+     * @return encrypted bytes.
+     * @see #encrypt(byte[], AesKey)
      */
-    public String decryptAES128(String hexCipher, String secret) {
-
-        int loopLength = hexCipher.length()%32 == 0 ? hexCipher.length()/32 : hexCipher.length()/32 +1;
-        int[] state;
-
-        String hexKey = stringToHex(secret);
-        int[] initialKey = new int[16];
-        if (32 > hexKey.length()) {
-            initialKey = splitInto16Bytes(hexKey);
-        } else {
-            initialKey = splitInto16Bytes(hexKey.substring(0, 32));
+    public byte[] encrypt(byte[] plain, int off, int len, AesKey key) {
+        int padding = AesEngine.BLOCK_SIZE - len % AesEngine.BLOCK_SIZE;
+        byte[] out = new byte[1 + len + padding];
+        out[0] = VERSION_ECB;
+        System.arraycopy(plain, off, out, 1, len);
+        for (int i = 1 + len; i < out.length; i++) {
+            out[i] = (byte) padding;
         }
 
-        int[] expandedKey = keySchedule(initialKey);
-        String decryptedString = "";
-        for (int i = 0; i < loopLength; i++) {
-            if ((i+1)*32 >= hexCipher.length()) {
-                state = splitUtf16Into16Bytes(hexCipher.substring(i*32));
-
-            } else {
-                state = splitUtf16Into16Bytes(hexCipher.substring(i*32, (i+1)*32));
-            }
-            decrypt(state, expandedKey);
-            if (i == loopLength-1) {
-                state = removePadding(state);
-            }
-            decryptedString += toHexString(state);
+        int[] roundKeys = key.getEncryptionKeys();
+        for (int i = 1; i < out.length; i += AesEngine.BLOCK_SIZE) {
+            AesEngine.encryptBlock(roundKeys, out, i, out, i);
         }
-
-        decryptedString = convertToString(decryptedString);
-
-        return decryptedString;
+        return out;
     }
 
     /**
-     * Decrypting main loop in AES128.
-     * @param state data to decrypt.
-     * @param key expanded key
+     * Encrypts the remaining bytes of a buffer into the binary format. The position of the buffer is moved to its
+     * limit.
+     * @param plain buffer to encrypt.
+     * @param key expanded key.
+     * @return buffer holding the encrypted bytes.
+     * @see #encrypt(byte[], AesKey)
      */
-    private void decrypt(int[] state, int[] key) {
-        addRoundKey(state, Arrays.copyOfRange(key, 16*10, key.length));
-
-        for (int i = 9; i > 0; i--) {
-            invShiftRows(state);
-            invSubBytes(state);
-            addRoundKey(state, Arrays.copyOfRange(key, i*16, (i+1)*16));
-
-            invMixColumns(state);
+    public ByteBuffer encrypt(ByteBuffer plain, AesKey key) {
+        byte[] out;
+        if (plain.hasArray()) {
+            out = encrypt(plain.array(), plain.arrayOffset() + plain.position(), plain.remaining(), key);
+            plain.position(plain.limit());
+        } else {
+            byte[] copy = new byte[plain.remaining()];
+            plain.get(copy);
+            out = encrypt(copy, key);
         }
-
-        invShiftRows(state);
-        invSubBytes(state);
-        addRoundKey(state, Arrays.copyOfRange(key, 0, 16));
-
+        return ByteBuffer.wrap(out);
     }
 
     /**
-     * Inversed shiftrows step for decrypting
-     * @param state data to decrypt.
+     * Encrypts bytes in counter mode. The result starts with a {@link #VERSION_CTR} header byte and a random
+     * 8 byte nonce followed by the encrypted bytes, which are as long as the plain bytes. Payloads of
+     * {@value CtrMode#PARALLEL_THRESHOLD} bytes or more are encrypted in parallel.
+     * @param plain bytes to encrypt, usually UTF-8 text.
+     * @param key expanded key.
+     * @return encrypted bytes.
      */
-    private void invShiftRows(int[] state) {
-        int[] temp = new int[16];
-
-        temp[0] = state[0];
-        temp[1] = state[13];
-        temp[2] = state[10];
-        temp[3] = state[7];
-
-        temp[4] = state[4];
-        temp[5] = state[1];
-        temp[6] = state[14];
-        temp[7] = state[11];
-
-        temp[8] = state[8];
-        temp[9] = state[5];
-        temp[10] = state[2];
-        temp[11] = state[15];
-
-        temp[12] = state[12];
-        temp[13] = state[9];
-        temp[14] = state[6];
-        temp[15] = state[3];
-
-        for (int i = 0; i < 16; i++) {
-            state[i] = temp[i];
-        }
+    public byte[] encryptCtr(byte[] plain, AesKey key) {
+        byte[] out = new byte[1 + NONCE_SIZE + plain.length];
+        out[0] = VERSION_CTR;
+        long nonce = newNonce();
+        CtrMode.writeLong(out, 1, nonce);
+        CtrMode.apply(key.getEncryptionKeys(), nonce, plain, 0, out, 1 + NONCE_SIZE, plain.length);
+        return out;
     }
 
     /**
-     * Inversed subBytes step for decrypting
-     * @param state data to decrypt.
+     * Picks a random nonce for a counter mode payload.
+     * @return new nonce.
      */
-    private void invSubBytes(int[] state) {
-        for (int i = 0; i < 16; i++) {
-            state[i] = INVSBOX[state[i]];
-        }
+    static long newNonce() {
+        return RANDOM.nextLong();
     }
 
     /**
-     * Inversed MixColumns step for decrypting
-     * @param state data to decrypt
+     * Decrypts bytes made with {@link #encrypt(byte[], AesKey)} or {@link #encryptCtr(byte[], AesKey)}.
+     * @param cipher encrypted bytes.
+     * @param key expanded key.
+     * @return decrypted bytes.
+     * @throws IllegalArgumentException if the bytes are not in the binary format or the padding is invalid.
      */
-    private void invMixColumns(int[] state) {
-        int i = 0;
-        do {
-            int[] temp = new int[4];
-            temp[0] = (MULTI14[state[i+0]] ^ MULTI11[state[i+1]] ^ MULTI13[state[i+2]] ^ MULTI9[state[i+3]]);
-            temp[1] = (MULTI9[state[i+0]] ^ MULTI14[state[i+1]] ^ MULTI11[state[i+2]] ^ MULTI13[state[i+3]]);
-            temp[2]= (MULTI13[state[i+0]] ^ MULTI9[state[i+1]] ^ MULTI14[state[i+2]] ^ MULTI11[state[i+3]]);
-            temp[3] = (MULTI11[state[i+0]] ^ MULTI13[state[i+1]] ^ MULTI9[state[i+2]] ^ MULTI14[state[i+3]]);
-
-            for (int j = i; j < i+4; j++) {
-                state[j] = temp[j%4];
-            }
-            i += 4;
-        } while(i < 16);
-
+    public byte[] decrypt(byte[] cipher, AesKey key) {
+        return decrypt(cipher, 0, cipher.length, key);
     }
 
-    /* KEY SCHEDULE */
-
     /**
-     * Generates keys to use during the encryption.
-     * @param input initial key.
-     * @return generated key schedule.
+     * Decrypts a range of bytes made with {@link #encrypt(byte[], AesKey)} or {@link #encryptCtr(byte[], AesKey)}.
+     * The format is picked by the header byte.
+     * @param cipher array holding the encrypted bytes.
+     * @param off offset of the first byte.
+     * @param len number of bytes to decrypt.
+     * @param key expanded key.
+     * @return decrypted bytes.
+     * @throws IllegalArgumentException if the bytes are not in the binary format or the padding is invalid.
      */
-    private int[] keySchedule(int[] input) {
-        int[] keySchedule = new int[176];
-
-        for (int i = 0; i < input.length; i++) {
-            keySchedule[i] = input[i];
+    public byte[] decrypt(byte[] cipher, int off, int len, AesKey key) {
+        if (len > 0 && cipher[off] == VERSION_CTR) {
+            if (len < 1 + NONCE_SIZE) {
+                throw new IllegalArgumentException("Invalid cipher length " + len);
+            }
+            long nonce = CtrMode.readLong(cipher, off + 1);
+            byte[] out = new byte[len - 1 - NONCE_SIZE];
+            CtrMode.apply(key.getEncryptionKeys(), nonce, cipher, off + 1 + NONCE_SIZE, out, 0, out.length);
+            return out;
+        }
+        if (len < 1 + AesEngine.BLOCK_SIZE || (len - 1) % AesEngine.BLOCK_SIZE != 0) {
+            throw new IllegalArgumentException("Invalid cipher length " + len);
+        }
+        if (cipher[off] != VERSION_ECB) {
+            throw new IllegalArgumentException("Unknown cipher version " + cipher[off]);
         }
 
-        int[] temp = new int[4];
-        int index = 1;
-        int c = 16;
-        while(c < 176) {
-            for (int a = 0; a < 4; a++) {
-                temp[a] = keySchedule[a+c-4];
-            }
-            if ( c % 16 == 0) {
-                temp = scheduleCore(temp, index);
-                index++;
-            }
+        byte[] out = new byte[len - 1];
+        int[] roundKeys = key.getDecryptionKeys();
+        for (int i = 0; i < out.length; i += AesEngine.BLOCK_SIZE) {
+            AesEngine.decryptBlock(roundKeys, cipher, off + 1 + i, out, i);
+        }
 
-            for (int a = 0; a < 4; a++) {
-                keySchedule[c] = keySchedule[c-16] ^ temp[a];
-                c++;
+        int padding = out[out.length - 1];
+        if (padding < 1 || padding > AesEngine.BLOCK_SIZE) {
+            throw new IllegalArgumentException("Invalid padding");
+        }
+        for (int i = out.length - padding; i < out.length; i++) {
+            if (out[i] != padding) {
+                throw new IllegalArgumentException("Invalid padding");
             }
-
         }
-
-        return keySchedule;
+        return Arrays.copyOf(out, out.length - padding);
     }
 
     /**
-     * Core of the key schedule function.
-     * @param in input of 4 bytes.
-     * @param i number of the loop.
-     * @return converted array.
+     * Decrypts the remaining bytes of a buffer made with {@link #encrypt(ByteBuffer, AesKey)}. The position of the
+     * buffer is moved to its limit.
+     * @param cipher buffer to decrypt.
+     * @param key expanded key.
+     * @return buffer holding the decrypted bytes.
+     * @throws IllegalArgumentException if the bytes are not in the binary format or the padding is invalid.
      */
-    private int[] scheduleCore(int[] in, int i) {
-        int[] converted = rotate(in);
-        for (int c = 0; c < 4; c++) {
-            converted[c] = SBOX[converted[c]];
+    public ByteBuffer decrypt(ByteBuffer cipher, AesKey key) {
+        byte[] out;
+        if (cipher.hasArray()) {
+            out = decrypt(cipher.array(), cipher.arrayOffset() + cipher.position(), cipher.remaining(), key);
+            cipher.position(cipher.limit());
+        } else {
+            byte[] copy = new byte[cipher.remaining()];
+            cipher.get(copy);
+            out = decrypt(copy, key);
         }
-        converted[0] ^= RCON256[i];
-        return converted;
+        return ByteBuffer.wrap(out);
     }
 
+    /* KEY SCHEDULE */
+
     /**
-     * Rotates bytes 1 to the left.
-     * @param input input array of 4 bytes.
-     * @return rotated bytes.
+     * Expands a key from a secret. The key is made from the hex form of the secret the same way as in
+     * {@link #encryptAES128(String, String)}. Callers should hold on to the key instead of deriving it for
+     * every call.
+     * @param secret secret to expand.
+     * @return expanded key.
      */
-    private int[] rotate(int[] input) {
-        int[] retArray = new int[4];
-
-        for (int i = 0; i < 3; i++) {
-            retArray[i] = input[i+1];
+    public AesKey deriveKey(String secret) {
+        String hexKey = stringToHex(secret);
+        int[] initialKey;
+        if (32 > hexKey.length()) {
+            initialKey = splitInto16Bytes(hexKey);
+        } else {
+            initialKey = splitInto16Bytes(hexKey.substring(0, 32));
         }
-
-        retArray[3] = input[0];
-        return retArray;
+        byte[] key = new byte[AesEngine.BLOCK_SIZE];
+        for (int i = 0; i < key.length; i++) {
+            key[i] = (byte) initialKey[i];
+        }
+        AesKey expanded = new AesKey(key);
+        Arrays.fill(key, (byte) 0);
+        return expanded;
     }
 
     /**
-     * Splits an input of utf16 hexstring into an array of bytes
-     * @param input input String containing utf16 letters
-     * @return input split into array of 16 bits.
+     * Returns the expanded key for a secret given to the String based methods. The key is only expanded again
+     * when the secret changes.
+     * @param secret secret to expand.
+     * @return expanded key.
      */
-    private int[] splitUtf16Into16Bytes(String input) {
-        int[] split = new int[16];
-
-        int strIndex = 0;
-        for (int i = 0; i < 16; i++) {
-            
-            if (strIndex >= input.length()) {
-                int difference = 16-(input.length()/2);
-                split[i] = difference;
-            } else {
-                split[i] = Integer.parseInt(input.substring(strIndex, strIndex+2), 16);
-                strIndex += 2;
-            }
-            
+    private synchronized AesKey keyFor(String secret) {
+        if (!secret.equals(cachedSecret)) {
+            cachedKey = deriveKey(secret);
+            cachedSecret = secret;
         }
-        return split;
-    }   
+        return cachedKey;
+    }
 
     /**
      * Splits an jnput string into an Array of character integer values
@@ -586,21 +356,19 @@ public class Crypter {
     }
 
     /**
-     * Converts an array of bytes into a Hex String
-     * @param input array of bytes
+     * Converts a block of bytes into a Hex String
+     * @param input block of bytes
+     * @param length number of bytes to convert
      * @return converted Hex String
      */
-    private String toHexString(int[] input) {
-        String converted = "";
-        for (int i = 0; i < input.length; i++) {
-            String convertedHex = Integer.toHexString(input[i]);
-            if (convertedHex.length() == 1) {
-                convertedHex = "0" + convertedHex;
-            }
-            converted += convertedHex;
+    private String toHexString(byte[] input, int length) {
+        char[] converted = new char[length * 2];
+        for (int i = 0; i < length; i++) {
+            converted[i * 2] = HEX_DIGITS[(input[i] >>> 4) & 0xf];
+            converted[i * 2 + 1] = HEX_DIGITS[input[i] & 0xf];
         }
 
-        return converted;
+        return new String(converted);
     }
 
     /**
@@ -629,38 +397,24 @@ public class Crypter {
     }
 
     /**
-     * Converts a given hexString to UTF String. Removes padding from the end of the String.
-     * @param input hexString to convert
-     * @return converted, converted String.
-     */
-    private String convertToString(String input) {
-        String result = "";
-        for (int i = 0; i < input.length(); i += 4) {
-            char ch = (char) Integer.parseInt(input.substring(i, i+4), 16);
-            result += ch;
-        }
-        return result;
-    }
-
-    /**
-     * Removes padding from the end of decrypted text.
-     * @param input input array of 16 bytes with padding to remove.
-     * @return array of bytes with padding removed.
+     * Removes padding from the end of decrypted legacy text.
+     * @param input decrypted bytes.
+     * @param off offset of the last block of 16 bytes with padding to remove.
+     * @return number of bytes left in the block once padding is removed.
      */
-    private int[] removePadding(int[] input) {
-        Integer endValues[] = {0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16};
-        int endValue = input[input.length-1];
-        if (Arrays.asList(endValues).indexOf(endValue) > -1) {
+    private int removePadding(byte[] input, int off) {
+        int endValue = input[off+15];
+        if (endValue >= 0 && endValue <= 16) {
             boolean isRemovable = true;
-            for (int i = input.length-1; i > input.length- input[input.length-1]; i--) {
-                isRemovable = input[i] == endValue ? true : false;
+            for (int i = 15; i > 16-endValue; i--) {
+                isRemovable = input[off+i] == endValue;
             }
             if (isRemovable) {
-                input = Arrays.copyOfRange(input, 0, input.length-endValue);
+                return 16-endValue;
             }
         }
 
-        return input;
+        return 16;
     }
 
 
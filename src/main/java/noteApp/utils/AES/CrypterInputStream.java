@@ -0,0 +1,145 @@
+package noteApp.utils.AES;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Input stream that encrypts the bytes of the underlying stream while they are read.
+ * <p>
+ * The underlying stream holds plain bytes and this stream returns them in the counter mode format of
+ * {@link Crypter}, the same as {@link Crypter#encryptCtr(byte[], AesKey)}, which makes it usable as a request body.
+ * Only one chunk is held in memory at a time.
+ */
+public class CrypterInputStream extends FilterInputStream {
+
+    /**
+     * Number of bytes encrypted at once.
+     */
+    static final int CHUNK_SIZE = 8192;
+
+    private final int[] roundKeys;
+    /**
+     * Nonce and number of the next block.
+     */
+    private long nonce;
+    private long block;
+    /**
+     * Bytes read from the underlying stream that have not been encrypted yet.
+     */
+    private final byte[] input = new byte[CHUNK_SIZE];
+    private int inputCount;
+    /**
+     * Encrypted bytes waiting to be read.
+     */
+    private final byte[] output = new byte[1 + Crypter.NONCE_SIZE + CHUNK_SIZE];
+    private int outputPos;
+    private int outputCount;
+    private boolean started;
+    private boolean finished;
+
+    /**
+     * Creates a stream encrypting the given input stream.
+     * @param in stream to read the plain bytes from.
+     * @param key expanded key.
+     */
+    public CrypterInputStream(InputStream in, AesKey key) {
+        super(in);
+        this.roundKeys = key.getEncryptionKeys();
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (outputPos == outputCount && !fill()) {
+            return -1;
+        }
+        return output[outputPos++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (outputPos == outputCount && !fill()) {
+            return -1;
+        }
+        int n = Math.min(len, outputCount - outputPos);
+        System.arraycopy(output, outputPos, b, off, n);
+        outputPos += n;
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = 0;
+        while (skipped < n && (outputPos < outputCount || fill())) {
+            int step = (int) Math.min(n - skipped, outputCount - outputPos);
+            outputPos += step;
+            skipped += step;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return outputCount - outputPos;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    /**
+     * Encrypts the next chunk of the underlying stream. The first chunk is preceded by the header byte and a new
+     * nonce.
+     * @return false if the stream has ended.
+     * @throws IOException if reading fails.
+     */
+    private boolean fill() throws IOException {
+        outputPos = 0;
+        outputCount = 0;
+        if (finished) {
+            return false;
+        }
+        if (!started) {
+            nonce = Crypter.newNonce();
+            output[outputCount++] = Crypter.VERSION_CTR;
+            CtrMode.writeLong(output, outputCount, nonce);
+            outputCount += Crypter.NONCE_SIZE;
+            started = true;
+        }
+        finished = readInput();
+        CtrMode.apply(roundKeys, nonce, block, input, 0, output, outputCount, inputCount);
+        block += inputCount / AesEngine.BLOCK_SIZE;
+        outputCount += inputCount;
+        inputCount = 0;
+        return outputCount > 0;
+    }
+
+    /**
+     * Reads from the underlying stream until the input buffer is full. Every chunk but the last is full, so the
+     * counter of the next chunk always starts on a block boundary.
+     * @return true if the underlying stream ended.
+     */
+    private boolean readInput() throws IOException {
+        while (inputCount < input.length) {
+            int n = in.read(input, inputCount, input.length - inputCount);
+            if (n < 0) {
+                return true;
+            }
+            inputCount += n;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,143 @@
+package noteApp.utils.AES;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Counter mode on top of {@link AesEngine}.
+ * <p>
+ * The counter block of block number {@code i} is the 8 byte nonce followed by {@code i} as a big endian long. Each
+ * block is encrypted independently of the others, so large payloads are split into segments that are processed on
+ * a {@link ForkJoinPool}. Encryption and decryption are the same operation and both use the encryption round keys.
+ */
+final class CtrMode {
+
+    /**
+     * Payload size in bytes from which the work is split across the pool.
+     */
+    static final int PARALLEL_THRESHOLD = 256 * 1024;
+
+    /**
+     * Smallest segment a task is split into. Must be a multiple of the block size.
+     */
+    private static final int SEGMENT_SIZE = 64 * 1024;
+
+    private CtrMode() {
+    }
+
+    /**
+     * XORs the key stream into a range of bytes.
+     * @param rk encryption round keys.
+     * @param nonce nonce of the payload.
+     * @param in input bytes.
+     * @param inOff offset of the first input byte.
+     * @param out array to write the result to.
+     * @param outOff offset of the first output byte.
+     * @param len number of bytes to process.
+     */
+    static void apply(int[] rk, long nonce, byte[] in, int inOff, byte[] out, int outOff, int len) {
+        apply(rk, nonce, 0, in, inOff, out, outOff, len);
+    }
+
+    /**
+     * XORs the key stream into a range of bytes starting from the given block of the payload. Used when a payload
+     * is processed in several chunks.
+     * @param rk encryption round keys.
+     * @param nonce nonce of the payload.
+     * @param firstBlock number of the block the range starts at.
+     * @param in input bytes.
+     * @param inOff offset of the first input byte.
+     * @param out array to write the result to.
+     * @param outOff offset of the first output byte.
+     * @param len number of bytes to process.
+     */
+    static void apply(int[] rk, long nonce, long firstBlock, byte[] in, int inOff, byte[] out, int outOff, int len) {
+        if (len >= PARALLEL_THRESHOLD) {
+            ForkJoinPool.commonPool().invoke(new CtrTask(rk, nonce, firstBlock, in, inOff, out, outOff, 0, len));
+        } else {
+            applyRange(rk, nonce, firstBlock, in, inOff, out, outOff, 0, len);
+        }
+    }
+
+    /**
+     * Sequentially XORs the key stream into the bytes between {@code from} and {@code to}.
+     * {@code from} must be at a block boundary.
+     */
+    private static void applyRange(int[] rk, long nonce, long firstBlock, byte[] in, int inOff,
+                                   byte[] out, int outOff, int from, int to) {
+        byte[] counter = new byte[2 * AesEngine.BLOCK_SIZE];
+        writeLong(counter, 0, nonce);
+        long block = firstBlock + from / AesEngine.BLOCK_SIZE;
+        for (int pos = from; pos < to; pos += AesEngine.BLOCK_SIZE) {
+            writeLong(counter, 8, block++);
+            AesEngine.encryptBlock(rk, counter, 0, counter, AesEngine.BLOCK_SIZE);
+            int n = Math.min(AesEngine.BLOCK_SIZE, to - pos);
+            for (int i = 0; i < n; i++) {
+                out[outOff + pos + i] = (byte) (in[inOff + pos + i] ^ counter[AesEngine.BLOCK_SIZE + i]);
+            }
+        }
+    }
+
+    /**
+     * Writes a long as eight big endian bytes.
+     */
+    static void writeLong(byte[] b, int off, long value) {
+        for (int i = 7; i >= 0; i--) {
+            b[off + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+    /**
+     * Reads eight big endian bytes as a long.
+     */
+    static long readLong(byte[] b, int off) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = value << 8 | (b[off + i] & 0xff);
+        }
+        return value;
+    }
+
+    /**
+     * Task that halves its range until it is small enough to process sequentially.
+     */
+    private static class CtrTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] rk;
+        private final long nonce;
+        private final long firstBlock;
+        private final byte[] in;
+        private final int inOff;
+        private final byte[] out;
+        private final int outOff;
+        private final int from;
+        private final int to;
+
+        CtrTask(int[] rk, long nonce, long firstBlock, byte[] in, int inOff, byte[] out, int outOff,
+                int from, int to) {
+            this.rk = rk;
+            this.nonce = nonce;
+            this.firstBlock = firstBlock;
+            this.in = in;
+            this.inOff = inOff;
+            this.out = out;
+            this.outOff = outOff;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 2 * SEGMENT_SIZE) {
+                applyRange(rk, nonce, firstBlock, in, inOff, out, outOff, from, to);
+                return;
+            }
+            int middle = from + (to - from) / 2;
+            middle -= middle % SEGMENT_SIZE;
+            invokeAll(new CtrTask(rk, nonce, firstBlock, in, inOff, out, outOff, from, middle),
+                    new CtrTask(rk, nonce, firstBlock, in, inOff, out, outOff, middle, to));
+        }
+    }
+}
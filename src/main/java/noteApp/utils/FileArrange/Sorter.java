@@ -2,7 +2,7 @@ package noteApp.utils.FileArrange;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Date;
+import java.util.Comparator;
 import java.util.List;
 
 import javafx.collections.FXCollections;
@@ -108,6 +108,28 @@ public class Sorter {
         return noteList;
     }
 
+    /**
+     * Returns the order the sort methods put Notes in, so Notes added later can be put in the same order
+     * @param type sorting type
+     * @return comparator of the order, null if the Notes are not sorted
+     */
+    public static Comparator<Note> comparator(SortingType type) {
+        switch (type) {
+            case ASCENDINGTAG:
+                return Comparator.comparingInt((Note note) -> note.getTag().ordinal()).reversed();
+            case DESCENDINGTAG:
+                return Comparator.comparingInt(note -> note.getTag().ordinal());
+            case ASCENDINGDATE:
+                return Comparator.comparingLong(Note::getDateMillis);
+            case DESCENDINGDATE:
+                return Comparator.comparingLong(Note::getDateMillis).reversed();
+            case DESCENDINGNAME:
+                return (note1, note2) -> note1.getTitle().compareToIgnoreCase(note2.getTitle());
+            default:
+                return null;
+        }
+    }
+
     /**
      * Sorts notes using the quicksort-algorighm
      * @param A Array to sort
@@ -208,11 +230,11 @@ public class Sorter {
      */
     private static int sortDate(Note[] A, int lo, int hi, SortingType type) {
         int i = lo;
-        Date pivot = A[hi].getDate();
+        long pivot = A[hi].getDateMillis();
         for (int j = lo; j < hi; j++) {
             switch(type) {
                 case ASCENDINGDATE:
-                    if (A[j].getDate().before(pivot)) {
+                    if (A[j].getDateMillis() < pivot) {
                         Note temp = A[i];
                         A[i] = A[j];
                         A[j] = temp;
@@ -220,7 +242,7 @@ public class Sorter {
                     }
                     break;
                 case DESCENDINGDATE:
-                    if (A[j].getDate().after(pivot)) {
+                    if (A[j].getDateMillis() > pivot) {
                         Note temp = A[i];
                         A[i] = A[j];
                         A[j] = temp;
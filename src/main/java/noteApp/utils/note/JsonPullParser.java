@@ -0,0 +1,316 @@
+package noteApp.utils.note;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Pull parser that reads JSON one value at a time from a stream.
+ * <p>
+ * Only the value being read is held in memory, so a list of notes can be turned into Note objects while it is
+ * downloaded without building the whole document first. Structural characters are consumed by
+ * {@link #beginArray()}, {@link #beginObject()}, {@link #endArray()} and {@link #endObject()}, and
+ * {@link #hasNext()} tells whether the current array or object has more values.
+ */
+final class JsonPullParser {
+
+    /**
+     * Kind of the next value.
+     */
+    enum Token {
+        BEGIN_ARRAY, BEGIN_OBJECT, STRING, NUMBER, BOOLEAN, NULL, END
+    }
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+
+    /**
+     * Collects the characters of the string being read, reused for every string.
+     */
+    private final StringBuilder sb = new StringBuilder();
+    private int pos;
+    private int limit;
+
+    /**
+     * True when a value has been read in the current array or object and a comma is expected before the next one.
+     */
+    private boolean needsComma;
+
+    JsonPullParser(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Returns the kind of the next value without consuming it.
+     * @return kind of the next value, {@link Token#END} at the end of the input.
+     * @throws IOException if reading fails or the input is not valid JSON.
+     */
+    Token peek() throws IOException {
+        int c = peekValueStart();
+        switch (c) {
+            case -1:
+                return Token.END;
+            case '[':
+                return Token.BEGIN_ARRAY;
+            case '{':
+                return Token.BEGIN_OBJECT;
+            case '"':
+                return Token.STRING;
+            case 't':
+            case 'f':
+                return Token.BOOLEAN;
+            case 'n':
+                return Token.NULL;
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    return Token.NUMBER;
+                }
+                throw syntaxError("Unexpected character '" + (char) c + "'");
+        }
+    }
+
+    void beginArray() throws IOException {
+        expectValue('[');
+        pos++;
+        needsComma = false;
+    }
+
+    void endArray() throws IOException {
+        expectEnd(']');
+    }
+
+    void beginObject() throws IOException {
+        expectValue('{');
+        pos++;
+        needsComma = false;
+    }
+
+    void endObject() throws IOException {
+        expectEnd('}');
+    }
+
+    /**
+     * Returns true if the current array or object has another value.
+     * @return true if there is another value.
+     * @throws IOException if reading fails.
+     */
+    boolean hasNext() throws IOException {
+        int c = peekNonWhitespace();
+        return c != ']' && c != '}' && c != -1;
+    }
+
+    /**
+     * Reads the name of the next member of the current object.
+     * @return name of the member.
+     * @throws IOException if reading fails or the next value is not a member.
+     */
+    String nextName() throws IOException {
+        String name = nextString();
+        if (peekNonWhitespace() != ':') {
+            throw syntaxError("Expected ':'");
+        }
+        pos++;
+        needsComma = false;
+        return name;
+    }
+
+    /**
+     * Reads a string value.
+     * @return the string.
+     * @throws IOException if reading fails or the next value is not a string.
+     */
+    String nextString() throws IOException {
+        expectValue('"');
+        pos++;
+        sb.setLength(0);
+        while (true) {
+            int start = pos;
+            while (pos < limit) {
+                char c = buffer[pos];
+                if (c == '"' || c == '\\') {
+                    break;
+                }
+                pos++;
+            }
+            sb.append(buffer, start, pos - start);
+            if (pos == limit) {
+                if (!fill()) {
+                    throw syntaxError("Unterminated string");
+                }
+                continue;
+            }
+            if (buffer[pos++] == '"') {
+                needsComma = true;
+                return sb.toString();
+            }
+            sb.append(readEscape());
+        }
+    }
+
+    /**
+     * Reads a number value as a long. A fraction or exponent is cut off.
+     * @return the number.
+     * @throws IOException if reading fails or the next value is not a number.
+     */
+    long nextLong() throws IOException {
+        if (peek() != Token.NUMBER) {
+            throw syntaxError("Expected a number");
+        }
+        sb.setLength(0);
+        while (pos < limit || fill()) {
+            char c = buffer[pos];
+            if (c == ',' || c == ']' || c == '}' || Character.isWhitespace(c)) {
+                break;
+            }
+            sb.append(c);
+            pos++;
+        }
+        needsComma = true;
+        try {
+            return Long.parseLong(sb.toString());
+        } catch (NumberFormatException e) {
+            try {
+                return (long) Double.parseDouble(sb.toString());
+            } catch (NumberFormatException invalid) {
+                throw syntaxError("Invalid number " + sb);
+            }
+        }
+    }
+
+    /**
+     * Skips the next value, with everything nested in it.
+     * @throws IOException if reading fails or the value is not valid JSON.
+     */
+    void skipValue() throws IOException {
+        switch (peek()) {
+            case BEGIN_ARRAY:
+                beginArray();
+                while (hasNext()) {
+                    skipValue();
+                }
+                endArray();
+                break;
+            case BEGIN_OBJECT:
+                beginObject();
+                while (hasNext()) {
+                    nextName();
+                    skipValue();
+                }
+                endObject();
+                break;
+            case STRING:
+                nextString();
+                break;
+            case END:
+                throw syntaxError("Unexpected end of input");
+            default:
+                skipLiteral();
+        }
+    }
+
+    /**
+     * Skips a number, true, false or null.
+     */
+    private void skipLiteral() throws IOException {
+        while (true) {
+            if (pos == limit && !fill()) {
+                break;
+            }
+            char c = buffer[pos];
+            if (c == ',' || c == ']' || c == '}' || c == ':' || Character.isWhitespace(c)) {
+                break;
+            }
+            pos++;
+        }
+        needsComma = true;
+    }
+
+    private char readEscape() throws IOException {
+        if (pos == limit && !fill()) {
+            throw syntaxError("Unterminated escape");
+        }
+        char c = buffer[pos++];
+        switch (c) {
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'u':
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    if (pos == limit && !fill()) {
+                        throw syntaxError("Unterminated escape");
+                    }
+                    int digit = Character.digit(buffer[pos++], 16);
+                    if (digit < 0) {
+                        throw syntaxError("Invalid unicode escape");
+                    }
+                    value = value << 4 | digit;
+                }
+                return (char) value;
+            default:
+                return c;
+        }
+    }
+
+    /**
+     * Skips whitespace and the comma before the next value, and returns the first character of the value.
+     */
+    private int peekValueStart() throws IOException {
+        int c = peekNonWhitespace();
+        if (needsComma && c == ',') {
+            pos++;
+            needsComma = false;
+            c = peekNonWhitespace();
+        }
+        return c;
+    }
+
+    private void expectValue(char expected) throws IOException {
+        if (peekValueStart() != expected) {
+            throw syntaxError("Expected '" + expected + "'");
+        }
+    }
+
+    private void expectEnd(char expected) throws IOException {
+        if (peekNonWhitespace() != expected) {
+            throw syntaxError("Expected '" + expected + "'");
+        }
+        pos++;
+        needsComma = true;
+    }
+
+    private int peekNonWhitespace() throws IOException {
+        while (true) {
+            if (pos == limit && !fill()) {
+                return -1;
+            }
+            char c = buffer[pos];
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return c;
+            }
+            pos++;
+        }
+    }
+
+    private boolean fill() throws IOException {
+        int read = reader.read(buffer, 0, buffer.length);
+        if (read <= 0) {
+            return false;
+        }
+        pos = 0;
+        limit = read;
+        return true;
+    }
+
+    private IOException syntaxError(String message) {
+        return new IOException("Invalid JSON: " + message);
+    }
+}
@@ -0,0 +1,373 @@
+package noteApp.utils.note;
+
+import noteApp.model.note.Note;
+import noteApp.model.note.Tag;
+import org.bson.types.ObjectId;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Class to write Note objects to files in a compact binary form and read them back
+ * <p>
+ * A file starts with the bytes "MNOT" and the version of the format, followed by any number of notes. Each note is
+ * its length and then its fields, and fields added by later versions after the known ones are skipped. Numbers are
+ * varints, strings are UTF-8, the id is the 12 bytes of the ObjectId, the tag is its ordinal and the date is the
+ * epoch milliseconds. New tags have to be added to the end of {@link Tag} to keep the ordinals.
+ * <p>
+ * Files written with Java serialization before this format are read by {@link Reader} as a file of one note. Only
+ * the classes of a Note are accepted from them.
+ */
+public class NoteCodec {
+
+    /**
+     * Version of the format written
+     */
+    public static final int VERSION = 1;
+
+    private static final byte[] MAGIC = {'M', 'N', 'O', 'T'};
+
+    /**
+     * First bytes of a Java serialization stream
+     */
+    private static final byte[] SERIALIZATION_MAGIC = {(byte) 0xAC, (byte) 0xED};
+
+    /**
+     * Notes longer than this are taken to be corrupted lengths
+     */
+    private static final int MAX_NOTE_SIZE = 1 << 30;
+
+    /**
+     * Classes accepted from files written with Java serialization
+     */
+    private static final ObjectInputFilter LEGACY_FILTER = ObjectInputFilter.Config.createFilter(
+            "noteApp.model.note.Note;noteApp.model.note.Tag;org.bson.types.ObjectId;org.bson.types.ObjectId$*;"
+                    + "java.util.Date;java.lang.Enum;java.lang.String;[B;maxdepth=5;maxrefs=64;!*");
+
+    private NoteCodec() {
+    }
+
+    /**
+     * Writes a file of a single Note
+     * @param out stream to write to, not closed
+     * @param note Note to write
+     * @throws IOException if writing fails
+     */
+    public static void write(OutputStream out, Note note) throws IOException {
+        Writer writer = new Writer(out);
+        writer.write(note);
+        writer.flush();
+    }
+
+    /**
+     * Encodes a single Note as the bytes of a file, for example for a record of the local note store
+     * @param note Note to encode
+     * @return bytes of a file of the Note
+     */
+    public static byte[] encode(Note note) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            write(bytes, note);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes a Note encoded with {@link #encode(Note)}. Unlike files, bytes written with Java serialization are not
+     * accepted.
+     * @param bytes array holding the encoded Note
+     * @param offset start of the encoded Note in the array
+     * @param length length of the encoded Note
+     * @return the Note
+     * @throws IOException if the bytes are not an encoded Note or are damaged
+     */
+    public static Note decode(byte[] bytes, int offset, int length) throws IOException {
+        if (length < MAGIC.length || !Arrays.equals(bytes, offset, offset + MAGIC.length, MAGIC, 0, MAGIC.length)) {
+            throw new StreamCorruptedException("Not an encoded note");
+        }
+        Note note = new Reader(new ByteArrayInputStream(bytes, offset, length)).read();
+        if (note == null) {
+            throw new EOFException("No note in the encoded bytes");
+        }
+        return note;
+    }
+
+    /**
+     * Reads all Notes of a file written by this codec or with Java serialization
+     * @param in stream of the file, not closed
+     * @return the Notes in the order they were written
+     * @throws IOException if reading fails or the file is not a file of Notes
+     */
+    public static List<Note> readAll(InputStream in) throws IOException {
+        Reader reader = new Reader(in);
+        List<Note> notes = new ArrayList<>();
+        Note note;
+        while ((note = reader.read()) != null) {
+            notes.add(note);
+        }
+        return notes;
+    }
+
+    /**
+     * Writes Notes one at a time into a stream, so a file of many notes never has to be held in memory
+     */
+    public static class Writer implements Closeable {
+        private final OutputStream out;
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+        /**
+         * Creates a writer and writes the header of the file
+         * @param out stream to write to, closed with the writer
+         * @throws IOException if writing fails
+         */
+        public Writer(OutputStream out) throws IOException {
+            this.out = out instanceof BufferedOutputStream ? out : new BufferedOutputStream(out);
+            this.out.write(MAGIC);
+            writeVarLong(this.out, VERSION);
+        }
+
+        /**
+         * Writes a Note
+         * @param note Note to write
+         * @throws IOException if writing fails
+         */
+        public void write(Note note) throws IOException {
+            buffer.reset();
+            buffer.write(note.getId().toByteArray());
+            writeString(buffer, note.getUserId());
+            writeString(buffer, note.getTitle());
+            writeString(buffer, note.getContent());
+            writeVarLong(buffer, zigZag(note.getDateMillis()));
+            writeVarLong(buffer, note.getTag() == null ? 0 : note.getTag().ordinal() + 1);
+            writeString(buffer, note.getLabel());
+            writeVarLong(out, buffer.size());
+            buffer.writeTo(out);
+        }
+
+        /**
+         * Writes the buffered bytes to the stream
+         * @throws IOException if writing fails
+         */
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    /**
+     * Reads Notes one at a time from a stream
+     */
+    public static class Reader implements Closeable {
+        private final InputStream in;
+        private final int version;
+
+        /**
+         * Note of a file written with Java serialization, null after it is read
+         */
+        private Note legacyNote;
+
+        /**
+         * Creates a reader and reads the header of the file
+         * @param in stream to read from, closed with the reader
+         * @throws IOException if reading fails or the stream is not a file of Notes
+         */
+        public Reader(InputStream in) throws IOException {
+            this.in = in.markSupported() ? in : new BufferedInputStream(in);
+            this.in.mark(MAGIC.length);
+            byte[] header = this.in.readNBytes(MAGIC.length);
+            if (Arrays.equals(header, MAGIC)) {
+                version = (int) readVarLong(this.in);
+            } else if (header.length >= 2
+                    && header[0] == SERIALIZATION_MAGIC[0] && header[1] == SERIALIZATION_MAGIC[1]) {
+                this.in.reset();
+                version = 0;
+                legacyNote = readLegacy(this.in);
+            } else {
+                throw new StreamCorruptedException("Not a note file");
+            }
+        }
+
+        /**
+         * Returns the version of the format the file was written in
+         * @return version, 0 for a file written with Java serialization
+         */
+        public int getVersion() {
+            return version;
+        }
+
+        /**
+         * Reads the next Note
+         * @return the Note, null at the end of the file
+         * @throws IOException if reading fails or the file is damaged
+         */
+        public Note read() throws IOException {
+            if (version == 0) {
+                Note note = legacyNote;
+                legacyNote = null;
+                return note;
+            }
+            int first = in.read();
+            if (first < 0) {
+                return null;
+            }
+            long length = readVarLong(in, first);
+            if (length < 12 || length > MAX_NOTE_SIZE) {
+                throw new StreamCorruptedException("Invalid note length " + length);
+            }
+            byte[] bytes = in.readNBytes((int) length);
+            if (bytes.length < length) {
+                throw new EOFException("Note file ends in the middle of a note");
+            }
+            Cursor cursor = new Cursor(bytes, 12);
+            Note note = new Note();
+            note.setId(new ObjectId(Arrays.copyOf(bytes, 12)));
+            note.setUserId(cursor.readString());
+            note.setTitle(cursor.readString());
+            note.setContent(cursor.readString());
+            note.setDateMillis(unZigZag(cursor.readVarLong()));
+            long tag = cursor.readVarLong();
+            Tag[] tags = Tag.values();
+            note.setTag(tag > 0 && tag <= tags.length ? tags[(int) tag - 1] : Tag.NONE);
+            String label = cursor.readString();
+            note.setLabel(label == null ? "" : label);
+            return note;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        private static Note readLegacy(InputStream in) throws IOException {
+            ObjectInputStream ois = new ObjectInputStream(in);
+            ois.setObjectInputFilter(LEGACY_FILTER);
+            try {
+                Object note = ois.readObject();
+                if (!(note instanceof Note)) {
+                    throw new StreamCorruptedException("Not a note file");
+                }
+                return (Note) note;
+            } catch (ClassNotFoundException e) {
+                throw new StreamCorruptedException("Not a note file: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Writes a string as its UTF-8 length plus one and its bytes, 0 for null
+     */
+    private static void writeString(OutputStream out, String value) throws IOException {
+        if (value == null) {
+            writeVarLong(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length + 1L);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static void writeVarLong(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(InputStream in) throws IOException {
+        int first = in.read();
+        if (first < 0) {
+            throw new EOFException();
+        }
+        return readVarLong(in, first);
+    }
+
+    private static long readVarLong(InputStream in, int first) throws IOException {
+        long value = first & 0x7F;
+        int shift = 7;
+        int b = first;
+        while ((b & 0x80) != 0) {
+            b = in.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            if (shift > 63) {
+                throw new StreamCorruptedException("Varint too long");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        }
+        return value;
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Reads the fields of a note from its bytes
+     */
+    private static class Cursor {
+        private final byte[] bytes;
+        private int position;
+
+        Cursor(byte[] bytes, int position) {
+            this.bytes = bytes;
+            this.position = position;
+        }
+
+        long readVarLong() throws IOException {
+            long value = 0;
+            int shift = 0;
+            while (true) {
+                if (position >= bytes.length || shift > 63) {
+                    throw new StreamCorruptedException("Damaged note");
+                }
+                int b = bytes[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+                shift += 7;
+            }
+        }
+
+        String readString() throws IOException {
+            long length = readVarLong() - 1;
+            if (length < 0) {
+                return null;
+            }
+            if (length > bytes.length - position) {
+                throw new StreamCorruptedException("Damaged note");
+            }
+            String value = new String(bytes, position, (int) length, StandardCharsets.UTF_8);
+            position += (int) length;
+            return value;
+        }
+    }
+}
@@ -1,18 +1,27 @@
 package noteApp.utils.note;
 
 import noteApp.model.note.Note;
+import noteApp.model.note.NoteChanges;
+import noteApp.model.note.NotePage;
 
 import noteApp.model.note.Tag;
 
 import org.bson.types.ObjectId;
-import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.SequenceInputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -29,15 +38,125 @@ public class NoteUtil {
      * @return list of Note-objects
      */
     public static List<Note> parseList(String json) {
-        List<Note> notes = new ArrayList<>();
+        try {
+            List<Note> notes = parseList(new StringReader(json));
+            if (notes == null) {
+                throw new JSONException("Empty input");
+            }
+            return notes;
+        } catch (IOException e) {
+            throw new JSONException(e.getMessage());
+        }
+    }
 
-        JSONArray arr = new JSONArray(json);
-        for (int i = 0; i < arr.length(); i++) {
-            JSONObject jo = arr.getJSONObject(i);
-            notes.add(parse(jo.toString()));
+    /**
+     * Reads a JSON list of Notes from a stream
+     * <p>
+     * The notes are parsed in one pass while the stream is read, so only the note
+     * being parsed is held in memory besides the list.
+     * @param reader stream of a list of Notes as JSON
+     * @return list of Note-objects, null if the stream is empty
+     * @throws IOException if reading fails or the JSON is incorrectly formatted
+     */
+    public static List<Note> parseList(Reader reader) throws IOException {
+        JsonPullParser parser = new JsonPullParser(reader);
+        if (parser.peek() == JsonPullParser.Token.END) {
+            return null;
         }
+        return readList(parser);
+    }
 
-        return notes;
+    /**
+     * Takes the body of a sync response and parses it out to the changed notes
+     * <p>
+     * A JSON array is the full list of notes. A JSON object holds the changed notes
+     * in "notes" and the ids of the deleted notes in "deleted".
+     * If the JSON object is somehow incorrectly formatted throws JSONException
+     * @param json body of the sync response
+     * @param syncToken token returned with the response, null if none
+     * @return changed notes
+     */
+    public static NoteChanges parseChanges(String json, String syncToken) {
+        try {
+            NoteChanges changes = parseChanges(new StringReader(json), syncToken);
+            if (changes == null) {
+                throw new JSONException("Empty input");
+            }
+            return changes;
+        } catch (IOException e) {
+            throw new JSONException(e.getMessage());
+        }
+    }
+
+    /**
+     * Reads the body of a sync response from a stream, see {@link #parseChanges(String, String)}
+     * @param reader stream of the sync response
+     * @param syncToken token returned with the response, null if none
+     * @return changed notes, null if the stream is empty
+     * @throws IOException if reading fails or the JSON is incorrectly formatted
+     */
+    public static NoteChanges parseChanges(Reader reader, String syncToken) throws IOException {
+        JsonPullParser parser = new JsonPullParser(reader);
+        switch (parser.peek()) {
+            case END:
+                return null;
+            case BEGIN_ARRAY:
+                return NoteChanges.full(readList(parser), syncToken);
+            default:
+                break;
+        }
+        List<Note> notes = new ArrayList<>();
+        List<String> deleted = new ArrayList<>();
+        parser.beginObject();
+        while (parser.hasNext()) {
+            String name = parser.nextName();
+            if (name.equals("notes") && parser.peek() == JsonPullParser.Token.BEGIN_ARRAY) {
+                notes = readList(parser);
+            } else if (name.equals("deleted") && parser.peek() == JsonPullParser.Token.BEGIN_ARRAY) {
+                parser.beginArray();
+                while (parser.hasNext()) {
+                    deleted.add(parser.nextString());
+                }
+                parser.endArray();
+            } else {
+                parser.skipValue();
+            }
+        }
+        parser.endObject();
+        return new NoteChanges(notes, deleted, false, syncToken);
+    }
+
+    /**
+     * Reads a page of a metadata listing from a stream
+     * <p>
+     * The page is a JSON object holding the notes without content in "notes" and
+     * the number of notes in the whole list in "total". If the total is missing
+     * the page is taken to be the last one.
+     * @param reader stream of the page
+     * @param offset position of the first note of the page in the whole list
+     * @return the page, null if the stream is empty
+     * @throws IOException if reading fails or the JSON is incorrectly formatted
+     */
+    public static NotePage parsePage(Reader reader, int offset) throws IOException {
+        JsonPullParser parser = new JsonPullParser(reader);
+        if (parser.peek() == JsonPullParser.Token.END) {
+            return null;
+        }
+        List<Note> notes = new ArrayList<>();
+        long total = -1;
+        parser.beginObject();
+        while (parser.hasNext()) {
+            String name = parser.nextName();
+            if (name.equals("notes") && parser.peek() == JsonPullParser.Token.BEGIN_ARRAY) {
+                notes = readList(parser);
+            } else if (name.equals("total") && parser.peek() == JsonPullParser.Token.NUMBER) {
+                total = parser.nextLong();
+            } else {
+                parser.skipValue();
+            }
+        }
+        parser.endObject();
+        return new NotePage(notes, offset, (int) Math.max(total, offset + notes.size()));
     }
 
     /**
@@ -48,30 +167,96 @@ public class NoteUtil {
      * @return Note-object
      */
     public static Note parse(String json) {
-        SimpleDateFormat sdf = new SimpleDateFormat("HH:mm dd.MM.yyyy");
-        JSONObject jo = new JSONObject(json);
+        try {
+            return readNote(new JsonPullParser(new StringReader(json)));
+        } catch (IOException e) {
+            throw new JSONException(e.getMessage());
+        }
+    }
+
+    private static List<Note> readList(JsonPullParser parser) throws IOException {
+        List<Note> notes = new ArrayList<>();
+        parser.beginArray();
+        while (parser.hasNext()) {
+            notes.add(readNote(parser));
+        }
+        parser.endArray();
+        return notes;
+    }
+
+    /**
+     * Reads the next JSON object of the parser as a Note
+     */
+    private static Note readNote(JsonPullParser parser) throws IOException {
+        String title = null;
+        String content = null;
+        String noteId = null;
+        String tagName = null;
+        String dateString = null;
+        String label = null;
+        parser.beginObject();
+        while (parser.hasNext()) {
+            String name = parser.nextName();
+            JsonPullParser.Token token = parser.peek();
+            if (token != JsonPullParser.Token.STRING) {
+                parser.skipValue();
+                continue;
+            }
+            switch (name) {
+                case "title":
+                    title = parser.nextString();
+                    break;
+                case "content":
+                    content = parser.nextString();
+                    break;
+                case "noteId":
+                    noteId = parser.nextString();
+                    break;
+                case "tag":
+                    tagName = parser.nextString();
+                    break;
+                case "dateString":
+                    dateString = parser.nextString();
+                    break;
+                case "label":
+                    label = parser.nextString();
+                    break;
+                default:
+                    parser.skipValue();
+            }
+        }
+        parser.endObject();
+
         Note temp = new Note();
-        temp.setTitle((String)jo.get("title"));
-        temp.setContent((String)jo.get("content"));
-         
+        temp.setTitle(title);
+        temp.setContent(content);
+
         try {
-            temp.setId((String)jo.get("noteId"));
+            temp.setId(noteId);
         } catch (Exception e) {
             temp.setId(new ObjectId());
         }
 
         Tag tag = Tag.NONE;
         try {
-            tag = Tag.valueOf((String) jo.get("tag"));
-            temp.setDate(sdf.parse((String)jo.get("dateString")));
-        } catch (IllegalArgumentException e) {
-            System.out.println("No tag found for value "+ (String)jo.get("tag"));
-        } catch (JSONException | ParseException e) {
+            if (tagName == null) {
+                throw new ParseException("No tag", 0);
+            }
+            tag = Tag.valueOf(tagName);
+            if (dateString == null) {
+                throw new ParseException("No date", 0);
+            }
+            temp.setDateMillis(Note.parseDateString(dateString));
+        } catch (DateTimeParseException | ParseException e) {
             System.out.println("Could not parse date");
-            temp.setDate(new Date());
+            temp.setDateMillis(System.currentTimeMillis());
+        } catch (IllegalArgumentException e) {
+            System.out.println("No tag found for value "+ tagName);
         }
         temp.setTag(tag);
-        temp.setLabel((String)jo.get("label"));
+        if (label != null) {
+            temp.setLabel(label);
+        }
         return temp;
     }
 
@@ -81,10 +266,18 @@ public class NoteUtil {
      * @return String representation of the Note-object as JSON
      */
     public static String buildJsonNote(Note note) {
+        JSONObject obj = buildJsonMetadata(note);
+        obj.put("content", note.getContent());
+        return obj.toString();
+    }
+
+    /**
+     * Builds a JSON object of the fields of a Note other than its content
+     */
+    private static JSONObject buildJsonMetadata(Note note) {
         JSONObject obj = new JSONObject();
         obj.put("id", note.getId());
         obj.put("title", note.getTitle());
-        obj.put("content", note.getContent());
         obj.put("label", note.getLabel());
         obj.put("tag", note.getTag().toString());
         try {
@@ -92,6 +285,104 @@ public class NoteUtil {
         } catch (ParseException e) {
             obj.put("date", "none");
         }
-        return obj.toString();
+        return obj;
+    }
+
+    /**
+     * Takes a Note-object and builds a JSON body out of it whose content is read from the given stream.
+     * <p>
+     * The content stream holds the encrypted content with one byte per character. It is escaped into the JSON
+     * string while the body is read, so the body is never held in memory as a whole.
+     * @param note Note-object to parse, its content is ignored
+     * @param content stream of the encrypted content
+     * @return JSON representation of the Note-object as a stream of UTF-8 bytes
+     */
+    public static InputStream buildJsonNote(Note note, InputStream content) {
+        JSONObject obj = buildJsonMetadata(note);
+        String json = obj.toString();
+        String prefix = json.substring(0, json.length() - 1) + (obj.length() > 0 ? "," : "") + "\"content\":\"";
+        return new SequenceInputStream(Collections.enumeration(List.of(
+                new ByteArrayInputStream(prefix.getBytes(StandardCharsets.UTF_8)),
+                new JsonStringInputStream(content),
+                new ByteArrayInputStream("\"}".getBytes(StandardCharsets.UTF_8))
+        )));
+    }
+
+    /**
+     * Escapes a stream of bytes into the characters of a JSON string encoded as UTF-8. Every byte is treated as
+     * one character.
+     */
+    private static class JsonStringInputStream extends FilterInputStream {
+        private final byte[] pending = new byte[6];
+        private int pendingPos;
+        private int pendingCount;
+
+        JsonStringInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (pendingPos == pendingCount) {
+                int b = in.read();
+                if (b < 0) {
+                    return -1;
+                }
+                escape(b);
+            }
+            return pending[pendingPos++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int count = 0;
+            while (count < len) {
+                if (pendingPos == pendingCount) {
+                    if (count > 0 && in.available() == 0) {
+                        break;
+                    }
+                    int next = in.read();
+                    if (next < 0) {
+                        break;
+                    }
+                    escape(next);
+                }
+                b[off + count++] = pending[pendingPos++];
+            }
+            return count == 0 && len > 0 ? -1 : count;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        /**
+         * Writes the escaped form of a character into the pending buffer.
+         * @param c character to escape.
+         */
+        private void escape(int c) {
+            pendingPos = 0;
+            if (c == '"' || c == '\\') {
+                pending[0] = '\\';
+                pending[1] = (byte) c;
+                pendingCount = 2;
+            } else if (c < 0x20) {
+                pending[0] = '\\';
+                pending[1] = 'u';
+                pending[2] = '0';
+                pending[3] = '0';
+                pending[4] = (byte) Character.forDigit(c >> 4, 16);
+                pending[5] = (byte) Character.forDigit(c & 0xf, 16);
+                pendingCount = 6;
+            } else if (c < 0x80) {
+                pending[0] = (byte) c;
+                pendingCount = 1;
+            } else {
+                pending[0] = (byte) (0xc0 | c >> 6);
+                pending[1] = (byte) (0x80 | c & 0x3f);
+                pendingCount = 2;
+            }
+        }
     }
 }
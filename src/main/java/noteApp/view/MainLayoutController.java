@@ -33,6 +33,7 @@ import org.fxmisc.richtext.InlineCssTextArea;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 import static noteApp.model.DocumentHandler.decode;
 import static noteApp.model.DocumentHandler.encode;
@@ -52,6 +53,7 @@ public class MainLayoutController {
     private Note selectedNote = new Note();
     private Note saveableNote = new Note();
     private boolean isModified = false;
+    private boolean loadingContent = false;
     private Main main;
     private RootLayoutController rootLayoutController;
     private Controller con;
@@ -187,6 +189,7 @@ public class MainLayoutController {
     private void setInfo(Note i) {
         ResourceBundle bundler = ResourceBundle.getBundle("bundles.MyBundle", rootLayoutController.getLanguageLocale(rootLayoutController.getLanguage()));
         selectedNote = null;
+        loadingContent = false;
         String compNoteId = i.getId().toString();
 
         for (Note value : noteList) {
@@ -197,7 +200,6 @@ public class MainLayoutController {
 
         if (selectedNote != null) {
             String name = selectedNote.getTitle();
-            String text = selectedNote.getContent();
             String label = selectedNote.getLabel();
             Tag tag = selectedNote.getTag();
 
@@ -208,8 +210,6 @@ public class MainLayoutController {
                 noteName.setText(name);
             }
 
-            decode(note, text);
-
             if (!(label.strip().equals(""))) {
                 comboBoxLabel.getSelectionModel().select(label);
             } else {
@@ -222,11 +222,68 @@ public class MainLayoutController {
                 comboBoxTag.getSelectionModel().clearSelection();
             }
 
+            // Content of a note listed without it is retrieved from the database. The editor stays disabled until it
+            // has arrived, so the note can not be saved over with an empty text.
+            Note opened = selectedNote;
+            CompletableFuture<String> content = opened.getContentAsync();
+            if (!content.isDone()) {
+                setLoadingContent(true);
+            }
+            content.whenComplete((text, error) -> {
+                if (Platform.isFxApplicationThread()) {
+                    showContent(opened, text, error, bundler);
+                } else {
+                    Platform.runLater(() -> showContent(opened, text, error, bundler));
+                }
+            });
+
         } else {
             noteName.setPromptText(bundler.getString("myNote"));
         }
     }
 
+    /**
+     * Shows the content of an opened note in the editor once it has been read. Content of a note that is no longer
+     * selected is ignored.
+     *
+     * @param opened note the content belongs to
+     * @param text content of the note, null if it could not be read
+     * @param error reason the content could not be read, null if it was read
+     * @param bundler bundle of the messages shown
+     */
+    private void showContent(Note opened, String text, Throwable error, ResourceBundle bundler) {
+        if (selectedNote != opened) {
+            return;
+        }
+        setLoadingContent(false);
+        if (error != null) {
+            // Nothing is shown, so the note can not be saved over with the text of the previous one.
+            error.printStackTrace();
+            selectedNote = null;
+            note.clear();
+            noteName.setText("");
+            noteName.setPromptText(bundler.getString("myNote"));
+            note.setDisable(true);
+            rightAnchor.setDisable(true);
+            new Toast().showToast(getMain().getPrimaryStage(),
+                    bundler.getString("somWrong"), Color.RED, 2500, 500, 500);
+            return;
+        }
+        note.clear();
+        decode(note, text);
+    }
+
+    /**
+     * Disables the editor while the content of the selected note is being retrieved.
+     *
+     * @param loading true while the content is being retrieved
+     */
+    private void setLoadingContent(boolean loading) {
+        loadingContent = loading;
+        rightAnchor.setDisable(selectedNote == null || loading);
+        note.setDisable(selectedNote == null || loading);
+    }
+
     private int getIndex() {
         int ind = savedNoteView.getSelectionModel().getSelectedIndex();
         if (ind < 0) {
@@ -421,6 +478,9 @@ public class MainLayoutController {
      */
     @FXML
     private void handleNote(KeyEvent e) {
+        if (selectedNote == null || loadingContent) {
+            return;
+        }
         selectedNote.setTitle(noteName.getText());
         selectedNote.setContent(note.getText());
         con.getState().handleNote();
@@ -490,10 +550,10 @@ public class MainLayoutController {
      */
     public void disableProperties() {
         Platform.runLater(() -> {
-            rightAnchor.setDisable(selectedNote == null);
+            rightAnchor.setDisable(selectedNote == null || loadingContent);
             comboBoxSort.setDisable(savedNoteView.getItems().size() == 0);
             newButton.setDisable(!this.con.isLoggedIn());
-            note.setDisable(selectedNote == null);
+            note.setDisable(selectedNote == null || loadingContent);
 
             rootLayoutController.getEditMenu().setDisable(selectedNote == null);
             rootLayoutController.getFileMenu(0).setDisable(selectedNote == null);
@@ -511,10 +571,10 @@ public class MainLayoutController {
      */
     public void disableProps() {
         Platform.runLater(() -> {
-            rightAnchor.setDisable(selectedNote == null);
+            rightAnchor.setDisable(selectedNote == null || loadingContent);
             comboBoxSort.setDisable(savedNoteView.getItems().size() == 0);
             newButton.setDisable(false);
-            note.setDisable(selectedNote == null);
+            note.setDisable(selectedNote == null || loadingContent);
 
             rootLayoutController.getEditMenu().setDisable(selectedNote == null);
             rootLayoutController.getFileMenu(0).setDisable(selectedNote == null);
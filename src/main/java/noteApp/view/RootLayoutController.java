@@ -13,6 +13,7 @@ import javafx.stage.DirectoryChooser;
 import javafx.stage.Stage;
 import noteApp.controller.Controller;
 import noteApp.model.Context;
+import noteApp.model.Filehandler;
 import noteApp.model.note.Note;
 
 import java.io.File;
@@ -190,6 +191,7 @@ public class RootLayoutController {
     @FXML
     private void handleExit(ActionEvent e) {
         e.consume();
+        Filehandler.flushLocalSaves().join();
         System.exit(0);
     }
 
@@ -0,0 +1,157 @@
+package noteApp.model;
+
+import noteApp.model.note.Note;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LocalNoteStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replayDropsTornRecord() throws IOException {
+        LocalNoteStore store = open();
+        Note kept = new Note("kept", "first");
+        store.put(kept).join();
+        long valid = Files.size(log());
+        store.put(new Note("torn", "second")).join();
+        store.close();
+        // The program stopped in the middle of writing the last record
+        try (FileChannel channel = FileChannel.open(log(), StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        store = open();
+        assertEquals(List.of("kept"), titles(store));
+        assertEquals(valid, Files.size(log()));
+        Note later = new Note("later", "third");
+        store.put(later).join();
+        store.close();
+
+        store = open();
+        assertEquals(List.of("kept", "later"), titles(store));
+        store.close();
+    }
+
+    @Test
+    void replayDropsRecordFailingChecksum() throws IOException {
+        LocalNoteStore store = open();
+        store.put(new Note("kept", "first")).join();
+        Note damaged = new Note("damaged", "second");
+        store.put(damaged).join();
+        store.delete(damaged.getId().toString()).join();
+        store.close();
+        // Damage the payload of the put of the second note, the delete after it is dropped with it
+        byte[] bytes = Files.readAllBytes(log());
+        int deleteRecord = 8 + 1 + damaged.getId().toString().length();
+        bytes[bytes.length - deleteRecord - 1] ^= 1;
+        Files.write(log(), bytes);
+
+        store = open();
+        assertEquals(List.of("kept"), titles(store));
+        store.close();
+    }
+
+    @Test
+    void rollbackCutsFailedBatchOffTheLog() throws Exception {
+        LocalNoteStore store = open();
+        store.put(new Note("kept", "first")).join();
+        long valid = Files.size(log());
+        // A batch that was written partly before the write failed
+        try (FileChannel channel = FileChannel.open(log(), StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 42, 1, 2, 3}));
+        }
+        rollback(store);
+        assertEquals(valid, Files.size(log()));
+
+        store.put(new Note("later", "second")).join();
+        store.close();
+        store = open();
+        assertEquals(List.of("kept", "later"), titles(store));
+        store.close();
+    }
+
+    @Test
+    void failedRollbackFailsLaterChanges() throws Exception {
+        LocalNoteStore store = open();
+        store.put(new Note("kept", "first")).join();
+        Field log = LocalNoteStore.class.getDeclaredField("log");
+        log.setAccessible(true);
+        ((FileChannel) log.get(store)).close();
+
+        assertThrows(CompletionException.class, () -> store.put(new Note("lost", "second")).join());
+        CompletionException later = assertThrows(CompletionException.class,
+                () -> store.put(new Note("later", "third")).join());
+        assertEquals("The local note store failed", later.getCause().getMessage());
+        store.close();
+
+        LocalNoteStore reopened = open();
+        assertEquals(List.of("kept"), titles(reopened));
+        reopened.close();
+    }
+
+    @Test
+    void compactionWritesSnapshotAndStartsNewLog() throws IOException {
+        LocalNoteStore store = open();
+        Note large = new Note("large", null);
+        String filler = "x".repeat(1 << 20);
+        // Four saves of a note larger than a megabyte make the log large enough to be compacted
+        for (int i = 0; i < 4; i++) {
+            large.setContent(i + filler);
+            store.put(large).join();
+        }
+        Note small = new Note("small", "text");
+        store.put(small).join();
+        store.close();
+
+        assertTrue(Files.exists(directory.resolve(LocalNoteStore.SNAPSHOT_FILE + ".1")));
+        assertTrue(Files.size(log()) < 1 << 20);
+        store = open();
+        assertEquals(List.of("large", "small"), titles(store));
+        List<Note> notes = store.getNotes();
+        assertEquals(3 + filler, notes.get(0).getContent());
+        assertEquals("text", notes.get(1).getContent());
+
+        store.delete(small.getId().toString()).join();
+        store.close();
+        store = open();
+        assertEquals(List.of("large"), titles(store));
+        store.close();
+    }
+
+    private LocalNoteStore open() throws IOException {
+        return LocalNoteStore.open(directory, opened -> {
+        });
+    }
+
+    private Path log() {
+        return directory.resolve(LocalNoteStore.LOG_FILE);
+    }
+
+    private static List<String> titles(LocalNoteStore store) {
+        return store.getNotes().stream().map(Note::getTitle).collect(Collectors.toList());
+    }
+
+    private static void rollback(LocalNoteStore store) throws ReflectiveOperationException {
+        Method rollback = LocalNoteStore.class.getDeclaredMethod("rollback", Exception.class);
+        rollback.setAccessible(true);
+        rollback.invoke(store, new IOException("Simulated write failure"));
+    }
+}
@@ -0,0 +1,84 @@
+package noteApp.model;
+
+import noteApp.model.note.Note;
+import noteApp.model.note.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class NoteSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsWhatWasWritten() throws IOException {
+        Note first = new Note("first", "content of the first note");
+        first.setTag(Tag.HIGH);
+        first.setLabel("label");
+        Note second = new Note("second", null);
+        Path file = directory.resolve("snapshot");
+        long size = NoteSnapshot.write(file, List.of(first, second));
+
+        assertEquals(Files.size(file), size);
+        List<Note> read = NoteSnapshot.read(file);
+        assertEquals(2, read.size());
+        assertEquals(first.getId(), read.get(0).getId());
+        assertEquals("first", read.get(0).getTitle());
+        assertEquals("content of the first note", read.get(0).getContent());
+        assertEquals(first.getDateMillis(), read.get(0).getDateMillis());
+        assertEquals(Tag.HIGH, read.get(0).getTag());
+        assertEquals("label", read.get(0).getLabel());
+        assertNull(read.get(1).getContent());
+    }
+
+    @Test
+    void damagedIndexFailsRead() throws IOException {
+        Path file = directory.resolve("snapshot");
+        NoteSnapshot.write(file, List.of(new Note("first", "content")));
+        byte[] bytes = Files.readAllBytes(file);
+        // First byte of the id of the first note
+        bytes[16] ^= 1;
+        Files.write(file, bytes);
+
+        assertThrows(IOException.class, () -> NoteSnapshot.read(file));
+    }
+
+    @Test
+    void damagedContentFailsOnlyItsNote() throws IOException {
+        Path file = directory.resolve("snapshot");
+        NoteSnapshot.write(file, List.of(new Note("first", "intact"), new Note("second", "damaged")));
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(file, bytes);
+
+        List<Note> read = NoteSnapshot.read(file);
+        assertEquals("intact", read.get(0).getContent());
+        assertThrows(UncheckedIOException.class, () -> read.get(1).getContent());
+
+        // A new snapshot keeps the note without its damaged content
+        Path rewritten = directory.resolve("rewritten");
+        NoteSnapshot.write(rewritten, read);
+        List<Note> reread = NoteSnapshot.read(rewritten);
+        assertEquals("intact", reread.get(0).getContent());
+        assertEquals("second", reread.get(1).getTitle());
+        assertNull(reread.get(1).getContent());
+    }
+
+    @Test
+    void otherFilesAreNotSnapshots() throws IOException {
+        Path file = directory.resolve("snapshot");
+        Files.write(file, new byte[]{'M', 'N', 'O', 'T', 1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0});
+
+        assertThrows(IOException.class, () -> NoteSnapshot.read(file));
+    }
+}
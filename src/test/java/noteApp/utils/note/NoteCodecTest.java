@@ -0,0 +1,99 @@
+package noteApp.utils.note;
+
+import noteApp.model.note.Note;
+import noteApp.model.note.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class NoteCodecTest {
+
+    @Test
+    void writesAndReadsManyNotes() throws IOException {
+        Note first = new Note("first", "content ä");
+        first.setTag(Tag.LOW);
+        first.setLabel("label");
+        Note second = new Note();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (NoteCodec.Writer writer = new NoteCodec.Writer(bytes)) {
+            writer.write(first);
+            writer.write(second);
+        }
+
+        List<Note> read = NoteCodec.readAll(new ByteArrayInputStream(bytes.toByteArray()));
+        assertEquals(2, read.size());
+        assertSameNote(first, read.get(0));
+        assertSameNote(second, read.get(1));
+    }
+
+    @Test
+    void encodesAndDecodesOneNote() throws IOException {
+        Note note = new Note("title", "content");
+        byte[] bytes = NoteCodec.encode(note);
+
+        assertSameNote(note, NoteCodec.decode(bytes, 0, bytes.length));
+    }
+
+    @Test
+    void readsSerializedNote() throws IOException {
+        Note note = new Note("legacy", "saved before the codec");
+        note.setTag(Tag.MEDIUM);
+
+        try (NoteCodec.Reader reader = new NoteCodec.Reader(new ByteArrayInputStream(serialize(note)))) {
+            assertEquals(0, reader.getVersion());
+            assertSameNote(note, reader.read());
+            assertNull(reader.read());
+        }
+    }
+
+    @Test
+    void filterRejectsOtherSerializedClasses() {
+        List<String> list = new ArrayList<>();
+        list.add("not a note");
+
+        assertThrows(InvalidClassException.class,
+                () -> NoteCodec.readAll(new ByteArrayInputStream(serialize(list))));
+    }
+
+    @Test
+    void serializedObjectThatIsNotANoteIsRejected() {
+        assertThrows(StreamCorruptedException.class,
+                () -> NoteCodec.readAll(new ByteArrayInputStream(serialize("not a note"))));
+    }
+
+    @Test
+    void decodeDoesNotAcceptSerializedNotes() throws IOException {
+        byte[] bytes = serialize(new Note("legacy", "content"));
+
+        assertThrows(StreamCorruptedException.class, () -> NoteCodec.decode(bytes, 0, bytes.length));
+    }
+
+    private static byte[] serialize(Object object) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(object);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void assertSameNote(Note expected, Note actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getUserId(), actual.getUserId());
+        assertEquals(expected.getTitle(), actual.getTitle());
+        assertEquals(expected.getContent(), actual.getContent());
+        assertEquals(expected.getDateMillis(), actual.getDateMillis());
+        assertEquals(expected.getTag(), actual.getTag());
+        assertEquals(expected.getLabel(), actual.getLabel());
+    }
+}